@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Generated images (and folders of images) for the benchmarks.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class BenchmarkFixtures {
+
+  private BenchmarkFixtures() {}
+
+  static File createFolder() throws IOException {
+    return Files.createTempDirectory("jatoo-cli-image-benchmark-").toFile();
+  }
+
+  /**
+   * Writes a JPEG image with gradients and noise (so it compresses like a
+   * photo, not like a flat color).
+   * 
+   * @param resolution
+   *          the size of the image, like "4000x3000"
+   */
+  static File createImage(final File folder, final String name, final String resolution) throws IOException {
+
+    String[] values = resolution.split("x");
+
+    int width = Integer.parseInt(values[0]);
+    int height = Integer.parseInt(values[1]);
+
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Random random = new Random(31L * width + height);
+
+    int[] row = new int[width];
+
+    for (int y = 0; y < height; y++) {
+
+      for (int x = 0; x < width; x++) {
+        int r = x * 255 / width;
+        int g = y * 255 / height;
+        int b = (r + g) / 2 + random.nextInt(64) & 0xff;
+        row[x] = r << 16 | g << 8 | b;
+      }
+
+      image.setRGB(0, y, width, 1, row, 0, width);
+    }
+
+    File file = new File(folder, name);
+    ImageIO.write(image, "jpg", file);
+
+    return file;
+  }
+
+  static void delete(final File folder) throws IOException {
+
+    Files.walkFileTree(folder.toPath(), new SimpleFileVisitor<Path>() {
+
+      @Override
+      public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(final Path dir, final IOException e) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * @return a stream that discards everything (to silence the command output)
+   */
+  static PrintStream createNullPrintStream() {
+    return new PrintStream(new OutputStream() {
+      @Override
+      public void write(final int b) {}
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) {}
+    });
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the "-image -resize" command over a folder of generated images (one
+ * operation is the whole folder).
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class FolderResizeBenchmark {
+
+  private static final int IMAGES = 16;
+
+  @Param({ "1024x768", "4000x3000" })
+  public String resolution;
+
+  @Param({ "fit", "fill" })
+  public String mode;
+
+  @Param({ "1", "4" })
+  public String threads;
+
+  private File folder;
+  private File srcFolder;
+  private File dstFolder;
+
+  private PrintStream out;
+
+  @Setup
+  public void setup() throws IOException {
+
+    folder = BenchmarkFixtures.createFolder();
+    srcFolder = new File(folder, "src");
+    dstFolder = new File(folder, "dst");
+
+    srcFolder.mkdirs();
+
+    for (int i = 0; i < IMAGES; i++) {
+      BenchmarkFixtures.createImage(srcFolder, "image-" + i + ".jpg", resolution);
+    }
+
+    out = System.out;
+    System.setOut(BenchmarkFixtures.createNullPrintStream());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    System.setOut(out);
+    BenchmarkFixtures.delete(folder);
+  }
+
+  @Benchmark
+  public void resize() {
+    new JatooCLICommand().execute(
+      new String[] {
+          "-resize",
+          "-" + mode,
+          "-width", "400",
+          "-height", "200",
+          "-removeMetadata",
+          "-overwrite",
+          "-threads", threads,
+          "-src", srcFolder.getPath(),
+          "-dst", dstFolder.getPath()
+      });
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The metadata operations of the command: copy (as done after each resize),
+ * DateTimeOriginal read (as done by rename, with exiftool and with the built-in
+ * reader) and the "-metadata -get -all" command over a folder.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MetadataBenchmark {
+
+  private static final int IMAGES = 16;
+
+  private File folder;
+  private File srcFile;
+  private File dstFile;
+
+  private PrintStream out;
+
+  @Setup
+  public void setup() throws IOException {
+
+    folder = BenchmarkFixtures.createFolder();
+
+    for (int i = 0; i < IMAGES; i++) {
+      File file = BenchmarkFixtures.createImage(folder, "image-" + i + ".jpg", "1024x768");
+      ImageMetadataSession.getInstance().setDateTimeOriginal(file, new Date());
+    }
+
+    srcFile = new File(folder, "image-0.jpg");
+    dstFile = new File(folder.getParentFile(), folder.getName() + "-dst.jpg");
+
+    Files.copy(srcFile.toPath(), dstFile.toPath());
+
+    out = System.out;
+    System.setOut(BenchmarkFixtures.createNullPrintStream());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    System.setOut(out);
+    Files.delete(dstFile.toPath());
+    BenchmarkFixtures.delete(folder);
+  }
+
+  @Benchmark
+  public boolean copyMetadata() throws IOException {
+    return ImageMetadataSession.getInstance().copyMetadata(srcFile, dstFile);
+  }
+
+  @Benchmark
+  public Date getDateTimeOriginal() throws IOException {
+    return ImageMetadataSession.getInstance().getDateTimeOriginal(srcFile);
+  }
+
+  @Benchmark
+  public Date getDateTimeOriginalExifReader() throws IOException {
+    return new ExifReader(ImageMetadataSession.getInstance()).getDateTimeOriginal(srcFile);
+  }
+
+  @Benchmark
+  public void metadataGetAllFolder() {
+    new JatooCLICommand().execute(
+      new String[] {
+          "-metadata",
+          "-src", folder.getPath(),
+          "-get", "-all"
+      });
+  }
+
+}
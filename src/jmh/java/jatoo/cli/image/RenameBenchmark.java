@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.text.NumberFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Computes the new names of the images, as done by "-image -rename" for each
+ * image of a folder.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RenameBenchmark {
+
+  @Param({ "yyyyMMdd-HHmmss", "yyyyMMdd-HHmmss-${counter}" })
+  public String pattern;
+
+  private final File srcImageFile = new File("IMG_0001.JPG");
+  private final Date date = new Date();
+
+  private RenamePattern renamePattern;
+  private int counter;
+
+  @Setup
+  public void setup() {
+
+    NumberFormat counterNF = NumberFormat.getIntegerInstance();
+    counterNF.setGroupingUsed(false);
+    counterNF.setMinimumIntegerDigits(5);
+
+    renamePattern = new RenamePattern(pattern, counterNF, true, false);
+  }
+
+  @Benchmark
+  public String renamePatternFormat() {
+    return renamePattern.format(srcImageFile, date, ++counter);
+  }
+
+}
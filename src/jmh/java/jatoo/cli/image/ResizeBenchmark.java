@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resizes a single image (decode, scale and encode) to a 400x200 preview.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResizeBenchmark {
+
+  @Param({ "1024x768", "4000x3000", "6000x4000" })
+  public String resolution;
+
+  @Param({ "fit", "fill" })
+  public String mode;
+
+  @Param({ "nearest", "bilinear", "progressive", "bicubic" })
+  public String algorithm;
+
+  private File folder;
+  private File srcFile;
+  private File dstFile;
+
+  private ImageResizer resizer;
+
+  @Setup
+  public void setup() throws IOException {
+
+    folder = BenchmarkFixtures.createFolder();
+    srcFile = BenchmarkFixtures.createImage(folder, "src.jpg", resolution);
+    dstFile = new File(folder, "dst.jpg");
+
+    resizer = new ImageResizer(Collections.singletonList(new ImageResizer.Size(mode.equals("fit"), 400, 200)), ScalingAlgorithm.parse(algorithm));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    BenchmarkFixtures.delete(folder);
+  }
+
+  @Benchmark
+  public void resize() throws IOException {
+    resizer.resize(srcFile, dstFile);
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the per-file work of a batch over a pool of worker threads.
+ * <p>
+ * The results are reported in the order the tasks were submitted (so the
+ * console output stays readable) and a failed task does not abort the batch.
+ * The number of tasks in flight is bounded, so submitting blocks when the
+ * workers fall behind. The workers dispose the image readers and writers
+ * they pooled (see {@link ImageCodecs#dispose()}) when they end.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+abstract class BatchExecutor {
+
+  private final ExecutorService executor;
+  private final int window;
+
+  private final Queue<Task> tasks = new ArrayDeque<>();
+
+  private int succeeded;
+  private int failed;
+
+  BatchExecutor(final int threads) {
+
+    if (threads < 1) {
+      throw new IllegalArgumentException("the number of threads must be positive: " + threads);
+    }
+
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+      private final ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        return threadFactory.newThread(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              runnable.run();
+            } finally {
+              ImageCodecs.dispose();
+            }
+          }
+        });
+      }
+    });
+    this.window = threads * 4;
+  }
+
+  /**
+   * Called (in submission order) with the result of a successful task.
+   */
+  protected abstract void onSuccess(String result);
+
+  /**
+   * Called (in submission order) when a task fails.
+   */
+  protected abstract void onFailure(String name, Throwable t);
+
+  void submit(final String name, final Callable<String> callable) {
+
+    while (tasks.size() >= window) {
+      report(tasks.remove());
+    }
+
+    tasks.add(new Task(name, executor.submit(callable)));
+  }
+
+  /**
+   * Waits for all the submitted tasks, reports them and stops the workers.
+   * 
+   * @return the number of failed tasks
+   */
+  int finish() {
+
+    try {
+      while (!tasks.isEmpty()) {
+        report(tasks.remove());
+      }
+    }
+
+    finally {
+      executor.shutdown();
+    }
+
+    return failed;
+  }
+
+  int getSucceeded() {
+    return succeeded;
+  }
+
+  int getFailed() {
+    return failed;
+  }
+
+  private void report(final Task task) {
+
+    try {
+      String result = task.future.get();
+      succeeded++;
+      onSuccess(result);
+    }
+
+    catch (ExecutionException e) {
+      failed++;
+      onFailure(task.name, e.getCause());
+    }
+
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failed++;
+      onFailure(task.name, e);
+    }
+  }
+
+  private static final class Task {
+
+    private final String name;
+    private final Future<String> future;
+
+    private Task(final String name, final Future<String> future) {
+      this.name = name;
+      this.future = future;
+    }
+  }
+
+}
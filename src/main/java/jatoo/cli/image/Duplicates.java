@@ -0,0 +1,459 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Groups files by a key (a content hash or a perceptual hash) to find the
+ * duplicates.
+ * <p>
+ * For the content hashes, the files are first grouped by size: only the files
+ * that have the same size as another file (the candidates) need to be hashed.
+ * The size and the last modified time of every file are kept, so a file that
+ * changed since it was added can be told apart (see
+ * {@link #isUnchanged(File)}).
+ * <p>
+ * The files that are already hard links to each other (the same file key, for
+ * example after a run with "-link") are the same file, not duplicates: only
+ * the first one added is checked, the others are kept aside as its links (see
+ * {@link #getLinks(File)}).
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class Duplicates {
+
+  private static final Comparator<List<File>> GROUP_COMPARATOR = new Comparator<List<File>>() {
+    @Override
+    public int compare(final List<File> group1, final List<File> group2) {
+      return group1.get(0).compareTo(group2.get(0));
+    }
+  };
+
+  private final Map<Long, List<File>> filesBySize = new HashMap<>();
+  private final Map<String, List<File>> filesByHash = new HashMap<>();
+
+  /** the size and the last modified time of every file, when added */
+  private final Map<File, long[]> states = new HashMap<>();
+
+  /** the first file added for every file key */
+  private final Map<Object, File> filesByKey = new HashMap<>();
+  /** the files added after the first one with the same file key */
+  private final Map<File, List<File>> links = new HashMap<>();
+
+  private int files;
+
+  /**
+   * Adds a file to be checked (by size), unless it is a hard link to a file
+   * already added.
+   */
+  void add(final File file) throws IOException {
+
+    files++;
+    states.put(file, new long[] { file.length(), file.lastModified() });
+
+    // the file key is null if the file system does not have one
+    Object key = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+
+    if (key != null) {
+
+      File sameFile = filesByKey.get(key);
+
+      if (sameFile != null) {
+
+        List<File> sameFileLinks = links.get(sameFile);
+
+        if (sameFileLinks == null) {
+          sameFileLinks = new ArrayList<>(1);
+          links.put(sameFile, sameFileLinks);
+        }
+
+        sameFileLinks.add(file);
+
+        return;
+      }
+
+      filesByKey.put(key, file);
+    }
+
+    long size = file.length();
+    List<File> sameSize = filesBySize.get(size);
+
+    if (sameSize == null) {
+      sameSize = new ArrayList<>(1);
+      filesBySize.put(size, sameSize);
+    }
+
+    sameSize.add(file);
+  }
+
+  /**
+   * @return the other files added that are hard links to this one (the same
+   *         file), sorted
+   */
+  List<File> getLinks(final File file) {
+
+    List<File> sameFileLinks = links.get(file);
+
+    if (sameFileLinks == null) {
+      return Collections.emptyList();
+    }
+
+    sameFileLinks = new ArrayList<>(sameFileLinks);
+    Collections.sort(sameFileLinks);
+
+    return sameFileLinks;
+  }
+
+  /**
+   * @return <code>true</code> if the file has the same size and last modified
+   *         time as when it was added (before it was hashed)
+   */
+  boolean isUnchanged(final File file) {
+
+    long[] state = states.get(file);
+
+    return state != null && state[0] == file.length() && state[1] == file.lastModified();
+  }
+
+  /**
+   * @return the number of files added (including the hard links)
+   */
+  int getFiles() {
+    return files;
+  }
+
+  /**
+   * @return all the files added (only the first of the hard links to the same
+   *         file)
+   */
+  List<File> getAll() {
+
+    List<File> all = new ArrayList<>(files);
+
+    for (List<File> sameSize : filesBySize.values()) {
+      all.addAll(sameSize);
+    }
+
+    Collections.sort(all);
+
+    return all;
+  }
+
+  /**
+   * @return the files that have the same size as (at least) another file, the
+   *         only ones that can be duplicates
+   */
+  List<File> getCandidates() {
+
+    List<File> candidates = new ArrayList<>();
+
+    for (List<File> sameSize : filesBySize.values()) {
+      if (sameSize.size() > 1) {
+        candidates.addAll(sameSize);
+      }
+    }
+
+    Collections.sort(candidates);
+
+    return candidates;
+  }
+
+  /**
+   * Adds the hash of a file (can be called from many threads).
+   */
+  synchronized void addHash(final File file, final String hash) {
+
+    List<File> sameHash = filesByHash.get(hash);
+
+    if (sameHash == null) {
+      sameHash = new ArrayList<>(1);
+      filesByHash.put(hash, sameHash);
+    }
+
+    sameHash.add(file);
+  }
+
+  /**
+   * @return the groups of files with the same hash (each one sorted, the
+   *         first file being the one to keep)
+   */
+  synchronized List<List<File>> getGroups() {
+
+    List<List<File>> groups = new ArrayList<>();
+
+    for (List<File> sameHash : filesByHash.values()) {
+      if (sameHash.size() > 1) {
+        List<File> group = new ArrayList<>(sameHash);
+        Collections.sort(group);
+        groups.add(group);
+      }
+    }
+
+    Collections.sort(groups, GROUP_COMPARATOR);
+
+    return groups;
+  }
+
+  /**
+   * Groups the files whose perceptual hashes differ in at most the specified
+   * number of bits (if A is close to B and B is close to C, all three are in
+   * the same group). Every distinct hash is compared with every other, so
+   * this is quadratic in the number of distinct images.
+   * 
+   * @return the groups of similar files (each one sorted, the first file being
+   *         the one to keep)
+   */
+  synchronized List<List<File>> getSimilarGroups(final int maxDistance) {
+
+    List<String> hashes = new ArrayList<>(filesByHash.keySet());
+
+    long[] bits = new long[hashes.size()];
+    int[] parents = new int[hashes.size()];
+
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = new BigInteger(hashes.get(i), 16).longValue();
+      parents[i] = i;
+    }
+
+    for (int i = 0; i < bits.length; i++) {
+      for (int j = i + 1; j < bits.length; j++) {
+        if (Long.bitCount(bits[i] ^ bits[j]) <= maxDistance) {
+          parents[getRoot(parents, j)] = getRoot(parents, i);
+        }
+      }
+    }
+
+    Map<Integer, List<File>> filesByRoot = new HashMap<>();
+
+    for (int i = 0; i < bits.length; i++) {
+
+      int root = getRoot(parents, i);
+      List<File> group = filesByRoot.get(root);
+
+      if (group == null) {
+        group = new ArrayList<>(1);
+        filesByRoot.put(root, group);
+      }
+
+      group.addAll(filesByHash.get(hashes.get(i)));
+    }
+
+    List<List<File>> groups = new ArrayList<>();
+
+    for (List<File> group : filesByRoot.values()) {
+      if (group.size() > 1) {
+        Collections.sort(group);
+        groups.add(group);
+      }
+    }
+
+    Collections.sort(groups, GROUP_COMPARATOR);
+
+    return groups;
+  }
+
+  private static int getRoot(final int[] parents, final int index) {
+
+    int root = index;
+
+    while (parents[root] != root) {
+      root = parents[root];
+    }
+
+    return root;
+  }
+
+  /**
+   * @return the SHA-1 hash of the content of the file
+   */
+  static String hash(final File file) throws IOException {
+
+    MessageDigest digest;
+
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    }
+
+    return toHex(digest.digest());
+  }
+
+  /**
+   * @return <code>true</code> if the two files have the same content, compared
+   *         byte by byte
+   */
+  static boolean isSameContent(final File file1, final File file2) throws IOException {
+
+    ByteBuffer buffer1 = ByteBuffer.allocate(64 * 1024);
+    ByteBuffer buffer2 = ByteBuffer.allocate(64 * 1024);
+
+    try (FileChannel channel1 = FileChannel.open(file1.toPath(), StandardOpenOption.READ); FileChannel channel2 = FileChannel.open(file2.toPath(), StandardOpenOption.READ)) {
+
+      if (channel1.size() != channel2.size()) {
+        return false;
+      }
+
+      while (true) {
+
+        boolean end1 = fill(channel1, buffer1);
+        boolean end2 = fill(channel2, buffer2);
+
+        buffer1.flip();
+        buffer2.flip();
+
+        if (!buffer1.equals(buffer2)) {
+          return false;
+        }
+
+        if (end1 || end2) {
+          return end1 && end2;
+        }
+
+        buffer1.clear();
+        buffer2.clear();
+      }
+    }
+  }
+
+  /**
+   * Reads until the buffer is full or until the end of the file.
+   * 
+   * @return <code>true</code> if the end of the file was reached
+   */
+  private static boolean fill(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) == -1) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Computes a perceptual hash (a "difference hash") of the image: the image
+   * is decoded at a low resolution and reduced (averaging the areas, so the
+   * result does not depend on the size of the source) to 9x8 pixels, and
+   * every bit says if a pixel is brighter than the one on its right. Images
+   * that look the same (resized, recompressed, with other metadata) have the
+   * same hash, or hashes that differ in only a few bits.
+   * 
+   * @return the perceptual hash of the image (16 hex digits)
+   */
+  static String perceptualHash(final File file) throws IOException {
+
+    BufferedImage image;
+
+    try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+
+      if (stream == null) {
+        throw new IOException("cannot read the file: " + file);
+      }
+
+      ImageReader reader = ImageCodecs.getReader(stream, file);
+
+      try {
+
+        reader.setInput(stream, true, true);
+
+        int subsampling = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / 256);
+
+        ImageReadParam param = reader.getDefaultReadParam();
+
+        if (subsampling > 1) {
+          param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        }
+
+        image = reader.read(0, param);
+      }
+
+      finally {
+        ImageCodecs.release(reader);
+      }
+    }
+
+    BufferedImage reduced = new BufferedImage(9, 8, BufferedImage.TYPE_INT_RGB);
+
+    Graphics2D g = reduced.createGraphics();
+    g.drawImage(image.getScaledInstance(9, 8, Image.SCALE_AREA_AVERAGING), 0, 0, null);
+    g.dispose();
+
+    long bits = 0;
+
+    for (int y = 0; y < 8; y++) {
+      for (int x = 0; x < 8; x++) {
+        bits = (bits << 1) | (getLuminance(reduced.getRGB(x, y)) > getLuminance(reduced.getRGB(x + 1, y)) ? 1 : 0);
+      }
+    }
+
+    return String.format("%016x", bits);
+  }
+
+  private static int getLuminance(final int rgb) {
+    return (((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114) / 1000;
+  }
+
+  private static String toHex(final byte[] bytes) {
+
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+      hex.append(Character.forDigit(b & 0xF, 16));
+    }
+
+    return hex.toString();
+  }
+
+}
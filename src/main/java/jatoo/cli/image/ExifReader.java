@@ -0,0 +1,888 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the DateTimeOriginal and the size of JPEG and TIFF images directly,
+ * without exiftool: only the header of the file is read and the few tags
+ * needed are looked up in place (the EXIF IFD of the APP1 segment and the SOF
+ * segment for JPEG, IFD0 and the EXIF IFD for TIFF).
+ * <p>
+ * The images that cannot be read this way (other formats, unusual or
+ * corrupted headers), and the ones without an EXIF DateTimeOriginal (the date
+ * may still be in XMP or in other tags), are delegated to another reader.
+ * <p>
+ * The orientation (from IFD0) can also be read, and reset in place, the
+ * DateTimeOriginal can be set in place, and the thumbnail (from IFD1) can be
+ * extracted. The EXIF of an image that was resized or rotated can be updated
+ * in place (the pixel dimensions and the thumbnail).
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ExifReader implements ImageMetadataReader {
+
+  /** how much of the file is read first (the header is usually smaller) */
+  private static final int HEADER_SIZE = 128 * 1024;
+
+  /** how much of the file is read at most, for the larger headers */
+  private static final int HEADER_SIZE_MAX = 16 * 1024 * 1024;
+
+  private static final int TAG_NEW_SUBFILE_TYPE = 0x00FE;
+  private static final int TAG_IMAGE_WIDTH = 0x0100;
+  private static final int TAG_IMAGE_LENGTH = 0x0101;
+  private static final int TAG_ORIENTATION = 0x0112;
+  private static final int TAG_JPEG_INTERCHANGE_FORMAT = 0x0201;
+  private static final int TAG_JPEG_INTERCHANGE_FORMAT_LENGTH = 0x0202;
+  private static final int TAG_EXIF_IFD = 0x8769;
+  private static final int TAG_GPS_IFD = 0x8825;
+  private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+  private static final int TAG_PIXEL_X_DIMENSION = 0xA002;
+  private static final int TAG_PIXEL_Y_DIMENSION = 0xA003;
+  private static final int TAG_INTEROPERABILITY_IFD = 0xA005;
+
+  private static final int TYPE_ASCII = 2;
+  private static final int TYPE_SHORT = 3;
+  private static final int TYPE_LONG = 4;
+
+  /** the sizes of the TIFF types (0 for the unknown ones) */
+  private static final int[] TYPE_SIZES = { 0, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8 };
+
+  private final ImageMetadataReader fallback;
+
+  /**
+   * @param fallback
+   *          the reader used for the images that cannot be read directly
+   */
+  ExifReader(final ImageMetadataReader fallback) {
+    this.fallback = fallback;
+  }
+
+  @Override
+  public Date getDateTimeOriginal(final File file) throws IOException {
+
+    Header header = read(file, false, false);
+
+    if (header == null || header.dateTimeOriginal == null) {
+      return fallback.getDateTimeOriginal(file);
+    }
+
+    return header.dateTimeOriginal;
+  }
+
+  @Override
+  public Map<File, Date> getDateTimeOriginals(final List<File> files) throws IOException {
+
+    Map<File, Date> dates = new HashMap<>(files.size() * 2);
+    List<File> fallbackFiles = new ArrayList<>();
+
+    for (File file : files) {
+
+      Header header = read(file, false, false);
+
+      if (header == null || header.dateTimeOriginal == null) {
+        fallbackFiles.add(file);
+      } else {
+        dates.put(file, header.dateTimeOriginal);
+      }
+    }
+
+    if (!fallbackFiles.isEmpty()) {
+      dates.putAll(fallback.getDateTimeOriginals(fallbackFiles));
+    }
+
+    return dates;
+  }
+
+  @Override
+  public ImageInfo getInfo(final File file) throws IOException {
+
+    Header header = read(file, true, false);
+
+    if (header == null || header.width == -1 || header.height == -1) {
+      return fallback.getInfo(file);
+    }
+
+    Date dateTimeOriginal = header.dateTimeOriginal;
+
+    if (dateTimeOriginal == null) {
+      dateTimeOriginal = fallback.getDateTimeOriginal(file);
+    }
+
+    return new ImageInfo(dateTimeOriginal, header.width, header.height);
+  }
+
+  /**
+   * @return the EXIF orientation of the image (1 to 8), 1 (normal) if the
+   *         image does not have it or if it cannot be read
+   */
+  static int getOrientation(final File file) throws IOException {
+
+    Header header = read(file, false, false);
+
+    if (header == null || header.orientation < 1 || header.orientation > 8) {
+      return 1;
+    }
+
+    return header.orientation;
+  }
+
+  /**
+   * @return the PixelXDimension and the PixelYDimension from the EXIF of the
+   *         image, or <code>null</code> if the image does not have them
+   */
+  static Dimension getPixelDimension(final File file) throws IOException {
+
+    Header header = read(file, false, false);
+
+    if (header == null || header.pixelWidth == -1 || header.pixelHeight == -1) {
+      return null;
+    }
+
+    return new Dimension(header.pixelWidth, header.pixelHeight);
+  }
+
+  /**
+   * @return the thumbnail embedded in the EXIF of the image, or
+   *         <code>null</code> if the image does not have one (or if it cannot
+   *         be read)
+   */
+  static Thumbnail getThumbnail(final File file) throws IOException {
+
+    Header header = read(file, true, true);
+
+    if (header == null || header.thumbnail == null || header.width == -1 || header.height == -1) {
+      return null;
+    }
+
+    Header thumbnailHeader;
+
+    try {
+      thumbnailHeader = parseJPEG(ByteBuffer.wrap(header.thumbnail), true, false);
+    } catch (IndexOutOfBoundsException e) {
+      return null;
+    }
+
+    if (thumbnailHeader == null || thumbnailHeader.width < 1 || thumbnailHeader.height < 1) {
+      return null;
+    }
+
+    return new Thumbnail(header.thumbnail, thumbnailHeader.width, thumbnailHeader.height, header.width, header.height, header.formatName);
+  }
+
+  /**
+   * Sets the EXIF orientation of the image to 1 (normal), in place (only the
+   * two bytes of the value are written).
+   * 
+   * @return <code>false</code> if the image does not have the orientation
+   */
+  static boolean resetOrientation(final File file) throws IOException {
+    return setOrientation(file, 1);
+  }
+
+  /**
+   * Sets the EXIF orientation of the image (1 to 8), in place (only the two
+   * bytes of the value are written).
+   * 
+   * @return <code>false</code> if the image does not have the orientation
+   */
+  static boolean setOrientation(final File file, final int orientation) throws IOException {
+
+    if (orientation < 1 || orientation > 8) {
+      throw new IllegalArgumentException("illegal orientation: " + orientation + " (expected a value between 1 and 8)");
+    }
+
+    Header header = read(file, false, false);
+
+    if (header == null || header.orientationPosition == -1) {
+      return false;
+    }
+
+    ByteBuffer value = ByteBuffer.allocate(2).order(header.little ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    value.putShort(0, (short) orientation);
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      while (value.hasRemaining()) {
+        channel.write(value, header.orientationPosition + value.position());
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Sets the DateTimeOriginal of the image in place (only the 19 characters
+   * of the value are written, the rest of the file is left as it is).
+   * 
+   * @return <code>false</code> if the image does not already have the
+   *         DateTimeOriginal, with room for the value (the tag cannot be added
+   *         in place), or if the file may have other hard links (which would
+   *         change too, a new file has to be written instead)
+   */
+  static boolean setDateTimeOriginal(final File file, final Date date) throws IOException {
+
+    if (!isSingleLink(file)) {
+      return false;
+    }
+
+    Header header = read(file, false, false);
+
+    if (header == null || header.dateTimeOriginalPosition == -1) {
+      return false;
+    }
+
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTime(date);
+
+    String text = String.format("%04d:%02d:%02d %02d:%02d:%02d", calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH), calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND));
+
+    if (text.length() != 19) {
+      return false;
+    }
+
+    ByteBuffer value = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      while (value.hasRemaining()) {
+        channel.write(value, header.dateTimeOriginalPosition + value.position());
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return <code>true</code> if the file is known to have a single hard link
+   *         (<code>false</code> if it has more, or if the link count cannot be
+   *         read on this system)
+   */
+  private static boolean isSingleLink(final File file) throws IOException {
+
+    try {
+      return ((Number) Files.getAttribute(file.toPath(), "unix:nlink")).intValue() == 1;
+    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return the header of the image, or <code>null</code> if the image cannot
+   *         be read directly
+   */
+  private static Header read(final File file, final boolean size, final boolean thumbnail) throws IOException {
+
+    // read in a heap buffer, not mapped: a mapping is kept until it is garbage
+    // collected, and on some systems the file cannot be moved or deleted
+    // until then
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+      long fileSize = channel.size();
+
+      if (fileSize < 8 || fileSize > Integer.MAX_VALUE) {
+        return null;
+      }
+
+      try {
+        return parse(read(channel, (int) Math.min(fileSize, HEADER_SIZE)), size, thumbnail);
+      }
+
+      catch (IndexOutOfBoundsException e) {
+
+        if (fileSize <= HEADER_SIZE) {
+          return null;
+        }
+
+        // the header is larger than usual (or corrupted), try again with more
+        // of the file
+        try {
+          return parse(read(channel, (int) Math.min(fileSize, HEADER_SIZE_MAX)), size, thumbnail);
+        } catch (IndexOutOfBoundsException e2) {
+          return null;
+        }
+      }
+    }
+  }
+
+  private static ByteBuffer read(final FileChannel channel, final int length) throws IOException {
+
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+
+    while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) != -1) {
+      // read until the buffer is full (or the end of the file)
+    }
+
+    buffer.flip();
+
+    return buffer;
+  }
+
+  private static Header parse(final ByteBuffer buffer, final boolean size, final boolean thumbnail) {
+
+    if (u8(buffer, 0) == 0xFF && u8(buffer, 1) == 0xD8) {
+      return parseJPEG(buffer, size, thumbnail);
+    }
+
+    if (isTIFF(buffer, 0)) {
+      Header header = new Header();
+      header.formatName = "tiff";
+      parseTIFF(buffer, 0, header, size, thumbnail);
+      return header;
+    }
+
+    return null;
+  }
+
+  private static Header parseJPEG(final ByteBuffer buffer, final boolean size, final boolean thumbnail) {
+
+    Header header = new Header();
+    boolean exif = false;
+
+    int position = 2;
+
+    while (true) {
+
+      if (u8(buffer, position) != 0xFF) {
+        return null;
+      }
+
+      // fill bytes
+      while (u8(buffer, position) == 0xFF) {
+        position++;
+      }
+
+      int marker = u8(buffer, position++);
+
+      // standalone markers
+      if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+        continue;
+      }
+
+      // start of scan, end of image: there is no SOF
+      if (marker == 0xDA || marker == 0xD9) {
+        return size ? null : header;
+      }
+
+      int length = u16(buffer, position, false);
+
+      // APP1, EXIF (the first one, a second one would be XMP)
+      if (marker == 0xE1 && !exif && length >= 16 && u8(buffer, position + 2) == 'E' && u8(buffer, position + 3) == 'x' && u8(buffer, position + 4) == 'i' && u8(buffer, position + 5) == 'f' && u8(buffer, position + 6) == 0) {
+
+        if (!isTIFF(buffer, position + 8)) {
+          return null;
+        }
+
+        parseTIFF(buffer, position + 8, header, false, thumbnail);
+        header.tiff = position + 8;
+        header.tiffEnd = position + length;
+        exif = true;
+      }
+
+      // SOF (all but DHT, JPG and DAC, which share the range)
+      else if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+
+        if (size) {
+          header.height = u16(buffer, position + 3, false);
+          header.width = u16(buffer, position + 5, false);
+        }
+
+        // the metadata comes before the frame
+        return header;
+      }
+
+      position += length;
+    }
+  }
+
+  private static void parseTIFF(final ByteBuffer buffer, final int tiff, final Header header, final boolean size, final boolean thumbnail) {
+
+    boolean little = u8(buffer, tiff) == 'I';
+    header.little = little;
+
+    int ifd0 = tiff + offset(buffer, tiff + 4, little);
+    int ifd0Count = u16(buffer, ifd0, little);
+    int exifIFD = -1;
+
+    int width = -1;
+    int height = -1;
+    boolean mainImage = true;
+
+    for (int i = 0; i < ifd0Count; i++) {
+
+      int entry = ifd0 + 2 + i * 12;
+      int tag = u16(buffer, entry, little);
+
+      if (tag == TAG_EXIF_IFD) {
+        exifIFD = tiff + offset(buffer, entry + 8, little);
+      }
+
+      else if (tag == TAG_ORIENTATION && u16(buffer, entry + 2, little) == TYPE_SHORT) {
+        header.orientation = u16(buffer, entry + 8, little);
+        header.orientationPosition = entry + 8;
+      }
+
+      else if (size && tag == TAG_NEW_SUBFILE_TYPE) {
+        mainImage = u32(buffer, entry + 8, little) == 0;
+      }
+
+      else if (size && (tag == TAG_IMAGE_WIDTH || tag == TAG_IMAGE_LENGTH)) {
+
+        int type = u16(buffer, entry + 2, little);
+        int value = type == TYPE_SHORT ? u16(buffer, entry + 8, little) : type == TYPE_LONG ? offset(buffer, entry + 8, little) : -1;
+
+        if (tag == TAG_IMAGE_WIDTH) {
+          width = value;
+        } else {
+          height = value;
+        }
+      }
+    }
+
+    // the IFD0 of raw images usually holds a preview
+    if (mainImage) {
+      header.width = width;
+      header.height = height;
+    }
+
+    if (thumbnail) {
+      try {
+        parseThumbnail(buffer, tiff, ifd0 + 2 + ifd0Count * 12, header, little);
+      } catch (IndexOutOfBoundsException e) {
+        // no (usable) thumbnail, the rest of the header is still good
+      }
+    }
+
+    if (exifIFD == -1) {
+      return;
+    }
+
+    for (int i = 0, count = u16(buffer, exifIFD, little); i < count; i++) {
+
+      int entry = exifIFD + 2 + i * 12;
+
+      int tag = u16(buffer, entry, little);
+
+      if (tag == TAG_DATE_TIME_ORIGINAL) {
+
+        if (u16(buffer, entry + 2, little) == TYPE_ASCII && u32(buffer, entry + 4, little) >= 19) {
+
+          int position = tiff + offset(buffer, entry + 8, little);
+
+          header.dateTimeOriginal = parseDate(buffer, position);
+
+          // the whole value has to be in the file to be written in place
+          buffer.get(position + 18);
+          header.dateTimeOriginalPosition = position;
+        }
+      }
+
+      else if (tag == TAG_PIXEL_X_DIMENSION) {
+        header.pixelWidth = getShortOrLong(buffer, entry, little);
+      }
+
+      else if (tag == TAG_PIXEL_Y_DIMENSION) {
+        header.pixelHeight = getShortOrLong(buffer, entry, little);
+      }
+    }
+  }
+
+  /**
+   * Updates, in place, the EXIF (the TIFF structure at the specified position
+   * of the buffer) of an image that was resized or rotated: the
+   * PixelXDimension and the PixelYDimension are set to the new size, and the
+   * thumbnail (IFD1), which still shows the old image, is unlinked.
+   * 
+   * @return the position the EXIF can be cut at (the start of the thumbnail,
+   *         when nothing else comes after it), or the limit of the buffer
+   * 
+   * @throws IndexOutOfBoundsException
+   *           if the EXIF is corrupted (the buffer may be partially updated)
+   */
+  static int updateExif(final ByteBuffer buffer, final int tiff, final int width, final int height) {
+
+    boolean little = u8(buffer, tiff) == 'I';
+
+    int ifd0 = tiff + offset(buffer, tiff + 4, little);
+    int ifd0Count = u16(buffer, ifd0, little);
+
+    // where the data still used ends
+    int end = getEnd(buffer, tiff, ifd0, little);
+
+    for (int i = 0; i < ifd0Count; i++) {
+
+      int entry = ifd0 + 2 + i * 12;
+      int tag = u16(buffer, entry, little);
+
+      if (tag == TAG_GPS_IFD) {
+        end = Math.max(end, getEnd(buffer, tiff, tiff + offset(buffer, entry + 8, little), little));
+      }
+
+      else if (tag == TAG_EXIF_IFD) {
+
+        int exifIFD = tiff + offset(buffer, entry + 8, little);
+        end = Math.max(end, getEnd(buffer, tiff, exifIFD, little));
+
+        for (int j = 0, count = u16(buffer, exifIFD, little); j < count; j++) {
+
+          int exifEntry = exifIFD + 2 + j * 12;
+          int exifTag = u16(buffer, exifEntry, little);
+
+          if (exifTag == TAG_PIXEL_X_DIMENSION) {
+            setShortOrLong(buffer, exifEntry, width, little);
+          } else if (exifTag == TAG_PIXEL_Y_DIMENSION) {
+            setShortOrLong(buffer, exifEntry, height, little);
+          } else if (exifTag == TAG_INTEROPERABILITY_IFD) {
+            end = Math.max(end, getEnd(buffer, tiff, tiff + offset(buffer, exifEntry + 8, little), little));
+          }
+        }
+      }
+    }
+
+    int ifd0Next = ifd0 + 2 + ifd0Count * 12;
+    int ifd1Offset = offset(buffer, ifd0Next, little);
+
+    if (ifd1Offset == 0) {
+      return buffer.limit();
+    }
+
+    int ifd1 = tiff + ifd1Offset;
+    int thumbnailOffset = -1;
+
+    for (int i = 0, count = u16(buffer, ifd1, little); i < count; i++) {
+
+      int entry = ifd1 + 2 + i * 12;
+
+      if (u16(buffer, entry, little) == TAG_JPEG_INTERCHANGE_FORMAT) {
+        thumbnailOffset = tiff + offset(buffer, entry + 8, little);
+      }
+    }
+
+    put32(buffer, ifd0Next, 0, little);
+
+    if (thumbnailOffset >= end && thumbnailOffset < buffer.limit()) {
+      return thumbnailOffset;
+    }
+
+    return buffer.limit();
+  }
+
+  /**
+   * Updates, in place, the EXIF of a JPEG image that was transformed, for its
+   * current size (see {@link #updateExif(ByteBuffer, int, int, int)}; the
+   * unlinked thumbnail is left in the file).
+   * 
+   * @return <code>false</code> if the image does not have EXIF (or if it
+   *         cannot be updated)
+   */
+  static boolean updateExif(final File file) throws IOException {
+
+    Header header = read(file, true, false);
+
+    if (header == null || header.tiff == -1 || header.width == -1 || header.height == -1) {
+      return false;
+    }
+
+    ByteBuffer buffer;
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+      buffer = read(channel, header.tiffEnd);
+
+      try {
+        updateExif(buffer, header.tiff, header.width, header.height);
+      } catch (IndexOutOfBoundsException e) {
+        return false;
+      }
+
+      buffer.position(header.tiff);
+
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, buffer.position());
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return the end of an IFD, including the values stored outside of it (or
+   *         the limit of the buffer, if there are values of unknown types)
+   */
+  private static int getEnd(final ByteBuffer buffer, final int tiff, final int ifd, final boolean little) {
+
+    int count = u16(buffer, ifd, little);
+    long end = ifd + 2 + count * 12 + 4;
+
+    for (int i = 0; i < count; i++) {
+
+      int entry = ifd + 2 + i * 12;
+      int type = u16(buffer, entry + 2, little);
+
+      if (type >= TYPE_SIZES.length || TYPE_SIZES[type] == 0) {
+        return buffer.limit();
+      }
+
+      long length = TYPE_SIZES[type] * u32(buffer, entry + 4, little);
+
+      if (length > 4) {
+        end = Math.max(end, tiff + offset(buffer, entry + 8, little) + length);
+      }
+    }
+
+    return (int) Math.min(end, buffer.limit());
+  }
+
+  private static int getShortOrLong(final ByteBuffer buffer, final int entry, final boolean little) {
+    int type = u16(buffer, entry + 2, little);
+    return type == TYPE_SHORT ? u16(buffer, entry + 8, little) : type == TYPE_LONG ? offset(buffer, entry + 8, little) : -1;
+  }
+
+  private static void setShortOrLong(final ByteBuffer buffer, final int entry, final int value, final boolean little) {
+
+    int type = u16(buffer, entry + 2, little);
+
+    if (type == TYPE_SHORT && value <= 0xFFFF) {
+      put16(buffer, entry + 8, value, little);
+    } else if (type == TYPE_LONG) {
+      put32(buffer, entry + 8, value, little);
+    }
+  }
+
+  /**
+   * Copies the JPEG thumbnail of IFD1 (the next IFD after IFD0), if any.
+   */
+  private static void parseThumbnail(final ByteBuffer buffer, final int tiff, final int ifd0Next, final Header header, final boolean little) {
+
+    int ifd1Offset = offset(buffer, ifd0Next, little);
+
+    if (ifd1Offset == 0) {
+      return;
+    }
+
+    int ifd1 = tiff + ifd1Offset;
+    int thumbnailOffset = -1;
+    int thumbnailLength = -1;
+
+    for (int i = 0, count = u16(buffer, ifd1, little); i < count; i++) {
+
+      int entry = ifd1 + 2 + i * 12;
+      int tag = u16(buffer, entry, little);
+
+      if (tag == TAG_JPEG_INTERCHANGE_FORMAT) {
+        thumbnailOffset = tiff + offset(buffer, entry + 8, little);
+      } else if (tag == TAG_JPEG_INTERCHANGE_FORMAT_LENGTH) {
+        thumbnailLength = offset(buffer, entry + 8, little);
+      }
+    }
+
+    if (thumbnailOffset == -1 || thumbnailLength < 4 || u8(buffer, thumbnailOffset) != 0xFF || u8(buffer, thumbnailOffset + 1) != 0xD8) {
+      return;
+    }
+
+    byte[] bytes = new byte[thumbnailLength];
+
+    for (int i = 0; i < thumbnailLength; i++) {
+      bytes[i] = buffer.get(thumbnailOffset + i);
+    }
+
+    header.thumbnail = bytes;
+  }
+
+  /**
+   * Parses a "yyyy:MM:dd HH:mm:ss" date in place.
+   * 
+   * @return the date, or <code>null</code> if it is blank or not valid
+   */
+  private static Date parseDate(final ByteBuffer buffer, final int position) {
+
+    int year = digits(buffer, position, 4);
+    int month = digits(buffer, position + 5, 2);
+    int day = digits(buffer, position + 8, 2);
+    int hour = digits(buffer, position + 11, 2);
+    int minute = digits(buffer, position + 14, 2);
+    int second = digits(buffer, position + 17, 2);
+
+    if (year <= 0 || month <= 0 || day <= 0 || hour == -1 || minute == -1 || second == -1) {
+      return null;
+    }
+
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set(year, month - 1, day, hour, minute, second);
+
+    return calendar.getTime();
+  }
+
+  private static int digits(final ByteBuffer buffer, final int position, final int count) {
+
+    int value = 0;
+
+    for (int i = 0; i < count; i++) {
+
+      int c = u8(buffer, position + i);
+
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+
+      value = value * 10 + (c - '0');
+    }
+
+    return value;
+  }
+
+  private static boolean isTIFF(final ByteBuffer buffer, final int position) {
+    int b0 = u8(buffer, position);
+    int b1 = u8(buffer, position + 1);
+    return (b0 == 'I' && b1 == 'I' && u16(buffer, position + 2, true) == 42) || (b0 == 'M' && b1 == 'M' && u16(buffer, position + 2, false) == 42);
+  }
+
+  private static int u8(final ByteBuffer buffer, final int position) {
+    return buffer.get(position) & 0xFF;
+  }
+
+  private static void put16(final ByteBuffer buffer, final int position, final int value, final boolean little) {
+    buffer.put(position + (little ? 0 : 1), (byte) value);
+    buffer.put(position + (little ? 1 : 0), (byte) (value >> 8));
+  }
+
+  private static void put32(final ByteBuffer buffer, final int position, final int value, final boolean little) {
+    put16(buffer, position + (little ? 0 : 2), value, little);
+    put16(buffer, position + (little ? 2 : 0), value >>> 16, little);
+  }
+
+  private static int u16(final ByteBuffer buffer, final int position, final boolean little) {
+    int b0 = u8(buffer, position);
+    int b1 = u8(buffer, position + 1);
+    return little ? (b1 << 8) | b0 : (b0 << 8) | b1;
+  }
+
+  private static long u32(final ByteBuffer buffer, final int position, final boolean little) {
+    long h = u16(buffer, position, little);
+    long l = u16(buffer, position + 2, little);
+    return little ? (l << 16) | h : (h << 16) | l;
+  }
+
+  /**
+   * @return a 32 bits offset (or value), as a non negative <code>int</code>
+   */
+  private static int offset(final ByteBuffer buffer, final int position, final boolean little) {
+
+    long value = u32(buffer, position, little);
+
+    if (value > Integer.MAX_VALUE) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return (int) value;
+  }
+
+  /**
+   * The few fields read from the header of an image.
+   */
+  private static final class Header {
+    private Date dateTimeOriginal;
+    private int dateTimeOriginalPosition = -1;
+    private int width = -1;
+    private int height = -1;
+    private int orientation = 1;
+    private int orientationPosition = -1;
+    private int pixelWidth = -1;
+    private int pixelHeight = -1;
+    private boolean little;
+    private String formatName = "jpeg";
+    /** the start and the end of the EXIF TIFF structure, in a JPEG */
+    private int tiff = -1;
+    private int tiffEnd = -1;
+    private byte[] thumbnail;
+  }
+
+  /**
+   * The (JPEG) thumbnail embedded in the EXIF of an image.
+   */
+  static final class Thumbnail {
+
+    private final byte[] bytes;
+    private final int width;
+    private final int height;
+    private final int imageWidth;
+    private final int imageHeight;
+    private final String imageFormatName;
+
+    private Thumbnail(final byte[] bytes, final int width, final int height, final int imageWidth, final int imageHeight, final String imageFormatName) {
+      this.bytes = bytes;
+      this.width = width;
+      this.height = height;
+      this.imageWidth = imageWidth;
+      this.imageHeight = imageHeight;
+      this.imageFormatName = imageFormatName;
+    }
+
+    /**
+     * @return the encoded thumbnail (a JPEG image)
+     */
+    byte[] getBytes() {
+      return bytes;
+    }
+
+    int getWidth() {
+      return width;
+    }
+
+    int getHeight() {
+      return height;
+    }
+
+    /**
+     * @return the width of the image the thumbnail is of
+     */
+    int getImageWidth() {
+      return imageWidth;
+    }
+
+    /**
+     * @return the height of the image the thumbnail is of
+     */
+    int getImageHeight() {
+      return imageHeight;
+    }
+
+    /**
+     * @return the format of the image the thumbnail is of ("jpeg" or "tiff")
+     */
+    String getImageFormatName() {
+      return imageFormatName;
+    }
+  }
+
+}
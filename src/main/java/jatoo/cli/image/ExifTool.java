@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A long-lived exiftool process, started in "-stay_open" mode, that executes
+ * commands sent through its standard input.
+ * <p>
+ * Every command is numbered ("-executeNUM") and its output ends with the
+ * matching "{readyNUM}" line. The standard error is drained on its own
+ * thread, so the warnings and errors never mix with the output of a command.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ExifTool implements Closeable {
+
+  /** The system property that can be used to specify the exiftool executable. */
+  static final String PROPERTY_EXECUTABLE = "jatoo.cli.image.exiftool";
+
+  private final Process process;
+  private final BufferedWriter writer;
+  private final BufferedReader reader;
+
+  /** the number of the last command */
+  private int executions;
+
+  ExifTool() throws IOException {
+
+    process = new ProcessBuilder(System.getProperty(PROPERTY_EXECUTABLE, "exiftool"), "-stay_open", "True", "-@", "-").start();
+
+    writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+    reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+
+    final BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8));
+
+    Thread errorDrainer = new Thread("exiftool-stderr") {
+      @Override
+      public void run() {
+        try {
+          while (errorReader.readLine() != null) {
+            // dropped, the commands are checked by their output
+          }
+        } catch (IOException e) {
+          // the process ended
+        }
+      }
+    };
+
+    errorDrainer.setDaemon(true);
+    errorDrainer.start();
+  }
+
+  /**
+   * Executes a command (one argument per element) and returns the output
+   * lines (the standard output only).
+   * 
+   * @throws IllegalArgumentException
+   *           if an argument contains a line break (the arguments are sent one
+   *           per line), in which case nothing is sent to the process
+   */
+  synchronized List<String> execute(final List<String> args) throws IOException {
+
+    for (String arg : args) {
+      if (arg.indexOf('\n') != -1 || arg.indexOf('\r') != -1) {
+        throw new IllegalArgumentException("exiftool arguments cannot contain line breaks: " + arg);
+      }
+    }
+
+    String ready = "{ready" + (++executions) + "}";
+
+    writer.write("-charset");
+    writer.newLine();
+    writer.write("filename=utf8");
+    writer.newLine();
+
+    for (String arg : args) {
+      writer.write(arg);
+      writer.newLine();
+    }
+
+    writer.write("-execute" + executions);
+    writer.newLine();
+    writer.flush();
+
+    List<String> lines = new ArrayList<>();
+
+    while (true) {
+
+      String line = reader.readLine();
+
+      if (line == null) {
+        throw new EOFException("exiftool process ended unexpectedly");
+      }
+
+      if (line.equals(ready)) {
+        break;
+      }
+
+      lines.add(line);
+    }
+
+    return lines;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+
+    try {
+      writer.write("-stay_open");
+      writer.newLine();
+      writer.write("False");
+      writer.newLine();
+      writer.flush();
+    }
+
+    finally {
+      process.destroy();
+    }
+  }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * The image readers and writers, kept in a pool for every thread: the image
+ * plugins are looked up (and the readers and writers, with their native
+ * state, are created) only once per thread and format, not for every image.
+ * <p>
+ * The pooled readers are tried first (by asking their providers if they can
+ * decode the stream) and only if none of them can, all the plugins are
+ * queried, as {@link ImageIO} does every time. The readers taken from the
+ * pool have to be given back with {@link #release(ImageReader)} (not
+ * disposed).
+ * <p>
+ * The pools are static, one for every thread, whatever the instance: they last
+ * as long as the thread, so a thread that ends (a worker of a batch, a
+ * connection of the server) has to dispose its pool first, with
+ * {@link #dispose()}, or the native state of the readers and writers is kept
+ * until they are finalized.
+ * <p>
+ * An instance also holds the parameters the JPEG images are encoded with:
+ * the quality, the progressive mode and the optimized Huffman tables.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ImageCodecs {
+
+  private static final ThreadLocal<List<ImageReader>> READERS = new ThreadLocal<List<ImageReader>>() {
+    @Override
+    protected List<ImageReader> initialValue() {
+      return new ArrayList<>();
+    }
+  };
+
+  private static final ThreadLocal<Map<String, ImageWriter>> WRITERS = new ThreadLocal<Map<String, ImageWriter>>() {
+    @Override
+    protected Map<String, ImageWriter> initialValue() {
+      return new HashMap<>();
+    }
+  };
+
+  /** the suffixes there are writers for (or not) */
+  private static final ConcurrentMap<String, Boolean> SUFFIXES = new ConcurrentHashMap<>();
+
+  private final float quality;
+  private final boolean progressive;
+  private final boolean optimizeHuffman;
+
+  /**
+   * The default encoding (the defaults of the JPEG writer).
+   */
+  ImageCodecs() {
+    this(-1, false, false);
+  }
+
+  /**
+   * @param quality
+   *          the quality of the JPEG images, from 0 to 1, or -1 for the
+   *          default quality of the writer (0.75)
+   * @param progressive
+   *          <code>true</code> to write progressive JPEG images
+   * @param optimizeHuffman
+   *          <code>true</code> to compute optimized Huffman tables for every
+   *          JPEG image (smaller files, a slower encoding)
+   */
+  ImageCodecs(final float quality, final boolean progressive, final boolean optimizeHuffman) {
+
+    if (quality != -1 && (quality < 0 || quality > 1)) {
+      throw new IllegalArgumentException("illegal quality: " + quality + " (expected a value between 0 and 1)");
+    }
+
+    this.quality = quality;
+    this.progressive = progressive;
+    this.optimizeHuffman = optimizeHuffman;
+  }
+
+  /**
+   * @return the encoding parameters that differ from the defaults (empty if
+   *         none)
+   */
+  @Override
+  public String toString() {
+
+    StringBuilder text = new StringBuilder();
+
+    if (quality != -1) {
+      text.append("quality=").append(quality);
+    }
+
+    if (progressive) {
+      text.append(text.length() > 0 ? " " : "").append("progressive");
+    }
+
+    if (optimizeHuffman) {
+      text.append(text.length() > 0 ? " " : "").append("optimizeHuffman");
+    }
+
+    return text.toString();
+  }
+
+  /**
+   * Encodes the image with a pooled writer.
+   */
+  void write(final BufferedImage image, final String formatName, final ImageOutputStream stream) throws IOException {
+
+    Map<String, ImageWriter> writers = WRITERS.get();
+    String key = formatName.toLowerCase(Locale.ENGLISH);
+
+    ImageWriter writer = writers.remove(key);
+
+    if (writer == null) {
+
+      Iterator<ImageWriter> iterator = ImageIO.getImageWritersByFormatName(formatName);
+
+      if (!iterator.hasNext()) {
+        throw new IOException("no image writer found for format: " + formatName);
+      }
+
+      writer = iterator.next();
+    }
+
+    try {
+
+      if (writer.getOriginatingProvider() != null && !writer.getOriginatingProvider().canEncodeImage(image)) {
+        throw new IOException("the image cannot be encoded as: " + formatName);
+      }
+
+      writer.setOutput(stream);
+      writer.write(null, new IIOImage(image, null, null), getWriteParam(writer, formatName));
+    }
+
+    finally {
+      writer.reset();
+      writers.put(key, writer);
+    }
+  }
+
+  private ImageWriteParam getWriteParam(final ImageWriter writer, final String formatName) {
+
+    ImageWriteParam param = writer.getDefaultWriteParam();
+
+    if (!ImageResizer.isJPEG(formatName)) {
+      return param;
+    }
+
+    if (quality != -1) {
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(quality);
+    }
+
+    if (progressive) {
+      param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+    }
+
+    if (optimizeHuffman && param instanceof JPEGImageWriteParam) {
+      ((JPEGImageWriteParam) param).setOptimizeHuffmanTables(true);
+    }
+
+    return param;
+  }
+
+  /**
+   * @return a reader for the image in the stream, from the pool of the
+   *         current thread if there is one that can decode it, to be given
+   *         back with {@link #release(ImageReader)}
+   */
+  static ImageReader getReader(final ImageInputStream stream, final Object source) throws IOException {
+
+    List<ImageReader> readers = READERS.get();
+
+    for (int i = 0; i < readers.size(); i++) {
+
+      ImageReaderSpi provider = readers.get(i).getOriginatingProvider();
+
+      if (provider != null && provider.canDecodeInput(stream)) {
+        return readers.remove(i);
+      }
+    }
+
+    Iterator<ImageReader> iterator = ImageIO.getImageReaders(stream);
+
+    if (!iterator.hasNext()) {
+      throw new IOException("no image reader found for: " + source);
+    }
+
+    return iterator.next();
+  }
+
+  /**
+   * Gives a reader back to the pool of the current thread (instead of
+   * disposing it).
+   */
+  static void release(final ImageReader reader) {
+
+    reader.reset();
+
+    // the last used first, as it is the most likely to be needed again
+    READERS.get().add(0, reader);
+  }
+
+  /**
+   * Disposes the readers and writers pooled by the current thread (to be
+   * called by a thread before it ends). The pool is empty afterwards, so the
+   * thread can still read and write images.
+   */
+  static void dispose() {
+
+    for (ImageReader reader : READERS.get()) {
+      reader.dispose();
+    }
+
+    for (ImageWriter writer : WRITERS.get().values()) {
+      writer.dispose();
+    }
+
+    READERS.remove();
+    WRITERS.remove();
+  }
+
+  /**
+   * @return <code>true</code> if there is a writer for the images with the
+   *         specified suffix
+   */
+  static boolean hasWriter(final String suffix) {
+
+    Boolean writer = SUFFIXES.get(suffix);
+
+    if (writer == null) {
+      writer = ImageIO.getImageWritersBySuffix(suffix).hasNext();
+      SUFFIXES.put(suffix, writer);
+    }
+
+    return writer;
+  }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import jatoo.image.ImageFileFilter;
+
+/**
+ * Walks the images of a folder (and optionally of all its sub-folders) as the
+ * entries are read from the file system, without listing whole folders in
+ * memory first.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * try (ImageFileWalker walker = new ImageFileWalker(folder, recursive)) {
+ *   for (File file = walker.next(); file != null; file = walker.next()) {
+ *     ...
+ *   }
+ * }
+ * </pre>
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ImageFileWalker implements Closeable {
+
+  private final Path root;
+  private final boolean recursive;
+
+  private final Deque<DirectoryStream<Path>> streams = new ArrayDeque<>();
+  private final Deque<Iterator<Path>> iterators = new ArrayDeque<>();
+
+  ImageFileWalker(final File folder, final boolean recursive) throws IOException {
+
+    this.root = folder.toPath();
+    this.recursive = recursive;
+
+    open(root);
+  }
+
+  /**
+   * @return the next image, or <code>null</code> if there are no more images
+   */
+  File next() throws IOException {
+
+    try {
+
+      while (!iterators.isEmpty()) {
+
+        Iterator<Path> iterator = iterators.peek();
+
+        if (!iterator.hasNext()) {
+          iterators.pop();
+          streams.pop().close();
+          continue;
+        }
+
+        Path path = iterator.next();
+
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+          if (recursive) {
+            open(path);
+          }
+          continue;
+        }
+
+        File file = path.toFile();
+
+        if (ImageFileFilter.getInstance().accept(file)) {
+          return file;
+        }
+      }
+    }
+
+    catch (DirectoryIteratorException e) {
+      throw e.getCause();
+    }
+
+    return null;
+  }
+
+  /**
+   * @return the path of the file relative to the walked folder
+   */
+  String relativize(final File file) {
+    return root.relativize(file.toPath()).toString();
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    while (!streams.isEmpty()) {
+      streams.pop().close();
+    }
+
+    iterators.clear();
+  }
+
+  private void open(final Path folder) throws IOException {
+
+    DirectoryStream<Path> stream = Files.newDirectoryStream(folder);
+
+    streams.push(stream);
+    iterators.push(stream.iterator());
+  }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.util.Date;
+
+/**
+ * The metadata fields the "image" command works with.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ImageInfo {
+
+  private final Date dateTimeOriginal;
+  private final int imageWidth;
+  private final int imageHeight;
+
+  ImageInfo(final Date dateTimeOriginal, final int imageWidth, final int imageHeight) {
+    this.dateTimeOriginal = dateTimeOriginal;
+    this.imageWidth = imageWidth;
+    this.imageHeight = imageHeight;
+  }
+
+  Date getDateTimeOriginal() {
+    return dateTimeOriginal;
+  }
+
+  int getImageWidth() {
+    return imageWidth;
+  }
+
+  int getImageHeight() {
+    return imageHeight;
+  }
+
+}
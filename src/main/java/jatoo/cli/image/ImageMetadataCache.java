@@ -0,0 +1,357 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent cache in front of another {@link ImageMetadataReader}, that
+ * keeps the DateTimeOriginal, ImageWidth and ImageHeight of the images, keyed
+ * by path, size and last modified time (so an entry is ignored as soon as its
+ * file changes).
+ * <p>
+ * There is an index file in the cache folder for every folder with images
+ * (named after the hash of the folder path). The indexes are loaded when
+ * first needed and only a few of them are kept in memory at a time.
+ * <p>
+ * The DateTimeOriginal is kept as it is in EXIF ("yyyy:MM:dd HH:mm:ss",
+ * without a time zone), so the cached dates stay the same as the ones read
+ * from the images when the default time zone changes.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ImageMetadataCache implements ImageMetadataReader, Closeable {
+
+  private static final int MAX_LOADED_INDEXES = 16;
+
+  private static final String NONE = "-";
+  private static final String DATE_PATTERN = "yyyy:MM:dd HH:mm:ss";
+  private static final String UNKNOWN = "?";
+  private static final int UNKNOWN_SIZE = Integer.MIN_VALUE;
+
+  /**
+   * @return the default cache folder, in the user home
+   */
+  static File getDefaultFolder() {
+    return new File(System.getProperty("user.home"), ".jatoo" + File.separator + "cli-image" + File.separator + "metadata-cache");
+  }
+
+  private final File folder;
+  private final ImageMetadataReader reader;
+
+  private IOException saveException;
+
+  /** the loaded indexes, the least recently used first */
+  private final Map<File, Index> indexes = new LinkedHashMap<File, Index>(MAX_LOADED_INDEXES * 2, 0.75f, true) {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<File, Index> eldest) {
+
+      if (size() > MAX_LOADED_INDEXES) {
+        save(eldest.getValue());
+        return true;
+      }
+
+      return false;
+    }
+  };
+
+  ImageMetadataCache(final File folder, final ImageMetadataReader reader) throws IOException {
+
+    this.folder = folder;
+    this.reader = reader;
+
+    Files.createDirectories(folder.toPath());
+  }
+
+  @Override
+  public Date getDateTimeOriginal(final File file) throws IOException {
+
+    Entry entry = get(file);
+
+    if (entry != null) {
+      return entry.getDateTimeOriginal();
+    }
+
+    Date date = reader.getDateTimeOriginal(file);
+    put(file, new Entry(file, date, UNKNOWN_SIZE, UNKNOWN_SIZE));
+
+    return date;
+  }
+
+  @Override
+  public Map<File, Date> getDateTimeOriginals(final List<File> files) throws IOException {
+
+    Map<File, Date> dates = new HashMap<>(files.size() * 2);
+    List<File> missingFiles = new ArrayList<>();
+
+    for (File file : files) {
+
+      Entry entry = get(file);
+
+      if (entry != null) {
+        dates.put(file, entry.getDateTimeOriginal());
+      } else {
+        missingFiles.add(file);
+      }
+    }
+
+    if (!missingFiles.isEmpty()) {
+
+      Map<File, Date> missingDates = reader.getDateTimeOriginals(missingFiles);
+
+      for (File file : missingFiles) {
+        Date date = missingDates.get(file);
+        dates.put(file, date);
+        put(file, new Entry(file, date, UNKNOWN_SIZE, UNKNOWN_SIZE));
+      }
+    }
+
+    return dates;
+  }
+
+  @Override
+  public ImageInfo getInfo(final File file) throws IOException {
+
+    Entry entry = get(file);
+
+    if (entry != null && entry.width != UNKNOWN_SIZE) {
+      return new ImageInfo(entry.getDateTimeOriginal(), entry.width, entry.height);
+    }
+
+    ImageInfo info = reader.getInfo(file);
+    put(file, new Entry(file, info.getDateTimeOriginal(), info.getImageWidth(), info.getImageHeight()));
+
+    return info;
+  }
+
+  /**
+   * Writes the changed indexes.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+
+    for (Iterator<Index> i = indexes.values().iterator(); i.hasNext();) {
+      save(i.next());
+      i.remove();
+    }
+
+    if (saveException != null) {
+      IOException e = saveException;
+      saveException = null;
+      throw e;
+    }
+  }
+
+  private synchronized Entry get(final File file) throws IOException {
+
+    Entry entry = getIndex(file).entries.get(file.getName());
+
+    if (entry == null || entry.size != file.length() || entry.lastModified != file.lastModified()) {
+      return null;
+    }
+
+    return entry;
+  }
+
+  private synchronized void put(final File file, final Entry entry) throws IOException {
+
+    Index index = getIndex(file);
+
+    index.entries.put(file.getName(), entry);
+    index.changed = true;
+  }
+
+  private Index getIndex(final File file) throws IOException {
+
+    File imagesFolder = file.getAbsoluteFile().getParentFile();
+    Index index = indexes.get(imagesFolder);
+
+    if (index == null) {
+      index = load(imagesFolder);
+      indexes.put(imagesFolder, index);
+    }
+
+    return index;
+  }
+
+  private Index load(final File imagesFolder) throws IOException {
+
+    Index index = new Index(new File(folder, hash(imagesFolder.getPath()) + ".index"));
+
+    if (index.file.isFile()) {
+
+      try (BufferedReader reader = Files.newBufferedReader(index.file.toPath(), StandardCharsets.UTF_8)) {
+
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+
+          String[] values = line.split("\t");
+
+          // the entries with the date as epoch millis (written before) are
+          // dropped, and read again
+
+          if (values.length == 6 && (values[3].equals(NONE) || values[3].length() == DATE_PATTERN.length())) {
+            index.entries.put(values[0], new Entry(Long.parseLong(values[1]), Long.parseLong(values[2]), values[3].equals(NONE) ? null : values[3], parseSize(values[4]), parseSize(values[5])));
+          }
+        }
+      }
+    }
+
+    return index;
+  }
+
+  /**
+   * Writes the index (if changed). The errors are kept and thrown by
+   * {@link #close()}, since this is also called when an index is evicted.
+   */
+  private void save(final Index index) {
+
+    if (!index.changed) {
+      return;
+    }
+
+    File tmpFile = new File(index.file.getPath() + ".tmp");
+
+    try {
+
+      try (BufferedWriter writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+
+        for (Map.Entry<String, Entry> entry : index.entries.entrySet()) {
+          writer.write(entry.getKey());
+          writer.write('\t');
+          writer.write(Long.toString(entry.getValue().size));
+          writer.write('\t');
+          writer.write(Long.toString(entry.getValue().lastModified));
+          writer.write('\t');
+          writer.write(entry.getValue().dateTimeOriginal == null ? NONE : entry.getValue().dateTimeOriginal);
+          writer.write('\t');
+          writer.write(entry.getValue().width == UNKNOWN_SIZE ? UNKNOWN : Integer.toString(entry.getValue().width));
+          writer.write('\t');
+          writer.write(entry.getValue().height == UNKNOWN_SIZE ? UNKNOWN : Integer.toString(entry.getValue().height));
+          writer.newLine();
+        }
+      }
+
+      Files.move(tmpFile.toPath(), index.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+      index.changed = false;
+    }
+
+    catch (IOException e) {
+      if (saveException == null) {
+        saveException = e;
+      }
+    }
+  }
+
+  private static int parseSize(final String text) {
+    return text.equals(UNKNOWN) ? UNKNOWN_SIZE : Integer.parseInt(text);
+  }
+
+  private static String hash(final String text) throws IOException {
+
+    MessageDigest digest;
+
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+
+    StringBuilder hash = new StringBuilder();
+
+    for (byte b : digest.digest(text.getBytes(StandardCharsets.UTF_8))) {
+      hash.append(String.format("%02x", b));
+    }
+
+    return hash.toString();
+  }
+
+  private static final class Index {
+
+    private final File file;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private boolean changed;
+
+    private Index(final File file) {
+      this.file = file;
+    }
+  }
+
+  private static final class Entry {
+
+    private final long size;
+    private final long lastModified;
+
+    /** as in EXIF, without a time zone */
+    private final String dateTimeOriginal;
+    private final int width;
+    private final int height;
+
+    private Entry(final long size, final long lastModified, final String dateTimeOriginal, final int width, final int height) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.dateTimeOriginal = dateTimeOriginal;
+      this.width = width;
+      this.height = height;
+    }
+
+    private Entry(final File file, final Date dateTimeOriginal, final int width, final int height) {
+      this(file.length(), file.lastModified(), dateTimeOriginal == null ? null : new SimpleDateFormat(DATE_PATTERN).format(dateTimeOriginal), width, height);
+    }
+
+    private Date getDateTimeOriginal() throws IOException {
+
+      if (dateTimeOriginal == null) {
+        return null;
+      }
+
+      try {
+        return new SimpleDateFormat(DATE_PATTERN).parse(dateTimeOriginal);
+      }
+
+      catch (ParseException e) {
+        throw new IOException("invalid cached DateTimeOriginal: " + dateTimeOriginal, e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the metadata fields the "image" command works with.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+interface ImageMetadataReader {
+
+  /**
+   * @return the DateTimeOriginal of the image, or <code>null</code> if the
+   *         image does not have it
+   */
+  Date getDateTimeOriginal(File file) throws IOException;
+
+  /**
+   * Reads the DateTimeOriginal of many images at once.
+   * 
+   * @return a map with the files and their DateTimeOriginal (<code>null</code>
+   *         for the files without it)
+   */
+  Map<File, Date> getDateTimeOriginals(List<File> files) throws IOException;
+
+  ImageInfo getInfo(File file) throws IOException;
+
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jatoo.image.ImageMetadata;
+import jatoo.image.ImageMetadataHandler;
+
+/**
+ * Metadata access for the "image" command, backed by a small pool of
+ * long-lived exiftool processes (see {@link ExifTool}), so a batch pays the
+ * exiftool startup only once per process instead of once per file.
+ * <p>
+ * If exiftool cannot be started the calls are delegated to
+ * {@link ImageMetadataHandler}.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ImageMetadataSession implements ImageMetadataReader {
+
+  private static final String DATE_PATTERN = "yyyy:MM:dd HH:mm:ss";
+  private static final String DATE_PATTERN_EXIFTOOL = "%Y:%m:%d %H:%M:%S";
+
+  static final int BULK_SIZE = 1000;
+
+  private static final Pattern UPDATED = Pattern.compile("(\\d+) image files (updated|unchanged)");
+
+  private static ImageMetadataSession instance;
+
+  static synchronized ImageMetadataSession getInstance() {
+
+    if (instance == null) {
+
+      instance = new ImageMetadataSession(Runtime.getRuntime().availableProcessors());
+
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override
+        public void run() {
+          instance.close();
+        }
+      });
+    }
+
+    return instance;
+  }
+
+  private final int size;
+
+  private final BlockingQueue<ExifTool> idle = new LinkedBlockingQueue<>();
+  private final List<ExifTool> all = new ArrayList<>();
+
+  private volatile boolean available = true;
+
+  private ImageMetadataSession(final int size) {
+    this.size = size;
+  }
+
+  boolean copyMetadata(final File srcFile, final File dstFile) throws IOException {
+
+    List<String> lines = execute("-overwrite_original", "-TagsFromFile", srcFile.getPath(), "-all:all", dstFile.getPath());
+
+    if (lines == null) {
+      return ImageMetadataHandler.getInstance().copyMetadata(srcFile, dstFile);
+    }
+
+    return isUpdated(lines);
+  }
+
+  @Override
+  public Date getDateTimeOriginal(final File file) throws IOException {
+
+    List<String> lines = execute("-s3", "-d", DATE_PATTERN_EXIFTOOL, "-DateTimeOriginal", file.getPath());
+
+    if (lines == null) {
+      return ImageMetadataHandler.getInstance().getDateTimeOriginal(file);
+    }
+
+    return lines.isEmpty() ? null : parseDate(lines.get(0));
+  }
+
+  /**
+   * Reads the DateTimeOriginal metadata field of many files at once (one
+   * exiftool command for every {@value #BULK_SIZE} files).
+   * <p>
+   * The output is CSV, and the results are matched by the "SourceFile" column,
+   * which exiftool echoes back exactly as the path was given (the resolved
+   * "FilePath" would not match the files under a symbolic link).
+   */
+  @Override
+  public Map<File, Date> getDateTimeOriginals(final List<File> files) throws IOException {
+
+    Map<File, Date> dates = new HashMap<>(files.size() * 2);
+
+    for (int from = 0; from < files.size(); from += BULK_SIZE) {
+
+      List<File> chunk = files.subList(from, Math.min(from + BULK_SIZE, files.size()));
+
+      List<String> args = new ArrayList<>(chunk.size() + 5);
+      args.add("-csv");
+      args.add("-f");
+      args.add("-d");
+      args.add(DATE_PATTERN_EXIFTOOL);
+      args.add("-DateTimeOriginal");
+
+      for (File file : chunk) {
+        args.add(file.getPath());
+      }
+
+      List<String> lines = execute(args.toArray(new String[args.size()]));
+
+      if (lines == null) {
+        for (File file : chunk) {
+          dates.put(file, ImageMetadataHandler.getInstance().getDateTimeOriginal(file));
+        }
+        continue;
+      }
+
+      Map<String, Date> chunkDates = new HashMap<>(chunk.size() * 2);
+
+      // the first line is the header ("SourceFile,DateTimeOriginal")
+      for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+
+        // the date has no comma, the path may have (and is then quoted)
+        int indexComma = line.lastIndexOf(',');
+
+        if (indexComma != -1) {
+          chunkDates.put(parseCsvValue(line.substring(0, indexComma)), parseDate(line.substring(indexComma + 1)));
+        }
+      }
+
+      for (File file : chunk) {
+        dates.put(file, chunkDates.get(getSourceFile(file)));
+      }
+    }
+
+    return dates;
+  }
+
+  @Override
+  public ImageInfo getInfo(final File file) throws IOException {
+
+    List<String> lines = execute("-s3", "-f", "-d", DATE_PATTERN_EXIFTOOL, "-DateTimeOriginal", "-ImageWidth", "-ImageHeight", file.getPath());
+
+    if (lines == null) {
+      ImageMetadata metadata = ImageMetadataHandler.getInstance().getMetadata(file);
+      return new ImageInfo(metadata.getDateTimeOriginal(), metadata.getImageWidth(), metadata.getImageHeight());
+    }
+
+    if (lines.size() < 3) {
+      throw new IOException("unexpected exiftool output: " + lines);
+    }
+
+    return new ImageInfo(parseDate(lines.get(0)), parseInt(lines.get(1)), parseInt(lines.get(2)));
+  }
+
+  boolean setDateTimeOriginal(final File file, final Date date) throws IOException {
+
+    List<String> lines = execute("-overwrite_original", "-DateTimeOriginal=" + new SimpleDateFormat(DATE_PATTERN).format(date), file.getPath());
+
+    if (lines == null) {
+      return ImageMetadataHandler.getInstance().setDateTimeOriginal(file, date);
+    }
+
+    return isUpdated(lines);
+  }
+
+  /**
+   * Sets the DateTimeOriginal metadata field of many files at once (at most
+   * {@value #BULK_SIZE} files per call is a good size): the values are passed
+   * to a single exiftool command in a CSV file, so the files are rewritten by
+   * one exiftool run instead of one run for each of them.
+   * 
+   * @return the number of files updated (including the ones left unchanged,
+   *         because they already had the date)
+   */
+  int setDateTimeOriginals(final Map<File, Date> dates) throws IOException {
+
+    if (dates.isEmpty()) {
+      return 0;
+    }
+
+    File csvFile = File.createTempFile("jatoo-cli-image-", ".csv");
+
+    try {
+
+      SimpleDateFormat format = new SimpleDateFormat(DATE_PATTERN);
+
+      List<String> args = new ArrayList<>(dates.size() + 2);
+      args.add("-overwrite_original");
+      args.add("-csv=" + csvFile.getAbsolutePath());
+
+      try (BufferedWriter writer = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8)) {
+
+        writer.write("SourceFile,DateTimeOriginal");
+        writer.newLine();
+
+        for (Map.Entry<File, Date> entry : dates.entrySet()) {
+
+          String path = entry.getKey().getAbsolutePath();
+
+          writer.write('"' + path.replace("\"", "\"\"") + '"');
+          writer.write(',');
+          writer.write(format.format(entry.getValue()));
+          writer.newLine();
+
+          args.add(path);
+        }
+      }
+
+      List<String> lines = execute(args.toArray(new String[args.size()]));
+
+      if (lines == null) {
+
+        int updated = 0;
+
+        for (Map.Entry<File, Date> entry : dates.entrySet()) {
+          if (ImageMetadataHandler.getInstance().setDateTimeOriginal(entry.getKey(), entry.getValue())) {
+            updated++;
+          }
+        }
+
+        return updated;
+      }
+
+      int updated = 0;
+
+      for (String line : lines) {
+
+        Matcher matcher = UPDATED.matcher(line.trim());
+
+        if (matcher.matches()) {
+          updated += Integer.parseInt(matcher.group(1));
+        }
+      }
+
+      return updated;
+    }
+
+    finally {
+      Files.deleteIfExists(csvFile.toPath());
+    }
+  }
+
+  /**
+   * Executes an exiftool command on one of the pooled processes.
+   * 
+   * @return the output lines, or <code>null</code> if exiftool is not
+   *         available
+   */
+  private List<String> execute(final String... args) throws IOException {
+
+    ExifTool exiftool = borrow();
+
+    if (exiftool == null) {
+      return null;
+    }
+
+    boolean broken = true;
+
+    try {
+      List<String> lines = exiftool.execute(Arrays.asList(args));
+      broken = false;
+      return lines;
+    }
+
+    catch (IllegalArgumentException e) {
+      // rejected before anything was sent, the process is still good
+      broken = false;
+      throw e;
+    }
+
+    finally {
+      giveBack(exiftool, broken);
+    }
+  }
+
+  private ExifTool borrow() throws IOException {
+
+    while (available) {
+
+      ExifTool exiftool = idle.poll();
+
+      if (exiftool != null) {
+        return exiftool;
+      }
+
+      synchronized (all) {
+
+        if (all.size() < size) {
+
+          try {
+            exiftool = new ExifTool();
+          }
+
+          catch (IOException e) {
+
+            if (all.isEmpty()) {
+              available = false;
+              return null;
+            }
+
+            throw e;
+          }
+
+          all.add(exiftool);
+
+          return exiftool;
+        }
+      }
+
+      try {
+        exiftool = idle.poll(100, TimeUnit.MILLISECONDS);
+      }
+
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("interrupted while waiting for an exiftool process", e);
+      }
+
+      if (exiftool != null) {
+        return exiftool;
+      }
+    }
+
+    return null;
+  }
+
+  private void giveBack(final ExifTool exiftool, final boolean broken) {
+
+    if (broken) {
+
+      synchronized (all) {
+        all.remove(exiftool);
+      }
+
+      try {
+        exiftool.close();
+      } catch (IOException e) {
+        // the process is gone anyway
+      }
+    }
+
+    else {
+      idle.add(exiftool);
+    }
+  }
+
+  private void close() {
+
+    synchronized (all) {
+
+      for (ExifTool exiftool : all) {
+        try {
+          exiftool.close();
+        } catch (IOException e) {
+          // shutting down, nothing to do
+        }
+      }
+
+      all.clear();
+      idle.clear();
+    }
+  }
+
+  private static boolean isUpdated(final List<String> lines) {
+
+    for (String line : lines) {
+      if (line.trim().matches("1 image files (updated|unchanged)")) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @return the path of the file as exiftool echoes it in the "SourceFile"
+   *         column (always with forward slashes)
+   */
+  private static String getSourceFile(final File file) {
+    return file.getPath().replace(File.separatorChar, '/');
+  }
+
+  private static String parseCsvValue(final String text) {
+
+    if (text.length() > 1 && text.startsWith("\"") && text.endsWith("\"")) {
+      return text.substring(1, text.length() - 1).replace("\"\"", "\"");
+    }
+
+    return text;
+  }
+
+  private static Date parseDate(final String text) {
+
+    if (text.isEmpty() || text.equals("-")) {
+      return null;
+    }
+
+    try {
+      return new SimpleDateFormat(DATE_PATTERN).parse(text);
+    } catch (ParseException e) {
+      return null;
+    }
+  }
+
+  private static int parseInt(final String text) {
+
+    try {
+      return Integer.parseInt(text.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+}
@@ -0,0 +1,828 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Resizes images to fit inside (or to fill) one or more rectangles, keeping
+ * the original ratio.
+ * <p>
+ * The reduction is done in two steps: when the image is much larger than the
+ * result, it is decoded at a reduced resolution (using the source subsampling
+ * of the {@link ImageReader}, and only the region that will be kept when
+ * filling), and then the decoded image is scaled down to the final size with
+ * the chosen {@link ScalingAlgorithm}. This keeps both the decode time and the
+ * heap used per image low on thumbnail workloads.
+ * <p>
+ * When more sizes are requested, the image is decoded only once and the sizes
+ * are produced from the largest to the smallest, each one scaled from the
+ * smallest (already scaled) image that is still large enough.
+ * <p>
+ * The metadata of JPEG images can be carried over to the JPEG results while
+ * they are written (see {@link JpegSegments}).
+ * <p>
+ * The time spent in every stage can be collected in a
+ * {@link ResizeStats.Sample}, and the images resized at the same time can be
+ * limited by a {@link MemoryBudget}.
+ * <p>
+ * For small sizes, the thumbnail embedded in the EXIF of the JPEG images can
+ * be used instead of the image itself, when it is large enough, which skips
+ * the decoding of the image.
+ * <p>
+ * The images are decoded and encoded with pooled readers and writers, and the
+ * JPEG results are encoded with the parameters of an {@link ImageCodecs}.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ImageResizer {
+
+  private final List<Size> sizes;
+  private final ScalingAlgorithm algorithm;
+  private final MemoryBudget memoryBudget;
+  private final boolean thumbnails;
+  private final ImageCodecs codecs;
+
+  ImageResizer(final List<Size> sizes, final ScalingAlgorithm algorithm) {
+    this(sizes, algorithm, null, false);
+  }
+
+  ImageResizer(final List<Size> sizes, final ScalingAlgorithm algorithm, final MemoryBudget memoryBudget, final boolean thumbnails) {
+    this(sizes, algorithm, memoryBudget, thumbnails, new ImageCodecs());
+  }
+
+  /**
+   * @param memoryBudget
+   *          the budget the images are admitted in before being decoded, or
+   *          <code>null</code> for no limit
+   * @param thumbnails
+   *          <code>true</code> to resize from the embedded thumbnails, when
+   *          they are large enough
+   * @param codecs
+   *          the encoding parameters of the JPEG results
+   */
+  ImageResizer(final List<Size> sizes, final ScalingAlgorithm algorithm, final MemoryBudget memoryBudget, final boolean thumbnails, final ImageCodecs codecs) {
+
+    if (sizes.isEmpty()) {
+      throw new IllegalArgumentException("no sizes");
+    }
+
+    this.sizes = new ArrayList<>(sizes);
+    this.algorithm = algorithm;
+    this.memoryBudget = memoryBudget;
+    this.thumbnails = thumbnails;
+    this.codecs = codecs;
+  }
+
+  List<Size> getSizes() {
+    return Collections.unmodifiableList(sizes);
+  }
+
+  @Override
+  public String toString() {
+
+    StringBuilder text = new StringBuilder();
+
+    for (Size size : sizes) {
+
+      if (text.length() > 0) {
+        text.append(',');
+      }
+
+      text.append(size).append(size.isFit() ? ":fit" : ":fill");
+    }
+
+    text.append(' ').append(algorithm.name().toLowerCase());
+
+    if (thumbnails) {
+      text.append(" thumbnails");
+    }
+
+    if (!codecs.toString().isEmpty()) {
+      text.append(' ').append(codecs);
+    }
+
+    return text.toString();
+  }
+
+  void resize(final File srcFile, final File dstFile) throws IOException {
+    resize(srcFile, Collections.singletonList(dstFile));
+  }
+
+  /**
+   * Resizes the image to all the sizes.
+   * 
+   * @param dstFiles
+   *          the destination files, one for each size (in the same order)
+   */
+  void resize(final File srcFile, final List<File> dstFiles) throws IOException {
+    resize(srcFile, dstFiles, false);
+  }
+
+  /**
+   * Resizes the image to all the sizes, optionally keeping the metadata.
+   * 
+   * @param dstFiles
+   *          the destination files, one for each size (in the same order)
+   * @param keepMetadata
+   *          <code>true</code> to carry the metadata of the source over to the
+   *          destinations (possible only from JPEG to JPEG)
+   * 
+   * @return the destination files the metadata could not be carried over to
+   *         (empty if the metadata is not kept)
+   */
+  List<File> resize(final File srcFile, final List<File> dstFiles, final boolean keepMetadata) throws IOException {
+    return resize(srcFile, dstFiles, keepMetadata, new ResizeStats.Sample());
+  }
+
+  /**
+   * Resizes the image to all the sizes, optionally keeping the metadata, and
+   * times the stages.
+   * 
+   * @see #resize(File, List, boolean)
+   */
+  List<File> resize(final File srcFile, final List<File> dstFiles, final boolean keepMetadata, final ResizeStats.Sample sample) throws IOException {
+
+    if (dstFiles.size() != sizes.size()) {
+      throw new IllegalArgumentException("expected " + sizes.size() + " destination files");
+    }
+
+    if (thumbnails) {
+
+      ExifReader.Thumbnail thumbnail = ExifReader.getThumbnail(srcFile);
+      List<BufferedImage> images = thumbnail != null ? readThumbnail(srcFile, thumbnail, sample) : null;
+
+      if (images != null) {
+
+        List<byte[]> segments = null;
+
+        // the segments can be carried over only from a JPEG (the metadata of
+        // the other images is copied afterwards, like after a full decode)
+        if (keepMetadata && isJPEG(thumbnail.getImageFormatName())) {
+
+          long time = System.nanoTime();
+
+          try (ImageInputStream stream = ImageIO.createImageInputStream(srcFile)) {
+            segments = JpegSegments.read(stream);
+          }
+
+          sample.add(ResizeStats.Stage.METADATA, time);
+        }
+
+        return write(images, thumbnail.getImageFormatName(), segments, dstFiles, keepMetadata, sample);
+      }
+    }
+
+    Decoded decoded = new Decoded();
+
+    try {
+
+      try (ImageInputStream stream = ImageIO.createImageInputStream(srcFile)) {
+
+        if (stream == null) {
+          throw new IOException("cannot read the file: " + srcFile);
+        }
+
+        decode(stream, srcFile, keepMetadata, decoded, sample);
+      }
+
+      sample.addBytesRead(srcFile.length());
+
+      return write(decoded.images, decoded.formatName, decoded.segments, dstFiles, keepMetadata, sample);
+    }
+
+    finally {
+      if (memoryBudget != null) {
+        memoryBudget.release(decoded.memory);
+      }
+    }
+  }
+
+  /**
+   * Resizes an image read from a stream (to the only size) and writes the
+   * result to another stream, without any temporary file: the source is
+   * cached in memory while it is decoded. The embedded thumbnails are not
+   * used for streams.
+   * 
+   * @param dstFormatName
+   *          the format of the result, or <code>null</code> for the format of
+   *          the source
+   * @param keepMetadata
+   *          <code>true</code> to carry the metadata of the source over to the
+   *          result (possible only from JPEG to JPEG)
+   * 
+   * @return <code>false</code> if the metadata should have been kept, but
+   *         could not be carried over
+   */
+  boolean resize(final InputStream in, final OutputStream out, final String dstFormatName, final boolean keepMetadata, final ResizeStats.Sample sample) throws IOException {
+
+    if (sizes.size() != 1) {
+      throw new IllegalArgumentException("only one size can be written to a stream");
+    }
+
+    Decoded decoded = new Decoded();
+
+    try {
+
+      try (ImageInputStream stream = new MemoryCacheImageInputStream(in)) {
+        decode(stream, "the input stream", keepMetadata, decoded, sample);
+        sample.addBytesRead(stream.getStreamPosition());
+      }
+
+      String formatName = dstFormatName != null ? dstFormatName : decoded.formatName;
+
+      long time = System.nanoTime();
+      EncodedImage encoded = encode(decoded.images.get(0), formatName);
+      sample.add(ResizeStats.Stage.ENCODE, time);
+
+      time = System.nanoTime();
+
+      boolean metadata = decoded.segments != null && isJPEG(formatName);
+
+      if (metadata) {
+        JpegSegments.write(encoded.getBytes(), encoded.size(), JpegSegments.resize(decoded.segments, decoded.images.get(0).getWidth(), decoded.images.get(0).getHeight()), out);
+      } else {
+        encoded.writeTo(out);
+      }
+
+      out.flush();
+
+      sample.add(ResizeStats.Stage.WRITE, time);
+      sample.addBytesWritten(encoded.size());
+
+      return metadata || !keepMetadata;
+    }
+
+    finally {
+      if (memoryBudget != null) {
+        memoryBudget.release(decoded.memory);
+      }
+    }
+  }
+
+  /**
+   * Decodes and scales the image from the stream (the memory taken from the
+   * budget is kept in the result even if this fails, to be released by the
+   * caller).
+   */
+  private void decode(final ImageInputStream stream, final Object source, final boolean keepMetadata, final Decoded decoded, final ResizeStats.Sample sample) throws IOException {
+
+    ImageReader reader = ImageCodecs.getReader(stream, source);
+
+    try {
+
+      decoded.formatName = reader.getFormatName();
+
+      if (keepMetadata && isJPEG(decoded.formatName)) {
+        long time = System.nanoTime();
+        long position = stream.getStreamPosition();
+        decoded.segments = JpegSegments.read(stream);
+        stream.seek(position);
+        sample.add(ResizeStats.Stage.METADATA, time);
+      }
+
+      reader.setInput(stream, true, true);
+
+      if (memoryBudget != null) {
+        decoded.memory = memoryBudget.acquire(getMemoryEstimate(reader.getWidth(0), reader.getHeight(0)));
+      }
+
+      decoded.images = read(reader, sample);
+    }
+
+    finally {
+      ImageCodecs.release(reader);
+    }
+  }
+
+  /**
+   * Encodes and writes the resized images.
+   * 
+   * @return the destination files the metadata could not be carried over to
+   */
+  private List<File> write(final List<BufferedImage> images, final String formatName, final List<byte[]> segments, final List<File> dstFiles, final boolean keepMetadata, final ResizeStats.Sample sample) throws IOException {
+
+    List<File> dstFilesWithoutMetadata = new ArrayList<>();
+
+    for (int i = 0; i < images.size(); i++) {
+
+      File dstFile = dstFiles.get(i);
+      String dstFormatName = getFormatName(dstFile, formatName);
+
+      long time = System.nanoTime();
+      EncodedImage encoded = encode(images.get(i), dstFormatName);
+      sample.add(ResizeStats.Stage.ENCODE, time);
+
+      time = System.nanoTime();
+
+      if (segments != null && isJPEG(dstFormatName)) {
+        JpegSegments.write(encoded.getBytes(), encoded.size(), JpegSegments.resize(segments, images.get(i).getWidth(), images.get(i).getHeight()), dstFile);
+      }
+
+      else {
+
+        try (OutputStream stream = Files.newOutputStream(dstFile.toPath())) {
+          encoded.writeTo(stream);
+        }
+
+        if (keepMetadata) {
+          dstFilesWithoutMetadata.add(dstFile);
+        }
+      }
+
+      sample.add(ResizeStats.Stage.WRITE, time);
+      sample.addBytesWritten(encoded.size());
+    }
+
+    return dstFilesWithoutMetadata;
+  }
+
+  /**
+   * Scales the thumbnail embedded in the image to all the sizes.
+   * 
+   * @return the scaled images, one for each size (in the same order), or
+   *         <code>null</code> if the image does not have a thumbnail large
+   *         enough for all the sizes
+   */
+  private List<BufferedImage> readThumbnail(final File srcFile, final ExifReader.Thumbnail thumbnail, final ResizeStats.Sample sample) throws IOException {
+
+    long time = System.nanoTime();
+
+    int srcWidth = thumbnail.getImageWidth();
+    int srcHeight = thumbnail.getImageHeight();
+
+    // the thumbnails have a fixed size (usually 160x120), so the images with
+    // another ratio are either fit inside (and padded with black bars) or
+    // stretched; the fit content is the smallest, so it is the one checked
+    Dimension fitDimension = new Size(true, thumbnail.getWidth(), thumbnail.getHeight()).getDimension(srcWidth, srcHeight);
+    Rectangle fitContent = new Rectangle((thumbnail.getWidth() - fitDimension.width) / 2, (thumbnail.getHeight() - fitDimension.height) / 2, fitDimension.width, fitDimension.height);
+
+    Dimension[] dimensions = new Dimension[sizes.size()];
+
+    for (int i = 0; i < sizes.size(); i++) {
+
+      dimensions[i] = sizes.get(i).getDimension(srcWidth, srcHeight);
+      Rectangle region = getThumbnailRegion(sizes.get(i).getRegion(srcWidth, srcHeight), srcWidth, srcHeight, fitContent);
+
+      if (region.width < dimensions[i].width || region.height < dimensions[i].height) {
+        return null;
+      }
+    }
+
+    BufferedImage image;
+
+    try (ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(thumbnail.getBytes()))) {
+
+      ImageReader reader = ImageCodecs.getReader(stream, srcFile);
+
+      try {
+        reader.setInput(stream, true, true);
+        image = reader.read(0);
+      }
+
+      finally {
+        ImageCodecs.release(reader);
+      }
+    }
+
+    if (image.getWidth() != thumbnail.getWidth() || image.getHeight() != thumbnail.getHeight()) {
+      return null;
+    }
+
+    Rectangle content = isPadding(image, fitContent) ? fitContent : new Rectangle(0, 0, image.getWidth(), image.getHeight());
+
+    sample.add(ResizeStats.Stage.DECODE, time);
+    sample.addBytesRead(thumbnail.getBytes().length);
+
+    time = System.nanoTime();
+
+    List<BufferedImage> images = new ArrayList<>(sizes.size());
+
+    for (int i = 0; i < sizes.size(); i++) {
+      Rectangle region = getThumbnailRegion(sizes.get(i).getRegion(srcWidth, srcHeight), srcWidth, srcHeight, content);
+      images.add(algorithm.scale(image.getSubimage(region.x, region.y, region.width, region.height), dimensions[i].width, dimensions[i].height));
+    }
+
+    sample.add(ResizeStats.Stage.SCALE, time);
+
+    return images;
+  }
+
+  /**
+   * @return the region of the thumbnail that corresponds to a region of the
+   *         image, when the image is shown in the specified content region
+   */
+  private static Rectangle getThumbnailRegion(final Rectangle region, final int srcWidth, final int srcHeight, final Rectangle content) {
+
+    int x = content.x + (int) Math.round((double) region.x * content.width / srcWidth);
+    int y = content.y + (int) Math.round((double) region.y * content.height / srcHeight);
+    int width = Math.max(1, Math.min(content.x + content.width - x, (int) Math.round((double) region.width * content.width / srcWidth)));
+    int height = Math.max(1, Math.min(content.y + content.height - y, (int) Math.round((double) region.height * content.height / srcHeight)));
+
+    return new Rectangle(x, y, width, height);
+  }
+
+  /**
+   * @return <code>true</code> if everything outside the content (if anything)
+   *         is (almost) black
+   */
+  private static boolean isPadding(final BufferedImage image, final Rectangle content) {
+
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+
+        if (content.contains(x, y)) {
+          x = content.x + content.width - 1;
+          continue;
+        }
+
+        int rgb = image.getRGB(x, y);
+
+        if (((rgb >> 16) & 0xFF) > 32 || ((rgb >> 8) & 0xFF) > 32 || (rgb & 0xFF) > 32) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Decodes (at a reduced resolution, if possible) the image from the reader
+   * and scales it to all the sizes.
+   * 
+   * @return the scaled images, one for each size (in the same order)
+   */
+  List<BufferedImage> read(final ImageReader reader) throws IOException {
+    return read(reader, new ResizeStats.Sample());
+  }
+
+  private List<BufferedImage> read(final ImageReader reader, final ResizeStats.Sample sample) throws IOException {
+
+    long time = System.nanoTime();
+
+    int srcWidth = reader.getWidth(0);
+    int srcHeight = reader.getHeight(0);
+
+    ImageReadParam param = reader.getDefaultReadParam();
+
+    //
+    // only one size, decode only the needed region
+
+    if (sizes.size() == 1) {
+
+      Size size = sizes.get(0);
+      Rectangle region = size.getRegion(srcWidth, srcHeight);
+      Dimension dimension = size.getDimension(srcWidth, srcHeight);
+
+      param.setSourceRegion(region);
+      setSubsampling(param, getSubsampling(region.width, region.height, dimension.width, dimension.height));
+
+      BufferedImage image = reader.read(0, param);
+      sample.add(ResizeStats.Stage.DECODE, time);
+
+      time = System.nanoTime();
+      image = algorithm.scale(image, dimension.width, dimension.height);
+      sample.add(ResizeStats.Stage.SCALE, time);
+
+      return Collections.singletonList(image);
+    }
+
+    //
+    // more sizes, decode once (at the resolution needed by the largest one)
+    // and cascade from the largest to the smallest
+
+    int subsampling = Integer.MAX_VALUE;
+
+    for (Size size : sizes) {
+      Rectangle region = size.getRegion(srcWidth, srcHeight);
+      Dimension dimension = size.getDimension(srcWidth, srcHeight);
+      subsampling = Math.min(subsampling, getSubsampling(region.width, region.height, dimension.width, dimension.height));
+    }
+
+    setSubsampling(param, subsampling);
+
+    final Dimension[] dimensions = new Dimension[sizes.size()];
+    Integer[] order = new Integer[sizes.size()];
+
+    for (int i = 0; i < sizes.size(); i++) {
+      dimensions[i] = sizes.get(i).getDimension(srcWidth, srcHeight);
+      order[i] = i;
+    }
+
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(final Integer i1, final Integer i2) {
+        return Long.compare((long) dimensions[i2].width * dimensions[i2].height, (long) dimensions[i1].width * dimensions[i1].height);
+      }
+    });
+
+    BufferedImage[] images = new BufferedImage[sizes.size()];
+
+    // the images that contain the whole source (the decoded one and the
+    // "fit" ones), from the largest to the smallest
+    List<BufferedImage> bases = new ArrayList<>();
+    bases.add(reader.read(0, param));
+
+    sample.add(ResizeStats.Stage.DECODE, time);
+    time = System.nanoTime();
+
+    for (int i : order) {
+
+      Size size = sizes.get(i);
+
+      BufferedImage base = bases.get(0);
+      Rectangle region = size.getRegion(base.getWidth(), base.getHeight());
+
+      for (int j = bases.size() - 1; j > 0; j--) {
+
+        Rectangle baseRegion = size.getRegion(bases.get(j).getWidth(), bases.get(j).getHeight());
+
+        if (baseRegion.width >= dimensions[i].width && baseRegion.height >= dimensions[i].height) {
+          base = bases.get(j);
+          region = baseRegion;
+          break;
+        }
+      }
+
+      images[i] = algorithm.scale(base.getSubimage(region.x, region.y, region.width, region.height), dimensions[i].width, dimensions[i].height);
+
+      if (size.isFit()) {
+        bases.add(images[i]);
+      }
+    }
+
+    sample.add(ResizeStats.Stage.SCALE, time);
+
+    return Arrays.asList(images);
+  }
+
+  /**
+   * @return an estimate of the memory (in bytes) needed to resize an image of
+   *         the specified size: the decoded image, the intermediate steps of
+   *         the scaling and the results
+   */
+  long getMemoryEstimate(final int srcWidth, final int srcHeight) {
+
+    Rectangle decodedRegion = new Rectangle(0, 0, srcWidth, srcHeight);
+    int subsampling = Integer.MAX_VALUE;
+    long pixels = 0;
+
+    for (Size size : sizes) {
+
+      Rectangle region = size.getRegion(srcWidth, srcHeight);
+      Dimension dimension = size.getDimension(srcWidth, srcHeight);
+
+      subsampling = Math.min(subsampling, getSubsampling(region.width, region.height, dimension.width, dimension.height));
+      pixels += (long) dimension.width * dimension.height;
+
+      if (sizes.size() == 1) {
+        decodedRegion = region;
+      }
+    }
+
+    long decodedPixels = (long) ((decodedRegion.width + subsampling - 1) / subsampling) * ((decodedRegion.height + subsampling - 1) / subsampling);
+
+    // 4 bytes per pixel, the steps of the scaling take at most a third more
+    return (decodedPixels + decodedPixels / 3 + pixels) * 4;
+  }
+
+  /**
+   * @return the source subsampling to be used when decoding a (region of an)
+   *         image that will be scaled to the specified size
+   */
+  int getSubsampling(final int srcWidth, final int srcHeight, final int dstWidth, final int dstHeight) {
+    int margin = algorithm.getSubsamplingMargin();
+    return Math.max(1, Math.min(srcWidth / (dstWidth * margin), srcHeight / (dstHeight * margin)));
+  }
+
+  private static void setSubsampling(final ImageReadParam param, final int subsampling) {
+    if (subsampling > 1) {
+      param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+    }
+  }
+
+  private EncodedImage encode(final BufferedImage image, final String formatName) throws IOException {
+
+    EncodedImage encoded = new EncodedImage();
+
+    // cached in memory, not in a temporary file
+    try (ImageOutputStream stream = new MemoryCacheImageOutputStream(encoded)) {
+      codecs.write(getWritable(image, formatName), formatName, stream);
+    }
+
+    return encoded;
+  }
+
+  private static BufferedImage getWritable(final BufferedImage image, final String formatName) {
+
+    if (image.getTransparency() == Transparency.OPAQUE || !isJPEG(formatName)) {
+      return image;
+    }
+
+    BufferedImage output = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = output.createGraphics();
+    g.drawImage(image, 0, 0, null);
+    g.dispose();
+
+    return output;
+  }
+
+  /**
+   * @return the format given by the extension of the file, if there is a
+   *         writer for it, or the specified default format otherwise
+   */
+  static String getFormatName(final File file, final String defaultFormatName) {
+
+    String fileName = file.getName();
+    int indexSeparator = fileName.lastIndexOf('.');
+
+    if (indexSeparator != -1) {
+
+      String suffix = fileName.substring(indexSeparator + 1).toLowerCase();
+
+      if (ImageCodecs.hasWriter(suffix)) {
+        return suffix;
+      }
+    }
+
+    return defaultFormatName;
+  }
+
+  static boolean isJPEG(final String formatName) {
+    return formatName.equalsIgnoreCase("jpg") || formatName.equalsIgnoreCase("jpeg");
+  }
+
+  /**
+   * The bytes of an encoded image, accessible without a copy.
+   */
+  private static final class EncodedImage extends ByteArrayOutputStream {
+
+    private EncodedImage() {
+      super(256 * 1024);
+    }
+
+    private byte[] getBytes() {
+      return buf;
+    }
+  }
+
+  /**
+   * What is decoded from a source: the scaled images, the format and
+   * (optionally) the metadata segments, plus the memory taken from the budget.
+   */
+  private static final class Decoded {
+    private String formatName;
+    private List<BufferedImage> images;
+    private List<byte[]> segments;
+    private int memory;
+  }
+
+  /**
+   * A size to resize to: the rectangle and the way the image is placed in it.
+   */
+  static final class Size {
+
+    private final boolean fit;
+    private final int width;
+    private final int height;
+
+    Size(final boolean fit, final int width, final int height) {
+
+      if (width < 1 || height < 1) {
+        throw new IllegalArgumentException("illegal size: " + width + "x" + height);
+      }
+
+      this.fit = fit;
+      this.width = width;
+      this.height = height;
+    }
+
+    /**
+     * Parses a comma separated list of sizes, like
+     * "2048x2048,1024x1024:fill,256x256:fit".
+     * 
+     * @param defaultFit
+     *          the way the images are placed for the sizes that do not
+     *          specify it
+     */
+    static List<Size> parseList(final String text, final boolean defaultFit) {
+
+      List<Size> sizes = new ArrayList<>();
+      Set<String> names = new HashSet<>();
+
+      for (String item : text.split(",")) {
+
+        String[] parts = item.trim().split(":");
+        String[] values = parts[0].split("x");
+
+        if (parts.length > 2 || values.length != 2 || (parts.length == 2 && !parts[1].equals("fit") && !parts[1].equals("fill"))) {
+          throw new IllegalArgumentException("illegal size: " + item + " (expected something like: 1024x768, 1024x768:fit or 1024x768:fill)");
+        }
+
+        Size size = new Size(parts.length == 2 ? parts[1].equals("fit") : defaultFit, Integer.parseInt(values[0].trim()), Integer.parseInt(values[1].trim()));
+
+        if (!names.add(size.toString())) {
+          throw new IllegalArgumentException("duplicate size: " + size);
+        }
+
+        sizes.add(size);
+      }
+
+      return sizes;
+    }
+
+    boolean isFit() {
+      return fit;
+    }
+
+    int getWidth() {
+      return width;
+    }
+
+    int getHeight() {
+      return height;
+    }
+
+    /**
+     * @return the region of an image (of the specified size) that ends up in
+     *         the resized image
+     */
+    Rectangle getRegion(final int srcWidth, final int srcHeight) {
+
+      if (fit) {
+        return new Rectangle(0, 0, srcWidth, srcHeight);
+      }
+
+      double scale = Math.max((double) width / srcWidth, (double) height / srcHeight);
+
+      int regionWidth = Math.max(1, Math.min(srcWidth, (int) Math.round(width / scale)));
+      int regionHeight = Math.max(1, Math.min(srcHeight, (int) Math.round(height / scale)));
+
+      return new Rectangle((srcWidth - regionWidth) / 2, (srcHeight - regionHeight) / 2, regionWidth, regionHeight);
+    }
+
+    /**
+     * @return the size of the resized image, for an image of the specified
+     *         size
+     */
+    Dimension getDimension(final int srcWidth, final int srcHeight) {
+
+      if (fit) {
+
+        double scale = Math.min((double) width / srcWidth, (double) height / srcHeight);
+
+        return new Dimension(Math.max(1, Math.min(width, (int) Math.round(srcWidth * scale))), Math.max(1, Math.min(height, (int) Math.round(srcHeight * scale))));
+      }
+
+      return new Dimension(width, height);
+    }
+
+    @Override
+    public String toString() {
+      return width + "x" + height;
+    }
+  }
+
+}
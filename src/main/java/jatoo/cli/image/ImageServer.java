@@ -0,0 +1,618 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keeps the command resident and runs jobs sent to it, so the JVM start, the
+ * class loading, the image plugins scan, the JIT warm up and the exiftool
+ * sessions are paid only once.
+ * <p>
+ * The protocol is made of lines: a job is a line with the arguments of the
+ * command (like "-resize -fit -width 400 -height 400 -src a.jpg -dst out",
+ * with double quotes around the arguments with spaces), the answer is the
+ * output of the job followed by a line with {@value #DONE}, or with
+ * {@value #ERROR} if the job (or some of its images) failed. The jobs are read
+ * from the standard input or from the connections accepted on a local
+ * (loopback) port; the jobs of different connections run at the same time.
+ * <p>
+ * The paths of the jobs are resolved by the server, so the client sends them
+ * absolute (see {@link #send(int, File, String[], PrintStream)}).
+ * <p>
+ * What a job prints goes only to its own answer: the standard output of the
+ * server is replaced (once) with one that sends what every thread prints to
+ * the stream of the job it runs for (see {@link JobOutput}).
+ * <p>
+ * On a port, every job has to be preceded by a line with a token, which the
+ * server generates when it starts and writes to a file only its owner can
+ * read (see {@link #getTokenFile(int)}), so the other users of the machine
+ * cannot run jobs with the rights of the owner. The jobs cannot use the
+ * standard input or output ("-src -" or "-dst -"), that is where the protocol
+ * itself may be, and cannot start another server or client.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ImageServer {
+
+  /** the line that ends the answer to a job */
+  static final String DONE = "{done}";
+
+  /** the line that ends the answer to a job that failed */
+  static final String ERROR = "{error}";
+
+  /** the line that answers a job sent with a wrong token (before closing) */
+  static final String DENIED = "{denied}";
+
+  /**
+   * @return the file where the server listening on the specified port keeps
+   *         the token of the clients
+   */
+  static File getTokenFile(final int port) {
+    return new File(System.getProperty("user.home"), ".jatoo" + File.separator + "cli-image" + File.separator + "server-" + port + ".token");
+  }
+
+  /** the options of the jobs that take a path */
+  private static final String[] PATH_OPTIONS = { "-src", "-dst", "-statsReport" };
+
+  private final JatooCLICommand command;
+
+  ImageServer(final JatooCLICommand command) {
+    this.command = command;
+  }
+
+  /**
+   * Runs the jobs read from a stream, until the end of the stream.
+   */
+  void serve(final BufferedReader in, final PrintStream out) throws IOException {
+    serve(in, out, null);
+  }
+
+  /**
+   * Runs the jobs read from a stream, until the end of the stream (or until a
+   * job comes with a wrong token).
+   * 
+   * @param token
+   *          the token every job has to be preceded by, or <code>null</code>
+   *          if the stream is trusted
+   */
+  void serve(final BufferedReader in, final PrintStream out, final String token) throws IOException {
+
+    String line;
+
+    while ((line = in.readLine()) != null) {
+
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+
+      if (token != null) {
+
+        if (!MessageDigest.isEqual(line.trim().getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+          out.println(DENIED);
+          out.flush();
+          return;
+        }
+
+        line = in.readLine();
+
+        if (line == null) {
+          return;
+        }
+      }
+
+      out.println(run(line, out) ? DONE : ERROR);
+      out.flush();
+    }
+  }
+
+  /**
+   * Accepts connections on a local port and runs the jobs sent through them
+   * (never returns, unless the port cannot be used).
+   * 
+   * @see #getTokenFile(int)
+   */
+  void serve(final int port) throws IOException {
+
+    try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+
+      final String token = createToken(getTokenFile(port));
+
+      while (true) {
+
+        final Socket socket = serverSocket.accept();
+
+        Thread thread = new Thread("jatoo-cli-image-server-" + socket.getPort()) {
+          @Override
+          public void run() {
+            try (Socket s = socket) {
+              serve(new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8)), new PrintStream(s.getOutputStream(), false, "UTF-8"), token);
+            } catch (IOException e) {
+              // the client went away, nothing to answer to
+            } finally {
+              ImageCodecs.dispose();
+            }
+          }
+        };
+
+        thread.setDaemon(true);
+        thread.start();
+      }
+    }
+  }
+
+  /**
+   * Sends a job to a server (on a local port) and copies the answer to the
+   * specified stream. The paths of the job ("-src", "-dst" and
+   * "-statsReport") are made absolute first, relative to the working folder
+   * of the client.
+   * 
+   * @param tokenFile
+   *          the file with the token of the server
+   * 
+   * @return <code>false</code> if the job failed
+   */
+  static boolean send(final int port, final File tokenFile, final String[] args, final PrintStream out) throws IOException {
+
+    String token = new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.UTF_8).trim();
+
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+
+      Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+      writer.write(token);
+      writer.write('\n');
+      writer.write(join(absolutize(args)));
+      writer.write('\n');
+      writer.flush();
+
+      BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      String line;
+
+      while ((line = reader.readLine()) != null) {
+
+        if (line.equals(DONE) || line.equals(ERROR)) {
+          return line.equals(DONE);
+        }
+
+        if (line.equals(DENIED)) {
+          throw new IOException("the server did not accept the token from " + tokenFile.getPath());
+        }
+
+        out.println(line);
+      }
+
+      throw new IOException("the server closed the connection before the job was done");
+    }
+  }
+
+  /**
+   * Runs a job, with what it prints sent to the specified stream.
+   * 
+   * @return <code>false</code> if the job failed
+   */
+  private boolean run(final String line, final PrintStream out) {
+
+    String[] args;
+
+    try {
+      args = split(line);
+    } catch (IllegalArgumentException e) {
+      out.println(e.getMessage());
+      return false;
+    }
+
+    for (String arg : args) {
+
+      if (arg.equals("-") || arg.endsWith("=-")) {
+        out.println("the jobs of a server cannot use the standard input or output: " + line);
+        return false;
+      }
+
+      if (arg.equals("-server") || arg.equals("-client")) {
+        out.println("the jobs of a server cannot start a server or a client: " + line);
+        return false;
+      }
+    }
+
+    JobOutput jobOutput = JobOutput.install();
+    jobOutput.set(out);
+
+    try {
+      return command.executeJob(args);
+    }
+
+    finally {
+      out.flush();
+      jobOutput.remove();
+    }
+  }
+
+  /**
+   * Makes the paths of a job ("-src", "-dst" and "-statsReport", other than
+   * the standard streams) absolute.
+   */
+  static String[] absolutize(final String[] args) {
+
+    String[] absoluteArgs = args.clone();
+
+    for (int i = 0; i < args.length; i++) {
+
+      for (String option : PATH_OPTIONS) {
+
+        if (args[i].equals(option) && i + 1 < args.length && !args[i + 1].equals("-")) {
+          absoluteArgs[i + 1] = new File(args[i + 1]).getAbsolutePath();
+        }
+
+        else if (args[i].startsWith(option + "=") && !args[i].equals(option + "=-")) {
+          absoluteArgs[i] = option + "=" + new File(args[i].substring(option.length() + 1)).getAbsolutePath();
+        }
+      }
+    }
+
+    return absoluteArgs;
+  }
+
+  /**
+   * Generates a new token and writes it to a file only the owner can read (the
+   * old file, if any, is replaced).
+   */
+  private static String createToken(final File file) throws IOException {
+
+    byte[] bytes = new byte[32];
+    new SecureRandom().nextBytes(bytes);
+
+    StringBuilder token = new StringBuilder();
+
+    for (byte b : bytes) {
+      token.append(String.format("%02x", b));
+    }
+
+    Path path = file.toPath();
+
+    Files.createDirectories(path.getParent());
+    Files.deleteIfExists(path);
+
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    }
+
+    else {
+      Files.createFile(path);
+      file.setReadable(false, false);
+      file.setReadable(true, true);
+      file.setWritable(false, false);
+      file.setWritable(true, true);
+    }
+
+    Files.write(path, token.toString().getBytes(StandardCharsets.UTF_8));
+    file.deleteOnExit();
+
+    return token.toString();
+  }
+
+  /**
+   * Splits a line in arguments, on spaces, keeping together what is in double
+   * quotes (where a double quote or a backslash can be escaped with a
+   * backslash).
+   */
+  static String[] split(final String line) {
+
+    List<String> args = new ArrayList<>();
+    StringBuilder arg = null;
+    boolean quoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+
+      char c = line.charAt(i);
+
+      if (quoted) {
+
+        if (c == '\\' && i + 1 < line.length() && (line.charAt(i + 1) == '"' || line.charAt(i + 1) == '\\')) {
+          arg.append(line.charAt(++i));
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          arg.append(c);
+        }
+      }
+
+      else if (Character.isWhitespace(c)) {
+        if (arg != null) {
+          args.add(arg.toString());
+          arg = null;
+        }
+      }
+
+      else {
+
+        if (arg == null) {
+          arg = new StringBuilder();
+        }
+
+        if (c == '"') {
+          quoted = true;
+        } else {
+          arg.append(c);
+        }
+      }
+    }
+
+    if (quoted) {
+      throw new IllegalArgumentException("unbalanced quotes: " + line);
+    }
+
+    if (arg != null) {
+      args.add(arg.toString());
+    }
+
+    return args.toArray(new String[args.size()]);
+  }
+
+  /**
+   * The opposite of {@link #split(String)}.
+   */
+  static String join(final String[] args) {
+
+    StringBuilder line = new StringBuilder();
+
+    for (String arg : args) {
+
+      if (line.length() > 0) {
+        line.append(' ');
+      }
+
+      if (!arg.isEmpty() && arg.indexOf('"') == -1 && arg.indexOf('\\') == -1 && !arg.matches(".*\\s.*")) {
+        line.append(arg);
+      }
+
+      else {
+        line.append('"').append(arg.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+      }
+    }
+
+    return line.toString();
+  }
+
+  /**
+   * The standard output of a server: what a thread prints goes to the stream
+   * of the job it runs for (also for the threads started by the job, which
+   * inherit the stream), or to the original standard output if it does not
+   * run for a job.
+   */
+  private static final class JobOutput extends PrintStream {
+
+    private final PrintStream out;
+    private final InheritableThreadLocal<PrintStream> jobOut = new InheritableThreadLocal<>();
+
+    private JobOutput(final PrintStream out) {
+      super(out, true);
+      this.out = out;
+    }
+
+    /**
+     * Replaces the standard output, if not already replaced.
+     */
+    private static synchronized JobOutput install() {
+
+      if (System.out instanceof JobOutput) {
+        return (JobOutput) System.out;
+      }
+
+      JobOutput jobOutput = new JobOutput(System.out);
+      System.setOut(jobOutput);
+
+      return jobOutput;
+    }
+
+    private void set(final PrintStream stream) {
+      jobOut.set(stream == this ? out : stream);
+    }
+
+    private void remove() {
+      jobOut.remove();
+    }
+
+    private PrintStream get() {
+      PrintStream stream = jobOut.get();
+      return stream != null ? stream : out;
+    }
+
+    @Override
+    public void write(final int b) {
+      get().write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      get().write(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+      get().flush();
+    }
+
+    @Override
+    public void close() {
+      // the streams are closed by their owners
+      flush();
+    }
+
+    @Override
+    public boolean checkError() {
+      return get().checkError();
+    }
+
+    @Override
+    public void print(final boolean b) {
+      get().print(b);
+    }
+
+    @Override
+    public void print(final char c) {
+      get().print(c);
+    }
+
+    @Override
+    public void print(final int i) {
+      get().print(i);
+    }
+
+    @Override
+    public void print(final long l) {
+      get().print(l);
+    }
+
+    @Override
+    public void print(final float f) {
+      get().print(f);
+    }
+
+    @Override
+    public void print(final double d) {
+      get().print(d);
+    }
+
+    @Override
+    public void print(final char[] s) {
+      get().print(s);
+    }
+
+    @Override
+    public void print(final String s) {
+      get().print(s);
+    }
+
+    @Override
+    public void print(final Object obj) {
+      get().print(obj);
+    }
+
+    @Override
+    public void println() {
+      get().println();
+    }
+
+    @Override
+    public void println(final boolean x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final char x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final int x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final long x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final float x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final double x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final char[] x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final String x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final Object x) {
+      get().println(x);
+    }
+
+    @Override
+    public PrintStream printf(final String format, final Object... args) {
+      get().printf(format, args);
+      return this;
+    }
+
+    @Override
+    public PrintStream printf(final Locale l, final String format, final Object... args) {
+      get().printf(l, format, args);
+      return this;
+    }
+
+    @Override
+    public PrintStream format(final String format, final Object... args) {
+      get().format(format, args);
+      return this;
+    }
+
+    @Override
+    public PrintStream format(final Locale l, final String format, final Object... args) {
+      get().format(l, format, args);
+      return this;
+    }
+
+    @Override
+    public PrintStream append(final CharSequence csq) {
+      get().append(csq);
+      return this;
+    }
+
+    @Override
+    public PrintStream append(final CharSequence csq, final int start, final int end) {
+      get().append(csq, start, end);
+      return this;
+    }
+
+    @Override
+    public PrintStream append(final char c) {
+      get().append(c);
+      return this;
+    }
+  }
+
+}
@@ -16,17 +16,36 @@
 
 package jatoo.cli.image;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.DateFormat;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
@@ -34,21 +53,45 @@ import org.apache.commons.cli.OptionGroup;
 import org.apache.commons.cli.Options;
 
 import jatoo.cli.AbstractCLICommand;
-import jatoo.image.ImageFileFilter;
-import jatoo.image.ImageMetadata;
-import jatoo.image.ImageMetadataHandler;
-import jatoo.image.ImageUtils;
 
 /**
  * The "image" command for the JaToo CLI project.
  * 
  * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
- * @version 2.0, August 2, 2017
+ * @version 2.1, October 17, 2026
  */
 public class JatooCLICommand extends AbstractCLICommand {
 
   private static final String OPTION_METADATA = "metadata";
 
+  /** the name that stands for the standard input (or output) */
+  private static final String STD_STREAM = "-";
+
+  private static final int RENAME_CHUNK_SIZE = 1000;
+
+  /** set when something fails in the command executed by the current thread */
+  private static final ThreadLocal<Boolean> FAILED = new ThreadLocal<>();
+
+  /**
+   * Executes the command, like {@link #execute(String[])}, and tells if it
+   * succeeded (the server answers every job with its status).
+   * 
+   * @return <code>false</code> if the command failed, or some of the images
+   */
+  boolean executeJob(final String[] args) {
+
+    FAILED.set(Boolean.FALSE);
+
+    try {
+      execute(args);
+      return !FAILED.get();
+    }
+
+    finally {
+      FAILED.remove();
+    }
+  }
+
   @Override
   public void execute(final String[] args) {
 
@@ -58,10 +101,14 @@ public class JatooCLICommand extends AbstractCLICommand {
     OptionGroup optionGroup = new OptionGroup();
     optionGroup.setRequired(true);
     optionGroup.addOption(Option.builder("resize").desc(getText("desc.option.resize")).build());
-    // optionGroup.addOption(Option.builder("crop").desc(getText("desc.option.crop")).build());
-    // optionGroup.addOption(Option.builder("rotate").desc(getText("desc.option.rotate")).build());
+    optionGroup.addOption(Option.builder("crop").desc(getText("desc.option.crop")).build());
+    optionGroup.addOption(Option.builder("rotate").desc(getText("desc.option.rotate")).build());
     optionGroup.addOption(Option.builder("rename").desc(getText("desc.option.rename")).build());
     optionGroup.addOption(Option.builder(OPTION_METADATA).desc(getText("desc.option." + OPTION_METADATA)).build());
+    optionGroup.addOption(Option.builder("dedupe").desc(getText("desc.option.dedupe")).build());
+    optionGroup.addOption(Option.builder("jobs").desc(getText("desc.option.jobs")).build());
+    optionGroup.addOption(Option.builder("server").desc(getText("desc.option.server")).build());
+    optionGroup.addOption(Option.builder("client").desc(getText("desc.option.client")).build());
 
     Options options = new Options();
     options.addOptionGroup(optionGroup);
@@ -80,13 +127,13 @@ public class JatooCLICommand extends AbstractCLICommand {
         resize(line.getArgs());
       }
 
-      // else if (line.hasOption("crop")) {
-      // // resize(line.getArgs());
-      // }
-      //
-      // else if (line.hasOption("rotate")) {
-      // // resize(line.getArgs());
-      // }
+      else if (line.hasOption("crop")) {
+        crop(line.getArgs());
+      }
+
+      else if (line.hasOption("rotate")) {
+        rotate(line.getArgs());
+      }
 
       else if (line.hasOption("rename")) {
         rename(line.getArgs());
@@ -96,13 +143,29 @@ public class JatooCLICommand extends AbstractCLICommand {
         metadata(line.getArgs());
       }
 
+      else if (line.hasOption("dedupe")) {
+        dedupe(line.getArgs());
+      }
+
+      else if (line.hasOption("jobs")) {
+        jobs(line.getArgs());
+      }
+
+      else if (line.hasOption("server")) {
+        server(line.getArgs());
+      }
+
+      else if (line.hasOption("client")) {
+        client(line.getArgs());
+      }
+
       else {
         throwUnknownOption();
       }
     }
 
     catch (Throwable t) {
-      printHelp("-image", options, t);
+      printFailure("-image", options, t);
     }
   }
 
@@ -143,20 +206,59 @@ public class JatooCLICommand extends AbstractCLICommand {
     }
 
     catch (Throwable e) {
-      printHelp("-image -resize", options, e);
+      printFailure("-image -resize", options, e);
     }
   }
 
   private void resize(final String[] args, final boolean fit) {
 
+    // with "-dst -" the standard output is only for the image, so all the
+    // messages (the errors included) go to the standard error
+
+    for (int i = 0; i < args.length - 1; i++) {
+
+      if (args[i].equals("-dst") && args[i + 1].equals(STD_STREAM)) {
+
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+
+        try {
+          resize(args, fit, stdout);
+        } finally {
+          System.setOut(stdout);
+        }
+
+        return;
+      }
+    }
+
+    resize(args, fit, System.out);
+  }
+
+  private void resize(final String[] args, final boolean fit, final PrintStream stdout) {
+
     //
     // options
 
     Options options = new Options();
-    options.addOption(Option.builder("width").hasArg().required(true).desc(getText("desc.option.resize." + (fit ? "fit" : "fill") + ".width")).build());
-    options.addOption(Option.builder("height").hasArg().required(true).desc(getText("desc.option.resize." + (fit ? "fit" : "fill") + ".height")).build());
+    options.addOption(Option.builder("width").hasArg().required(false).desc(getText("desc.option.resize." + (fit ? "fit" : "fill") + ".width")).build());
+    options.addOption(Option.builder("height").hasArg().required(false).desc(getText("desc.option.resize." + (fit ? "fit" : "fill") + ".height")).build());
+    options.addOption(Option.builder("sizes").hasArg().required(false).desc(getText("desc.option.resize.sizes")).build());
+    options.addOption(Option.builder("algorithm").hasArg().required(false).desc(getText("desc.option.resize.algorithm")).build());
+    options.addOption(Option.builder("thumbnail").required(false).desc(getText("desc.option.resize.thumbnail")).build());
+    options.addOption(Option.builder("quality").hasArg().required(false).desc(getText("desc.option.resize.quality")).build());
+    options.addOption(Option.builder("progressive").required(false).desc(getText("desc.option.resize.progressive")).build());
+    options.addOption(Option.builder("optimizeHuffman").required(false).desc(getText("desc.option.resize.optimizeHuffman")).build());
     options.addOption(Option.builder("removeMetadata").required(false).desc(getText("desc.option.resize.removeMetadata")).build());
     options.addOption(Option.builder("overwrite").required(false).desc(getText("desc.option.resize.overwrite")).build());
+    options.addOption(Option.builder("incremental").required(false).desc(getText("desc.option.resize.incremental")).build());
+    options.addOption(Option.builder("checksum").required(false).desc(getText("desc.option.resize.checksum")).build());
+    options.addOption(Option.builder("threads").hasArg().required(false).desc(getText("desc.option.resize.threads")).build());
+    options.addOption(Option.builder("memoryBudget").hasArg().required(false).desc(getText("desc.option.resize.memoryBudget")).build());
+    options.addOption(Option.builder("recursive").required(false).desc(getText("desc.option.resize.recursive")).build());
+    options.addOption(Option.builder("stats").required(false).desc(getText("desc.option.resize.stats")).build());
+    options.addOption(Option.builder("statsReport").hasArg().required(false).desc(getText("desc.option.resize.statsReport")).build());
+    options.addOption(Option.builder("format").hasArg().required(false).desc(getText("desc.option.resize.format")).build());
     options.addOption(Option.builder("src").hasArg().required(true).desc(getText("desc.option.resize.src")).build());
     options.addOption(Option.builder("dst").hasArg().required(true).desc(getText("desc.option.resize.dst")).build());
 
@@ -170,11 +272,48 @@ public class JatooCLICommand extends AbstractCLICommand {
       //
       // and work
 
-      int width = Integer.parseInt(line.getOptionValue("width"));
-      int height = Integer.parseInt(line.getOptionValue("height"));
+      final ImageResizer resizer;
+      final boolean sizesFolders;
+
+      ScalingAlgorithm algorithm = ScalingAlgorithm.parse(line.getOptionValue("algorithm", ScalingAlgorithm.BICUBIC.name()));
+      MemoryBudget memoryBudget = line.hasOption("memoryBudget") ? new MemoryBudget(MemoryBudget.parseSize(line.getOptionValue("memoryBudget"))) : MemoryBudget.getDefault();
+      boolean thumbnails = line.hasOption("thumbnail");
+      ImageCodecs codecs = resizeGetCodecs(line);
+
+      if (line.hasOption("sizes")) {
+        resizer = new ImageResizer(ImageResizer.Size.parseList(line.getOptionValue("sizes"), fit), algorithm, memoryBudget, thumbnails, codecs);
+        sizesFolders = true;
+      }
+
+      else if (line.hasOption("width") && line.hasOption("height")) {
+        resizer = new ImageResizer(Collections.singletonList(new ImageResizer.Size(fit, Integer.parseInt(line.getOptionValue("width")), Integer.parseInt(line.getOptionValue("height")))), algorithm, memoryBudget, thumbnails, codecs);
+        sizesFolders = false;
+      }
+
+      else {
+        throw new IllegalArgumentException("missing options: -width and -height (or -sizes)");
+      }
 
-      boolean removeMetadata = line.hasOption("removeMetadata");
+      final boolean removeMetadata = line.hasOption("removeMetadata");
       boolean overwrite = line.hasOption("overwrite");
+      boolean incremental = line.hasOption("incremental");
+      boolean checksum = line.hasOption("checksum");
+      int threads = Integer.parseInt(line.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+      boolean recursive = line.hasOption("recursive");
+      final ResizeStats stats = line.hasOption("stats") || line.hasOption("statsReport") ? new ResizeStats() : null;
+      String statsReport = line.getOptionValue("statsReport");
+
+      if (line.getOptionValue("src").equals(STD_STREAM) || line.getOptionValue("dst").equals(STD_STREAM)) {
+
+        ResizeStats.Sample sample = resizeStream(resizer, line.getOptionValue("src"), line.getOptionValue("dst"), line.getOptionValue("format"), removeMetadata, overwrite, stdout);
+
+        if (stats != null) {
+          stats.add(sample);
+          resizePrintStats(stats, statsReport);
+        }
+
+        return;
+      }
 
       File src = new File(line.getOptionValue("src"));
       File dst = new File(line.getOptionValue("dst"));
@@ -192,62 +331,146 @@ public class JatooCLICommand extends AbstractCLICommand {
         throw new NotDirectoryException(dst.getAbsolutePath());
       }
 
+      final ResizeManifest manifest;
+
+      if (incremental) {
+        manifest = new ResizeManifest(dst, resizer + (sizesFolders ? " -sizes" : "") + (removeMetadata ? " -removeMetadata" : ""), checksum);
+      } else {
+        manifest = null;
+      }
+
       if (src.isFile()) {
 
         File srcImageFile = src;
-        File dstImageFile = new File(dst, srcImageFile.getName());
+        List<File> dstImageFiles = resizeGetDstFiles(resizer, sizesFolders, dst, srcImageFile.getName());
+
+        if (manifest != null && manifest.isUpToDate(srcImageFile.getName(), srcImageFile, dstImageFiles)) {
+          manifest.save(false);
+          System.out.println(getText("text.resizing.1.image.upToDate", srcImageFile.getName()));
+          return;
+        }
 
-        if (!overwrite) {
-          if (dstImageFile.exists()) {
-            throw new FileAlreadyExistsException(dstImageFile.getPath(), null, "file already exists" + System.getProperty("line.separator") + "use \"-overwrite\" option to overwrite existing file)");
+        if (!overwrite && !incremental) {
+          for (File dstImageFile : dstImageFiles) {
+            if (dstImageFile.exists()) {
+              throw new FileAlreadyExistsException(dstImageFile.getPath(), null, "file already exists" + System.getProperty("line.separator") + "use \"-overwrite\" option to overwrite existing file)");
+            }
           }
         }
 
         System.out.println(getText("text.resizing.1.image", srcImageFile.getName()));
 
-        ImageUtils.resizeTo(fit, srcImageFile, dstImageFile, width, height);
-        if (!removeMetadata) {
-          if (!ImageMetadataHandler.getInstance().copyMetadata(srcImageFile, dstImageFile)) {
-            throw new IOException("failed to copy the metadata");
-          }
+        ResizeManifest.Entry manifestEntry = manifest != null ? manifest.capture(srcImageFile) : null;
+
+        ResizeStats.Sample sample = new ResizeStats.Sample();
+        resizeExecute(resizer, srcImageFile, dstImageFiles, removeMetadata, sample);
+
+        if (stats != null) {
+          stats.add(sample);
+        }
+
+        if (manifest != null) {
+          manifest.update(srcImageFile.getName(), manifestEntry);
+          manifest.save(false);
         }
 
         System.out.println(getText("text.done"));
+
+        if (stats != null) {
+          resizePrintStats(stats, statsReport);
+        }
       }
 
       else if (src.isDirectory()) {
 
-        File[] srcImageFiles = src.listFiles(ImageFileFilter.getInstance());
-
-        if (srcImageFiles == null) {
-          throw new IllegalArgumentException("src.listFiles() returned \"null\"");
-        }
-
-        if (!overwrite) {
-          for (File srcImageFile : srcImageFiles) {
-            File dstImageFile = new File(dst, srcImageFile.getName());
-            if (dstImageFile.exists()) {
-              throw new FileAlreadyExistsException(dstImageFile.getPath(), null, "file already exists" + System.getProperty("line.separator") + "use \"-overwrite\" option to overwrite existing files");
+        if (!overwrite && !incremental) {
+          try (ImageFileWalker walker = new ImageFileWalker(src, recursive)) {
+            for (File srcImageFile = walker.next(); srcImageFile != null; srcImageFile = walker.next()) {
+              for (File dstImageFile : resizeGetDstFiles(resizer, sizesFolders, dst, walker.relativize(srcImageFile))) {
+                if (dstImageFile.exists()) {
+                  throw new FileAlreadyExistsException(dstImageFile.getPath(), null, "file already exists" + System.getProperty("line.separator") + "use \"-overwrite\" option to overwrite existing files");
+                }
+              }
             }
           }
         }
 
-        System.out.println(getText("text.resizing.n.images.1", srcImageFiles.length, src.getPath()));
+        System.out.println(getText("text.resizing.n.images.1", src.getPath()));
 
-        for (File srcImageFile : srcImageFiles) {
-          File dstImageFile = new File(dst, srcImageFile.getName());
+        final AtomicInteger upToDate = new AtomicInteger();
 
-          ImageUtils.resizeTo(fit, srcImageFile, dstImageFile, width, height);
-          if (!removeMetadata) {
-            if (!ImageMetadataHandler.getInstance().copyMetadata(srcImageFile, dstImageFile)) {
-              throw new IOException("failed to copy the metadata");
+        BatchExecutor executor = new BatchExecutor(threads) {
+
+          @Override
+          protected void onSuccess(final String result) {
+            if (result == null) {
+              upToDate.incrementAndGet();
+            } else {
+              System.out.println(getText("text.resizing.n.images.2", result));
             }
           }
 
-          System.out.println(getText("text.resizing.n.images.2", dstImageFile.getName()));
+          @Override
+          protected void onFailure(final String name, final Throwable t) {
+            setFailed();
+            System.out.println(getText("text.resizing.n.images.failed", name, t));
+          }
+        };
+
+        try (ImageFileWalker walker = new ImageFileWalker(src, recursive)) {
+          for (File file = walker.next(); file != null; file = walker.next()) {
+
+            final File srcImageFile = file;
+            final String dstImageFileName = walker.relativize(srcImageFile);
+            final List<File> dstImageFiles = resizeGetDstFiles(resizer, sizesFolders, dst, dstImageFileName);
+
+            executor.submit(dstImageFileName, new Callable<String>() {
+              @Override
+              public String call() throws Exception {
+
+                if (manifest != null && manifest.isUpToDate(dstImageFileName, srcImageFile, dstImageFiles)) {
+                  return null;
+                }
+
+                ResizeManifest.Entry manifestEntry = manifest != null ? manifest.capture(srcImageFile) : null;
+
+                ResizeStats.Sample sample = new ResizeStats.Sample();
+                resizeExecute(resizer, srcImageFile, dstImageFiles, removeMetadata, sample);
+
+                if (stats != null) {
+                  stats.add(sample);
+                }
+
+                if (manifest != null) {
+                  manifest.update(dstImageFileName, manifestEntry);
+                }
+
+                return dstImageFileName;
+              }
+            });
+          }
+        }
+
+        finally {
+          executor.finish();
+          if (manifest != null) {
+            manifest.save(true);
+          }
         }
 
-        System.out.println(getText("text.done"));
+        if (upToDate.get() > 0) {
+          System.out.println(getText("text.resizing.n.images.upToDate", upToDate.get()));
+        }
+
+        if (executor.getFailed() > 0) {
+          System.out.println(getText("text.done.failed", executor.getFailed()));
+        } else {
+          System.out.println(getText("text.done"));
+        }
+
+        if (stats != null) {
+          resizePrintStats(stats, statsReport);
+        }
       }
 
       else {
@@ -256,172 +479,173 @@ public class JatooCLICommand extends AbstractCLICommand {
     }
 
     catch (Throwable e) {
-      printHelp("-image -resize -" + (fit ? "fit" : "fill"), options, e);
+      printFailure("-image -resize -" + (fit ? "fit" : "fill"), options, e);
     }
   }
 
-  private void rename(final String[] args) {
+  /**
+   * @return the destination files (one for each size) of an image, in a
+   *         sub-folder named after the size if there are more sizes
+   */
+  private List<File> resizeGetDstFiles(final ImageResizer resizer, final boolean sizesFolders, final File dst, final String dstImageFileName) {
 
-    //
-    // options
+    if (!sizesFolders) {
+      return Collections.singletonList(new File(dst, dstImageFileName));
+    }
 
-    OptionGroup caseGroup = new OptionGroup();
-    caseGroup.setRequired(false);
-    caseGroup.addOption(Option.builder("toLowerCase").desc(getText("desc.option.resize.toLowerCase")).build());
-    caseGroup.addOption(Option.builder("toUpperCase").desc(getText("desc.option.resize.toUpperCase")).build());
+    List<File> dstImageFiles = new ArrayList<>();
 
-    Options options = new Options();
-    options.addOption(Option.builder("pattern").hasArg().required(true).desc(getText("desc.option.rename.pattern")).build());
-    options.addOption(Option.builder("counterDigits").hasArg().required(false).desc(getText("desc.option.resize.counterDigits")).build());
-    options.addOptionGroup(caseGroup);
-    options.addOption(Option.builder("src").hasArg().required(true).desc(getText("desc.option.resize.src")).build());
-    options.addOption(Option.builder("dst").hasArg().required(true).desc(getText("desc.option.resize.dst")).build());
+    for (ImageResizer.Size size : resizer.getSizes()) {
+      dstImageFiles.add(new File(new File(dst, size.toString()), dstImageFileName));
+    }
 
-    //
-    // parse
+    return dstImageFiles;
+  }
 
-    try {
+  private void resizeExecute(final ImageResizer resizer, final File srcImageFile, final List<File> dstImageFiles, final boolean removeMetadata, final ResizeStats.Sample sample) throws IOException {
 
-      CommandLine line = parse(options, args, true);
+    long time = System.nanoTime();
 
-      //
-      // and work
+    for (File dstImageFile : dstImageFiles) {
+      Files.createDirectories(dstImageFile.getParentFile().toPath());
+    }
 
-      String pattern = line.getOptionValue("pattern");
-      int counterDigits = Integer.parseInt(line.getOptionValue("counterDigits", "0"));
-      boolean toLowerCase = line.hasOption("toLowerCase");
-      boolean toUpperCase = line.hasOption("toUpperCase");
+    sample.add(ResizeStats.Stage.WRITE, time);
 
-      File src = new File(line.getOptionValue("src"));
-      File dst = new File(line.getOptionValue("dst"));
+    // the metadata is carried over while writing, when possible (JPEG to JPEG),
+    // and copied with exiftool otherwise
+    for (File dstImageFile : resizer.resize(srcImageFile, dstImageFiles, !removeMetadata, sample)) {
 
-      NumberFormat counterNF = NumberFormat.getIntegerInstance();
-      counterNF.setGroupingUsed(false);
-      counterNF.setMinimumIntegerDigits(counterDigits);
+      time = System.nanoTime();
 
-      if (!src.exists()) {
-        throw new FileNotFoundException("source file (or folder) does not exists: " + src.getAbsolutePath());
+      if (!ImageMetadataSession.getInstance().copyMetadata(srcImageFile, dstImageFile)) {
+        throw new IOException("failed to copy the metadata");
       }
 
-      if (!dst.exists()) {
-        if (!dst.mkdirs()) {
-          throw new IllegalArgumentException("dst.mkdirs() failed");
-        }
-      }
-      if (!dst.isDirectory()) {
-        throw new NotDirectoryException(dst.getAbsolutePath());
-      }
+      sample.add(ResizeStats.Stage.METADATA, time);
+    }
+  }
 
-      if (src.isFile()) {
+  /**
+   * @return the encoding parameters of the JPEG results ("-quality" is a
+   *         percent)
+   */
+  private static ImageCodecs resizeGetCodecs(final CommandLine line) {
 
-        final File srcImageFile = src;
+    float quality = -1;
 
-        System.out.println(getText("text.renaming.image.1", srcImageFile.getPath()));
+    if (line.hasOption("quality")) {
 
-        final Date date = ImageMetadataHandler.getInstance().getDateTimeOriginal(srcImageFile);
+      int percent = Integer.parseInt(line.getOptionValue("quality"));
 
-        if (date == null) {
-          throw new IllegalArgumentException("the image does not have DateTimeOriginal metadata");
-        }
+      if (percent < 0 || percent > 100) {
+        throw new IllegalArgumentException("illegal quality: " + percent + " (expected a value between 0 and 100)");
+      }
 
-        String dstImageFileName = new SimpleDateFormat(pattern).format(date) + renameGetFileExtension(srcImageFile, true);
+      quality = percent / 100f;
+    }
 
-        if (toLowerCase) {
-          dstImageFileName = dstImageFileName.toLowerCase();
-        } else if (toUpperCase) {
-          dstImageFileName = dstImageFileName.toUpperCase();
-        }
+    return new ImageCodecs(quality, line.hasOption("progressive"), line.hasOption("optimizeHuffman"));
+  }
 
-        File dstImageFile = new File(dst, dstImageFileName);
+  /**
+   * Resizes an image from the standard input (or from a file) to the standard
+   * output (or to a file), without temporary files, so the command can be
+   * used in a pipe.
+   */
+  private ResizeStats.Sample resizeStream(final ImageResizer resizer, final String src, final String dst, final String format, final boolean removeMetadata, final boolean overwrite, final PrintStream stdout) throws IOException {
 
-        System.out.println(getText("text.renaming.image.2", dstImageFile.getPath()));
+    if (!src.equals(STD_STREAM) && !new File(src).isFile()) {
+      throw new FileNotFoundException("source file does not exists (only one image can be resized to a stream): " + new File(src).getAbsolutePath());
+    }
 
-        Files.copy(srcImageFile.toPath(), dstImageFile.toPath());
+    if (!dst.equals(STD_STREAM)) {
 
-        System.out.println(getText("text.done"));
+      if (new File(dst).isDirectory()) {
+        throw new IllegalArgumentException("the destination has to be a file when the source is the standard input: " + dst);
       }
 
-      else if (src.isDirectory()) {
-
-        final File[] srcImageFiles = src.listFiles(ImageFileFilter.getInstance());
-
-        if (srcImageFiles == null) {
-          throw new IllegalArgumentException("src.listFiles() returned \"null\"");
-        }
-
-        System.out.println(getText("text.renaming.images.1", srcImageFiles.length));
-        System.out.println(getText("text.renaming.images.2", src.getPath()));
-        System.out.println(getText("text.renaming.images.3", dst.getPath()));
+      if (new File(dst).exists() && !overwrite) {
+        throw new FileAlreadyExistsException(dst, null, "file already exists" + System.getProperty("line.separator") + "use \"-overwrite\" option to overwrite existing file");
+      }
 
-        for (int i = 0; i < srcImageFiles.length; i++) {
-          final File srcImageFile = srcImageFiles[i];
-          final Date date = ImageMetadataHandler.getInstance().getDateTimeOriginal(srcImageFile);
+      Files.createDirectories(new File(dst).getAbsoluteFile().getParentFile().toPath());
+    }
 
-          String dstImageFileName;
+    String formatName = format != null ? format : dst.equals(STD_STREAM) ? null : ImageResizer.getFormatName(new File(dst), null);
 
-          if (date == null) {
-            dstImageFileName = counterNF.format(i + 1) + renameGetFileExtension(srcImageFile, true);
-          }
+    System.out.println(getText("text.resizing.1.image", src.equals(STD_STREAM) ? getText("text.resizing.stdin") : src));
 
-          else {
+    ResizeStats.Sample sample = new ResizeStats.Sample();
+    boolean metadata;
 
-            final String dstPattern = pattern.replaceAll("\\$\\{counter\\}", counterNF.format(i + 1));
-            final SimpleDateFormat dstSDF = new SimpleDateFormat(dstPattern);
+    // the standard streams are left open
+    InputStream in = src.equals(STD_STREAM) ? System.in : Files.newInputStream(new File(src).toPath());
 
-            dstImageFileName = dstSDF.format(date) + renameGetFileExtension(srcImageFile, true);
-          }
+    try {
 
-          if (toLowerCase) {
-            dstImageFileName = dstImageFileName.toLowerCase();
-          } else if (toUpperCase) {
-            dstImageFileName = dstImageFileName.toUpperCase();
-          }
+      OutputStream out = dst.equals(STD_STREAM) ? stdout : new BufferedOutputStream(Files.newOutputStream(new File(dst).toPath()), 64 * 1024);
 
-          Files.copy(srcImageFile.toPath(), new File(dst, dstImageFileName).toPath());
+      try {
+        metadata = resizer.resize(in, out, formatName, !removeMetadata, sample);
+      }
 
-          System.out.println(getText("text.renaming.images.4", srcImageFile.getName(), dstImageFileName));
+      finally {
+        if (out != stdout) {
+          out.close();
         }
-
-        System.out.println(getText("text.done"));
       }
+    }
 
-      else {
-        throw new IllegalArgumentException("illegal input");
+    finally {
+      if (in != System.in) {
+        in.close();
       }
     }
 
-    catch (Throwable e) {
-      printHelp("-image -rename", options, e);
+    if (!metadata) {
+      System.out.println(getText("text.resizing.stream.metadata"));
     }
+
+    System.out.println(getText("text.done"));
+
+    return sample;
   }
 
-  private String renameGetFileExtension(final File file, final boolean includeSeparator) {
-    final String filename = file.getName();
-    final int indexSeparator = filename.lastIndexOf('.');
-    if (indexSeparator == -1) {
-      return "";
-    } else {
-      if (includeSeparator) {
-        return "." + filename.substring(indexSeparator + 1);
-      } else {
-        return filename.substring(indexSeparator + 1);
-      }
+  private void resizePrintStats(final ResizeStats stats, final String report) throws IOException {
+
+    stats.stop();
+
+    System.out.println();
+    System.out.println(getText("text.stats.images", stats.getImages(), formatStat(stats.getSeconds()), formatStat(stats.getImagesPerSecond())));
+    System.out.println(getText("text.stats.read", formatStat(stats.getBytesRead() / 1e6), formatStat(stats.getBytesReadPerSecond() / 1e6)));
+    System.out.println(getText("text.stats.written", formatStat(stats.getBytesWritten() / 1e6), formatStat(stats.getBytesWrittenPerSecond() / 1e6)));
+
+    for (ResizeStats.Stage stage : ResizeStats.Stage.values()) {
+      System.out.println(getText("text.stats.stage", String.format("%-8s", stage.getName()), formatStat(stats.getPercentile(stage, 50)), formatStat(stats.getPercentile(stage, 95)), formatStat(stats.getPercentile(stage, 99)), formatStat(stats.getMax(stage)), formatStat(stats.getTotal(stage))));
+    }
+
+    if (report != null) {
+      stats.writeReport(new File(report));
+      System.out.println(getText("text.stats.report", report));
     }
   }
 
-  private void metadata(final String[] args) {
+  private static String formatStat(final double value) {
+    return String.format("%.1f", value);
+  }
+
+  private void crop(final String[] args) {
 
     //
     // options
 
-    OptionGroup actionGroup = new OptionGroup();
-    actionGroup.setRequired(true);
-    actionGroup.addOption(Option.builder("get").desc(getText("desc.option." + OPTION_METADATA + ".get")).build());
-    actionGroup.addOption(Option.builder("set").desc(getText("desc.option." + OPTION_METADATA + ".set")).build());
-
     Options options = new Options();
-    options.addOption(Option.builder("src").hasArg().required(true).desc(getText("desc.option." + OPTION_METADATA + ".src")).build());
-    options.addOptionGroup(actionGroup);
+    options.addOption(Option.builder("x").hasArg().required(true).desc(getText("desc.option.crop.x")).build());
+    options.addOption(Option.builder("y").hasArg().required(true).desc(getText("desc.option.crop.y")).build());
+    options.addOption(Option.builder("width").hasArg().required(true).desc(getText("desc.option.crop.width")).build());
+    options.addOption(Option.builder("height").hasArg().required(true).desc(getText("desc.option.crop.height")).build());
+    addTransformOptions(options);
 
     //
     // parse
@@ -433,43 +657,24 @@ public class JatooCLICommand extends AbstractCLICommand {
       //
       // and work
 
-      File src = new File(line.getOptionValue("src"));
-
-      if (!src.exists()) {
-        throw new FileNotFoundException("source file (or folder) does not exists: " + src.getAbsolutePath());
-      }
-
-      if (line.hasOption("get")) {
-        metadataGet(src, line.getArgs());
-      }
-
-      else if (line.hasOption("set")) {
-        metadataSet(src, line.getArgs());
-      }
+      List<String> transformation = JpegTran.crop(Integer.parseInt(line.getOptionValue("x")), Integer.parseInt(line.getOptionValue("y")), Integer.parseInt(line.getOptionValue("width")), Integer.parseInt(line.getOptionValue("height")));
 
-      else {
-        throwUnknownOption();
-      }
+      transform(line, transformation, 0);
     }
 
     catch (Throwable e) {
-      printHelp("-image -" + OPTION_METADATA, options, e);
+      printFailure("-image -crop", options, e);
     }
   }
 
-  private void metadataGet(final File src, final String[] args) {
+  private void rotate(final String[] args) {
 
     //
     // options
 
-    OptionGroup optionGroup = new OptionGroup();
-    optionGroup.setRequired(true);
-    optionGroup.addOption(Option.builder("all").desc(getText("desc.option." + OPTION_METADATA + ".get.all")).build());
-    optionGroup.addOption(Option.builder("DateTimeOriginal").desc(getText("desc.option." + OPTION_METADATA + ".get.DateTimeOriginal")).build());
-
     Options options = new Options();
-    options.addOptionGroup(optionGroup);
-    options.addOption(Option.builder("DateTimeOriginalPattern").required(false).hasArg().desc(getText("desc.option." + OPTION_METADATA + ".get.DateTimeOriginalPattern")).build());
+    options.addOption(Option.builder("angle").hasArg().required(true).desc(getText("desc.option.rotate.angle")).build());
+    addTransformOptions(options);
 
     //
     // parse
@@ -481,77 +686,560 @@ public class JatooCLICommand extends AbstractCLICommand {
       //
       // and work
 
-      boolean getAll = line.hasOption("all");
-      boolean getDateTimeOriginal = line.hasOption("DateTimeOriginal");
-      String patternDateTimeOriginal = line.getOptionValue("DateTimeOriginalPattern");
+      String angle = line.getOptionValue("angle");
 
-      if (src.isFile()) {
-        metadataGetPrint(src, getAll, getDateTimeOriginal, patternDateTimeOriginal);
+      if (angle.equalsIgnoreCase("auto")) {
+        transform(line, null, 0);
+      } else {
+        transform(line, null, JpegTran.checkAngle(Integer.parseInt(angle)));
       }
+    }
 
-      else if (src.isDirectory()) {
-
-        File[] srcImageFiles = src.listFiles(ImageFileFilter.getInstance());
+    catch (Throwable e) {
+      printFailure("-image -rotate", options, e);
+    }
+  }
 
-        if (srcImageFiles == null) {
-          throw new IllegalArgumentException("src.listFiles() returned \"null\"");
-        }
+  private void addTransformOptions(final Options options) {
+    options.addOption(Option.builder("trim").required(false).desc(getText("desc.option.transform.trim")).build());
+    options.addOption(Option.builder("overwrite").required(false).desc(getText("desc.option.transform.overwrite")).build());
+    options.addOption(Option.builder("threads").hasArg().required(false).desc(getText("desc.option.transform.threads")).build());
+    options.addOption(Option.builder("recursive").required(false).desc(getText("desc.option.transform.recursive")).build());
+    options.addOption(Option.builder("src").hasArg().required(true).desc(getText("desc.option.transform.src")).build());
+    options.addOption(Option.builder("dst").hasArg().required(true).desc(getText("desc.option.transform.dst")).build());
+  }
 
-        for (File srcImageFile : srcImageFiles) {
-          metadataGetPrint(srcImageFile, getAll, getDateTimeOriginal, patternDateTimeOriginal);
-        }
-      }
+  /**
+   * Transforms (losslessly) the image(s).
+   * 
+   * @param transformation
+   *          the jpegtran transformation, or <code>null</code> to rotate every
+   *          image as it is shown (as given by its EXIF orientation)
+   * @param angle
+   *          the angle of the rotation (0 to only bring the images to the
+   *          normal orientation)
+   */
+  private void transform(final CommandLine line, final List<String> transformation, final int angle) throws IOException {
+
+    final boolean trim = line.hasOption("trim");
+    final boolean overwrite = line.hasOption("overwrite");
+    int threads = Integer.parseInt(line.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+    boolean recursive = line.hasOption("recursive");
+
+    File src = new File(line.getOptionValue("src"));
+    File dst = new File(line.getOptionValue("dst"));
+
+    if (!src.exists()) {
+      throw new FileNotFoundException("source file (or folder) does not exists: " + src.getAbsolutePath());
+    }
 
-      else {
-        throw new IllegalArgumentException("illegal input");
+    if (!dst.exists()) {
+      if (!dst.mkdirs()) {
+        throw new IllegalArgumentException("dst.mkdirs() failed");
       }
     }
+    if (!dst.isDirectory()) {
+      throw new NotDirectoryException(dst.getAbsolutePath());
+    }
 
-    catch (Throwable e) {
-      printHelp("-image -" + OPTION_METADATA + " -get", options, e);
+    JpegTran.checkAvailable();
+
+    if (src.isFile()) {
+
+      System.out.println(getText("text.transforming.1.image", src.getName()));
+
+      transformExecute(src, new File(dst, src.getName()), transformation, angle, trim, overwrite);
+
+      System.out.println(getText("text.done"));
     }
-  }
 
-  private void metadataGetPrint(final File file, final boolean getAll, final boolean getDateTimeOriginal, final String patternDateTimeOriginal) {
+    else if (src.isDirectory()) {
 
-    System.out.println(file);
+      System.out.println(getText("text.transforming.n.images.1", src.getPath()));
 
-    SimpleDateFormat dateFormat = new SimpleDateFormat(patternDateTimeOriginal == null ? "yyyy-MM-dd HH:mm:ss" : patternDateTimeOriginal);
+      BatchExecutor executor = new BatchExecutor(threads) {
 
-    if (getAll) {
+        @Override
+        protected void onSuccess(final String result) {
+          System.out.println(getText("text.transforming.n.images.2", result));
+        }
 
-      ImageMetadata metadata = ImageMetadataHandler.getInstance().getMetadata(file);
+        @Override
+        protected void onFailure(final String name, final Throwable t) {
+          setFailed();
+          System.out.println(getText("text.transforming.n.images.failed", name, t));
+        }
+      };
 
-      System.out.println("   DateTimeOriginal -> " + dateFormat.format(metadata.getDateTimeOriginal()));
-      System.out.println("   ImageWidth -> " + metadata.getImageWidth());
-      System.out.println("   ImageHeight -> " + metadata.getImageHeight());
-    }
+      try (ImageFileWalker walker = new ImageFileWalker(src, recursive)) {
+        for (File file = walker.next(); file != null; file = walker.next()) {
 
-    else {
+          final File srcImageFile = file;
+          final String dstImageFileName = walker.relativize(srcImageFile);
+          final File dstImageFile = new File(dst, dstImageFileName);
 
-      if (getDateTimeOriginal) {
-        System.out.println("   DateTimeOriginal -> " + dateFormat.format(ImageMetadataHandler.getInstance().getDateTimeOriginal(file)));
+          executor.submit(dstImageFileName, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+              transformExecute(srcImageFile, dstImageFile, transformation, angle, trim, overwrite);
+              return dstImageFileName;
+            }
+          });
+        }
       }
 
-      else {
-        throwUnknownOption();
+      finally {
+        executor.finish();
+      }
+
+      if (executor.getFailed() > 0) {
+        System.out.println(getText("text.done.failed", executor.getFailed()));
+      } else {
+        System.out.println(getText("text.done"));
       }
     }
 
-    System.out.println();
+    else {
+      throw new IllegalArgumentException("illegal input");
+    }
   }
 
-  private void metadataSet(final File src, final String[] args) {
+  /**
+   * Transforms an image. After a rotation the EXIF orientation is normal, and
+   * after any transformation the EXIF pixel dimensions are those of the
+   * result and the EXIF thumbnail is dropped.
+   */
+  private void transformExecute(final File srcImageFile, final File dstImageFile, final List<String> transformation, final int angle, final boolean trim, final boolean overwrite) throws IOException {
 
-    //
-    // options
+    if (dstImageFile.exists()) {
 
-    Option.Builder builderDateTimeOriginal = Option.builder("DateTimeOriginal").desc(getText("desc.option." + OPTION_METADATA + ".set.DateTimeOriginal"));
-    builderDateTimeOriginal.hasArgs().numberOfArgs(6).argName(getText("desc.option." + OPTION_METADATA + ".set.DateTimeOriginal.argName"));
+      if (!overwrite) {
+        throw new FileAlreadyExistsException(dstImageFile.getPath(), null, "file already exists" + System.getProperty("line.separator") + "use \"-overwrite\" option to overwrite existing file(s)");
+      }
 
-    Option.Builder builderDateTimeOriginalFromFileName = Option.builder("DateTimeOriginalFromFileName").desc(getText("desc.option." + OPTION_METADATA + ".set.DateTimeOriginalFromFileName"));
+      if (dstImageFile.getCanonicalFile().equals(srcImageFile.getCanonicalFile())) {
+        throw new IllegalArgumentException("the destination is the source: " + srcImageFile.getPath());
+      }
+    }
 
-    OptionGroup optionGroup = new OptionGroup();
+    Files.createDirectories(dstImageFile.getParentFile().toPath());
+
+    if (transformation != null) {
+      JpegTran.transform(srcImageFile, dstImageFile, transformation, trim);
+      ExifReader.updateExif(dstImageFile);
+      return;
+    }
+
+    //
+    // rotate (or only normalize) the image as it is shown
+
+    int orientation = ExifReader.getOrientation(srcImageFile);
+    List<String> rotation = JpegTran.rotate(angle, orientation);
+
+    if (rotation.isEmpty()) {
+      Files.deleteIfExists(dstImageFile.toPath());
+      TransferMode.COPY.transfer(srcImageFile.toPath(), dstImageFile.toPath());
+    }
+
+    else {
+      JpegTran.transform(srcImageFile, dstImageFile, rotation, trim);
+      ExifReader.updateExif(dstImageFile);
+    }
+
+    if (orientation != 1) {
+      ExifReader.resetOrientation(dstImageFile);
+    }
+  }
+
+  private void rename(final String[] args) {
+
+    //
+    // options
+
+    OptionGroup caseGroup = new OptionGroup();
+    caseGroup.setRequired(false);
+    caseGroup.addOption(Option.builder("toLowerCase").desc(getText("desc.option.resize.toLowerCase")).build());
+    caseGroup.addOption(Option.builder("toUpperCase").desc(getText("desc.option.resize.toUpperCase")).build());
+
+    Options options = new Options();
+    options.addOption(Option.builder("pattern").hasArg().required(true).desc(getText("desc.option.rename.pattern")).build());
+    options.addOption(Option.builder("counterDigits").hasArg().required(false).desc(getText("desc.option.resize.counterDigits")).build());
+    options.addOptionGroup(caseGroup);
+    options.addOption(Option.builder("recursive").required(false).desc(getText("desc.option.rename.recursive")).build());
+    options.addOption(Option.builder("cache").required(false).desc(getText("desc.option.rename.cache")).build());
+    options.addOption(Option.builder("mode").hasArg().required(false).desc(getText("desc.option.rename.mode")).build());
+    options.addOption(Option.builder("collision").hasArg().required(false).desc(getText("desc.option.rename.collision")).build());
+    options.addOption(Option.builder("dryRun").required(false).desc(getText("desc.option.rename.dryRun")).build());
+    options.addOption(Option.builder("threads").hasArg().required(false).desc(getText("desc.option.rename.threads")).build());
+    options.addOption(Option.builder("src").hasArg().required(true).desc(getText("desc.option.resize.src")).build());
+    options.addOption(Option.builder("dst").hasArg().required(true).desc(getText("desc.option.resize.dst")).build());
+
+    //
+    // parse
+
+    ImageMetadataCache cache = null;
+
+    try {
+
+      CommandLine line = parse(options, args, true);
+
+      //
+      // and work
+
+      String pattern = line.getOptionValue("pattern");
+      int counterDigits = Integer.parseInt(line.getOptionValue("counterDigits", "0"));
+      boolean toLowerCase = line.hasOption("toLowerCase");
+      boolean toUpperCase = line.hasOption("toUpperCase");
+      boolean recursive = line.hasOption("recursive");
+      TransferMode mode = TransferMode.parse(line.getOptionValue("mode", TransferMode.COPY.name()));
+      RenamePlan.Collision collision = RenamePlan.Collision.parse(line.getOptionValue("collision", RenamePlan.Collision.FAIL.name()));
+      boolean dryRun = line.hasOption("dryRun");
+      int threads = Integer.parseInt(line.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+      ImageMetadataReader metadataReader = new ExifReader(ImageMetadataSession.getInstance());
+
+      if (line.hasOption("cache")) {
+        cache = new ImageMetadataCache(ImageMetadataCache.getDefaultFolder(), metadataReader);
+        metadataReader = cache;
+      }
+
+      File src = new File(line.getOptionValue("src"));
+      File dst = new File(line.getOptionValue("dst"));
+
+      NumberFormat counterNF = NumberFormat.getIntegerInstance();
+      counterNF.setGroupingUsed(false);
+      counterNF.setMinimumIntegerDigits(counterDigits);
+
+      RenamePattern renamePattern = new RenamePattern(pattern, counterNF, toLowerCase, toUpperCase);
+      RenamePlan plan = new RenamePlan(dst, collision, mode);
+
+      if (!src.exists()) {
+        throw new FileNotFoundException("source file (or folder) does not exists: " + src.getAbsolutePath());
+      }
+
+      if (!dst.exists() && !dryRun) {
+        if (!dst.mkdirs()) {
+          throw new IllegalArgumentException("dst.mkdirs() failed");
+        }
+      }
+      if (dst.exists() && !dst.isDirectory()) {
+        throw new NotDirectoryException(dst.getAbsolutePath());
+      }
+
+      //
+      // first the plan (all the new names, checked for collisions),
+      // then the files
+
+      if (src.isFile()) {
+
+        final File srcImageFile = src;
+
+        System.out.println(getText("text.renaming.image.1", srcImageFile.getPath()));
+
+        final Date date = metadataReader.getDateTimeOriginal(srcImageFile);
+
+        if (date == null) {
+          throw new IllegalArgumentException("the image does not have DateTimeOriginal metadata");
+        }
+
+        plan.addSource(srcImageFile);
+        RenamePlan.Entry entry = plan.add(srcImageFile, srcImageFile.getPath(), null, renamePattern.format(srcImageFile, date, 1));
+
+        System.out.println(getText("text.renaming.image.2", entry.getDstFile().getPath()));
+
+        if (!dryRun) {
+          renameExecute(plan, 1, false);
+        }
+
+        System.out.println(dryRun ? getText("text.renaming.dryRun") : getText("text.done"));
+      }
+
+      else if (src.isDirectory()) {
+
+        System.out.println(getText("text.renaming.images.2", src.getPath()));
+        System.out.println(getText("text.renaming.images.3", dst.getPath()));
+
+        //
+        // all the images are registered first (the names of the ones moved
+        // away are free for the others), then the DateTimeOriginal is read in
+        // bulk, in chunks
+
+        Map<File, String> images = new LinkedHashMap<>();
+
+        try (ImageFileWalker walker = new ImageFileWalker(src, recursive)) {
+          for (File srcImageFile = walker.next(); srcImageFile != null; srcImageFile = walker.next()) {
+            images.put(srcImageFile, walker.relativize(srcImageFile));
+            plan.addSource(srcImageFile);
+          }
+        }
+
+        Map<File, String> chunk = new LinkedHashMap<>();
+
+        for (Map.Entry<File, String> image : images.entrySet()) {
+
+          chunk.put(image.getKey(), image.getValue());
+
+          if (chunk.size() == RENAME_CHUNK_SIZE) {
+            renamePlanChunk(metadataReader, chunk, renamePattern, plan);
+            chunk.clear();
+          }
+        }
+
+        renamePlanChunk(metadataReader, chunk, renamePattern, plan);
+
+        if (dryRun) {
+
+          for (RenamePlan.Entry entry : plan.getEntries()) {
+            System.out.println(getText("text.renaming.images.4", entry.getSrcName(), entry.getDstName()));
+          }
+
+          System.out.println(getText("text.renaming.images.1", plan.getEntries().size()));
+          System.out.println(getText("text.renaming.dryRun"));
+        }
+
+        else {
+          renameExecute(plan, threads, true);
+          System.out.println(getText("text.renaming.images.1", plan.getEntries().size()));
+          System.out.println(getText("text.done"));
+        }
+      }
+
+      else {
+        throw new IllegalArgumentException("illegal input");
+      }
+    }
+
+    catch (Throwable e) {
+      printFailure("-image -rename", options, e);
+    }
+
+    finally {
+      closeCache(cache);
+    }
+  }
+
+  private void renamePlanChunk(final ImageMetadataReader metadataReader, final Map<File, String> chunk, final RenamePattern renamePattern, final RenamePlan plan) throws IOException {
+
+    final Map<File, Date> dates = metadataReader.getDateTimeOriginals(new ArrayList<>(chunk.keySet()));
+
+    for (Map.Entry<File, String> entry : chunk.entrySet()) {
+
+      final File srcImageFile = entry.getKey();
+      final String dstImageFileName = renamePattern.format(srcImageFile, dates.get(srcImageFile), plan.getEntries().size() + 1);
+
+      plan.add(srcImageFile, entry.getValue(), new File(entry.getValue()).getParent(), dstImageFileName);
+    }
+  }
+
+  /**
+   * Executes the plan of a rename, in parallel, as a whole: if an image fails,
+   * the ones already renamed are restored.
+   */
+  private void renameExecute(final RenamePlan plan, final int threads, final boolean printEntries) throws IOException {
+
+    plan.createFolders();
+
+    BatchExecutor executor = new BatchExecutor(threads) {
+
+      @Override
+      protected void onSuccess(final String result) {
+        if (result != null) {
+          System.out.println(result);
+        }
+      }
+
+      @Override
+      protected void onFailure(final String name, final Throwable t) {
+        setFailed();
+        System.out.println(getText("text.renaming.images.failed", name, t));
+      }
+    };
+
+    try {
+      for (final RenamePlan.Entry entry : plan.getEntries()) {
+        executor.submit(entry.getSrcName(), new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            return plan.execute(entry) && printEntries ? getText("text.renaming.images.4", entry.getSrcName(), entry.getDstName()) : null;
+          }
+        });
+      }
+    }
+
+    finally {
+      executor.finish();
+    }
+
+    if (!plan.isFailed()) {
+      try {
+        plan.executeTemporaries();
+      } catch (IOException e) {
+        System.out.println(getText("text.renaming.images.failed", e.getMessage(), e));
+      }
+    }
+
+    if (plan.isFailed()) {
+
+      for (File file : plan.rollback()) {
+        System.out.println(getText("text.renaming.images.notRestored", file.getPath()));
+      }
+
+      throw new IOException("the rename failed, the image(s) already renamed were restored");
+    }
+  }
+
+  private void metadata(final String[] args) {
+
+    //
+    // options
+
+    OptionGroup actionGroup = new OptionGroup();
+    actionGroup.setRequired(true);
+    actionGroup.addOption(Option.builder("get").desc(getText("desc.option." + OPTION_METADATA + ".get")).build());
+    actionGroup.addOption(Option.builder("set").desc(getText("desc.option." + OPTION_METADATA + ".set")).build());
+
+    Options options = new Options();
+    options.addOption(Option.builder("src").hasArg().required(true).desc(getText("desc.option." + OPTION_METADATA + ".src")).build());
+    options.addOption(Option.builder("recursive").required(false).desc(getText("desc.option." + OPTION_METADATA + ".recursive")).build());
+    options.addOptionGroup(actionGroup);
+
+    //
+    // parse
+
+    try {
+
+      CommandLine line = parse(options, args, true);
+
+      //
+      // and work
+
+      File src = new File(line.getOptionValue("src"));
+      boolean recursive = line.hasOption("recursive");
+
+      if (!src.exists()) {
+        throw new FileNotFoundException("source file (or folder) does not exists: " + src.getAbsolutePath());
+      }
+
+      if (line.hasOption("get")) {
+        metadataGet(src, recursive, line.getArgs());
+      }
+
+      else if (line.hasOption("set")) {
+        metadataSet(src, recursive, line.getArgs());
+      }
+
+      else {
+        throwUnknownOption();
+      }
+    }
+
+    catch (Throwable e) {
+      printFailure("-image -" + OPTION_METADATA, options, e);
+    }
+  }
+
+  private void metadataGet(final File src, final boolean recursive, final String[] args) {
+
+    //
+    // options
+
+    OptionGroup optionGroup = new OptionGroup();
+    optionGroup.setRequired(true);
+    optionGroup.addOption(Option.builder("all").desc(getText("desc.option." + OPTION_METADATA + ".get.all")).build());
+    optionGroup.addOption(Option.builder("DateTimeOriginal").desc(getText("desc.option." + OPTION_METADATA + ".get.DateTimeOriginal")).build());
+
+    Options options = new Options();
+    options.addOptionGroup(optionGroup);
+    options.addOption(Option.builder("DateTimeOriginalPattern").required(false).hasArg().desc(getText("desc.option." + OPTION_METADATA + ".get.DateTimeOriginalPattern")).build());
+    options.addOption(Option.builder("cache").required(false).desc(getText("desc.option." + OPTION_METADATA + ".get.cache")).build());
+    options.addOption(Option.builder("format").required(false).hasArg().desc(getText("desc.option." + OPTION_METADATA + ".get.format")).build());
+
+    //
+    // parse
+
+    ImageMetadataCache cache = null;
+
+    try {
+
+      CommandLine line = parse(options, args, true);
+
+      //
+      // and work
+
+      boolean getAll = line.hasOption("all");
+      boolean getDateTimeOriginal = line.hasOption("DateTimeOriginal");
+      String patternDateTimeOriginal = line.getOptionValue("DateTimeOriginalPattern");
+      MetadataPrinter.Format format = MetadataPrinter.Format.parse(line.getOptionValue("format", MetadataPrinter.Format.TEXT.name()));
+
+      if (!getAll && !getDateTimeOriginal) {
+        throwUnknownOption();
+      }
+
+      ImageMetadataReader metadataReader = new ExifReader(ImageMetadataSession.getInstance());
+
+      if (line.hasOption("cache")) {
+        cache = new ImageMetadataCache(ImageMetadataCache.getDefaultFolder(), metadataReader);
+        metadataReader = cache;
+      }
+
+      if (!src.isFile() && !src.isDirectory()) {
+        throw new IllegalArgumentException("illegal input");
+      }
+
+      MetadataPrinter printer = new MetadataPrinter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024), format, getAll, patternDateTimeOriginal);
+
+      try {
+
+        if (src.isFile()) {
+          metadataGetPrint(metadataReader, printer, src, getAll);
+        }
+
+        else {
+
+          try (ImageFileWalker walker = new ImageFileWalker(src, recursive)) {
+            for (File srcImageFile = walker.next(); srcImageFile != null; srcImageFile = walker.next()) {
+              metadataGetPrint(metadataReader, printer, srcImageFile, getAll);
+            }
+          }
+        }
+      }
+
+      finally {
+        printer.finish();
+      }
+    }
+
+    catch (Throwable e) {
+      printFailure("-image -" + OPTION_METADATA + " -get", options, e);
+    }
+
+    finally {
+      closeCache(cache);
+    }
+  }
+
+  private void metadataGetPrint(final ImageMetadataReader metadataReader, final MetadataPrinter printer, final File file, final boolean getAll) throws IOException {
+
+    if (getAll) {
+      printer.print(file, metadataReader.getInfo(file));
+    }
+
+    else {
+      printer.print(file, new ImageInfo(metadataReader.getDateTimeOriginal(file), -1, -1));
+    }
+  }
+
+  private void metadataSet(final File src, final boolean recursive, final String[] args) {
+
+    //
+    // options
+
+    Option.Builder builderDateTimeOriginal = Option.builder("DateTimeOriginal").desc(getText("desc.option." + OPTION_METADATA + ".set.DateTimeOriginal"));
+    builderDateTimeOriginal.hasArgs().numberOfArgs(6).argName(getText("desc.option." + OPTION_METADATA + ".set.DateTimeOriginal.argName"));
+
+    Option.Builder builderDateTimeOriginalFromFileName = Option.builder("DateTimeOriginalFromFileName").desc(getText("desc.option." + OPTION_METADATA + ".set.DateTimeOriginalFromFileName"));
+
+    OptionGroup optionGroup = new OptionGroup();
     optionGroup.setRequired(true);
     optionGroup.addOption(builderDateTimeOriginal.build());
     optionGroup.addOption(builderDateTimeOriginalFromFileName.build());
@@ -580,7 +1268,13 @@ public class JatooCLICommand extends AbstractCLICommand {
         int minute = Integer.parseInt(values[4]);
         int second = Integer.parseInt(values[5]);
 
-        ImageMetadataHandler.getInstance().setDateTimeOriginal(src, year, month, day, hour, minute, second);
+        Calendar c = Calendar.getInstance();
+        c.clear();
+        c.set(year, month - 1, day, hour, minute, second);
+
+        if (!ImageMetadataSession.getInstance().setDateTimeOriginal(src, c.getTime())) {
+          throw new IOException("failed to set the DateTimeOriginal metadata field");
+        }
 
         System.out.println(src);
         System.out.println("   DateTimeOriginal -> " + (year + "-" + month + "-" + day + " " + hour + ":" + minute + ":" + second));
@@ -588,7 +1282,7 @@ public class JatooCLICommand extends AbstractCLICommand {
       }
 
       else if (line.hasOption("DateTimeOriginalFromFileName")) {
-        metadataSetDateTimeOriginalFromFileName(src, line.getArgs());
+        metadataSetDateTimeOriginalFromFileName(src, recursive, line.getArgs());
       }
 
       else {
@@ -597,11 +1291,11 @@ public class JatooCLICommand extends AbstractCLICommand {
     }
 
     catch (Throwable e) {
-      printHelp("-image -" + OPTION_METADATA + " -set", options, e);
+      printFailure("-image -" + OPTION_METADATA + " -set", options, e);
     }
   }
 
-  private void metadataSetDateTimeOriginalFromFileName(final File src, final String[] args) {
+  private void metadataSetDateTimeOriginalFromFileName(final File src, final boolean recursive, final String[] args) {
 
     //
     // options
@@ -609,6 +1303,7 @@ public class JatooCLICommand extends AbstractCLICommand {
     Options options = new Options();
     options.addOption(Option.builder("pattern").required(true).hasArg().desc(getText("desc.option." + OPTION_METADATA + ".set.DateTimeOriginalFromFileName.pattern")).build());
     options.addOption(Option.builder("correction").required(false).hasArg().desc(getText("desc.option." + OPTION_METADATA + ".set.DateTimeOriginalFromFileName.correction")).build());
+    options.addOption(Option.builder("threads").required(false).hasArg().desc(getText("desc.option." + OPTION_METADATA + ".set.DateTimeOriginalFromFileName.threads")).build());
 
     //
     // parse
@@ -620,59 +1315,539 @@ public class JatooCLICommand extends AbstractCLICommand {
       //
       // and work
 
-      String pattern = line.getOptionValue("pattern");
+      SimpleDateFormat format = new SimpleDateFormat(line.getOptionValue("pattern"));
       String correction = line.getOptionValue("correction");
+      int threads = Integer.parseInt(line.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+      //
+      // first compute all the new dates
+
+      Map<File, Date> dates = new LinkedHashMap<>();
 
       if (src.isFile()) {
-        metadataSetDateTimeOriginalFromFileNameExecute(src, pattern, correction);
+        metadataSetDateTimeOriginalFromFileNameParse(src, format, correction, dates);
       }
 
       else if (src.isDirectory()) {
 
-        File[] srcImageFiles = src.listFiles(ImageFileFilter.getInstance());
+        try (ImageFileWalker walker = new ImageFileWalker(src, recursive)) {
+          for (File srcImageFile = walker.next(); srcImageFile != null; srcImageFile = walker.next()) {
+            metadataSetDateTimeOriginalFromFileNameParse(srcImageFile, format, correction, dates);
+          }
+        }
+      }
+
+      else {
+        throw new IllegalArgumentException("illegal input");
+      }
+
+      //
+      // and then write them, in chunks (in parallel)
+
+      BatchExecutor executor = new BatchExecutor(threads) {
+
+        @Override
+        protected void onSuccess(final String result) {
+          System.out.print(result);
+        }
 
-        if (srcImageFiles == null) {
-          throw new IllegalArgumentException("src.listFiles() returned \"null\"");
+        @Override
+        protected void onFailure(final String name, final Throwable t) {
+          setFailed();
+          System.out.println(name);
+          System.out.println("   " + t);
+          System.out.println();
         }
+      };
 
-        for (File srcImageFile : srcImageFiles) {
-          metadataSetDateTimeOriginalFromFileNameExecute(srcImageFile, pattern, correction);
+      try {
+
+        List<File> files = new ArrayList<>(dates.keySet());
+
+        for (int from = 0; from < files.size(); from += ImageMetadataSession.BULK_SIZE) {
+
+          final Map<File, Date> chunk = new LinkedHashMap<>();
+
+          for (File file : files.subList(from, Math.min(from + ImageMetadataSession.BULK_SIZE, files.size()))) {
+            chunk.put(file, dates.get(file));
+          }
+
+          executor.submit(files.get(from).getPath(), new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+              return metadataSetDateTimeOriginalFromFileNameExecute(chunk);
+            }
+          });
         }
       }
 
-      else {
-        throw new IllegalArgumentException("illegal input");
+      finally {
+        executor.finish();
       }
     }
 
     catch (Throwable e) {
-      printHelp("-image -" + OPTION_METADATA + " -set -DateTimeOriginalFromFileName", options, e);
+      printFailure("-image -" + OPTION_METADATA + " -set -DateTimeOriginalFromFileName", options, e);
     }
   }
 
-  private void metadataSetDateTimeOriginalFromFileNameExecute(final File file, final String pattern, final String correction) {
-
-    System.out.println(file);
+  private void metadataSetDateTimeOriginalFromFileNameParse(final File file, final DateFormat format, final String correction, final Map<File, Date> dates) {
 
     try {
 
       Calendar c = Calendar.getInstance();
-      c.setTime(new SimpleDateFormat(pattern).parse(file.getName()));
+      c.setTime(format.parse(file.getName()));
 
       if (correction != null) {
         c.add(Calendar.HOUR_OF_DAY, Integer.parseInt(correction));
       }
 
-      ImageMetadataHandler.getInstance().setDateTimeOriginal(file, c.getTime());
-
-      System.out.println("   DateTimeOriginal -> " + SimpleDateFormat.getDateTimeInstance(3, 2).format(c.getTime()));
+      dates.put(file, c.getTime());
     }
 
     catch (ParseException e) {
+      setFailed();
+      System.out.println(file);
       System.out.println("   " + e);
+      System.out.println();
     }
+  }
 
-    System.out.println();
+  /**
+   * Sets the dates of a chunk of files: in place for the files that already
+   * have the DateTimeOriginal (and no other hard links), with a single
+   * exiftool command for the rest.
+   * 
+   * @return the text to be printed for the chunk
+   */
+  private String metadataSetDateTimeOriginalFromFileNameExecute(final Map<File, Date> chunk) throws IOException {
+
+    Map<File, Date> chunkExiftool = new LinkedHashMap<>();
+
+    for (Map.Entry<File, Date> entry : chunk.entrySet()) {
+      if (!ExifReader.setDateTimeOriginal(entry.getKey(), entry.getValue())) {
+        chunkExiftool.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    int updated = ImageMetadataSession.getInstance().setDateTimeOriginals(chunkExiftool);
+
+    if (updated != chunkExiftool.size()) {
+      throw new IOException("failed to set the DateTimeOriginal metadata field: " + (chunkExiftool.size() - updated) + " of the " + chunk.size() + " image(s) starting with this one");
+    }
+
+    DateFormat format = SimpleDateFormat.getDateTimeInstance(3, 2);
+    StringBuilder text = new StringBuilder();
+
+    for (Map.Entry<File, Date> entry : chunk.entrySet()) {
+      text.append(entry.getKey()).append(System.lineSeparator());
+      text.append("   DateTimeOriginal -> ").append(format.format(entry.getValue())).append(System.lineSeparator());
+      text.append(System.lineSeparator());
+    }
+
+    return text.toString();
+  }
+
+  private void dedupe(final String[] args) {
+
+    //
+    // options
+
+    Options options = new Options();
+    options.addOption(Option.builder("similar").required(false).desc(getText("desc.option.dedupe.similar")).build());
+    options.addOption(Option.builder("distance").hasArg().required(false).desc(getText("desc.option.dedupe.distance")).build());
+    options.addOption(Option.builder("link").required(false).desc(getText("desc.option.dedupe.link")).build());
+    options.addOption(Option.builder("threads").hasArg().required(false).desc(getText("desc.option.dedupe.threads")).build());
+    options.addOption(Option.builder("recursive").required(false).desc(getText("desc.option.dedupe.recursive")).build());
+    options.addOption(Option.builder("src").hasArg().required(true).desc(getText("desc.option.dedupe.src")).build());
+
+    //
+    // parse
+
+    try {
+
+      CommandLine line = parse(options, args, true);
+
+      //
+      // and work
+
+      final boolean similar = line.hasOption("similar");
+      int distance = Integer.parseInt(line.getOptionValue("distance", "4"));
+      boolean link = line.hasOption("link");
+      int threads = Integer.parseInt(line.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+      boolean recursive = line.hasOption("recursive");
+
+      File src = new File(line.getOptionValue("src"));
+
+      if (!src.isDirectory()) {
+        throw new NotDirectoryException(src.getAbsolutePath());
+      }
+
+      if (similar && link) {
+        throw new IllegalArgumentException("only the identical images can be linked (\"-link\" cannot be used with \"-similar\")");
+      }
+
+      System.out.println(getText("text.dedupe.1", src.getPath()));
+
+      final Duplicates duplicates = new Duplicates();
+
+      try (ImageFileWalker walker = new ImageFileWalker(src, recursive)) {
+        for (File file = walker.next(); file != null; file = walker.next()) {
+          duplicates.add(file);
+        }
+      }
+
+      //
+      // hash (only the files with the same size, unless looking for similar
+      // images), in parallel
+
+      BatchExecutor executor = new BatchExecutor(threads) {
+
+        @Override
+        protected void onSuccess(final String result) {}
+
+        @Override
+        protected void onFailure(final String name, final Throwable t) {
+          setFailed();
+          System.out.println(getText("text.dedupe.failed", name, t));
+        }
+      };
+
+      try {
+        for (final File file : similar ? duplicates.getAll() : duplicates.getCandidates()) {
+          executor.submit(file.getPath(), new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+              duplicates.addHash(file, similar ? Duplicates.perceptualHash(file) : Duplicates.hash(file));
+              return null;
+            }
+          });
+        }
+      }
+
+      finally {
+        executor.finish();
+      }
+
+      //
+      // report (and link)
+
+      List<List<File>> groups = similar ? duplicates.getSimilarGroups(distance) : duplicates.getGroups();
+
+      int duplicatesCount = 0;
+      long duplicatesSize = 0;
+
+      for (List<File> group : groups) {
+
+        System.out.println();
+        System.out.println(similar ? getText("text.dedupe.group.similar", group.size()) : getText("text.dedupe.group", group.size(), group.get(0).length()));
+
+        File keptFile = group.get(0);
+        System.out.println(getText("text.dedupe.file", keptFile.getPath()));
+
+        for (File duplicate : group.subList(1, group.size())) {
+
+          // the hard links to a duplicate take no space of their own, but they
+          // have to be linked too (or the content is still kept)
+
+          duplicatesCount++;
+          duplicatesSize += duplicate.length();
+
+          List<File> files = new ArrayList<>();
+          files.add(duplicate);
+          files.addAll(duplicates.getLinks(duplicate));
+
+          for (File file : files) {
+
+            if (link) {
+              try {
+                dedupeLink(duplicates, keptFile, file);
+                System.out.println(getText("text.dedupe.file.linked", file.getPath()));
+              } catch (IOException | UnsupportedOperationException e) {
+                setFailed();
+                System.out.println(getText("text.dedupe.failed", file.getPath(), e));
+              }
+            }
+
+            else {
+              System.out.println(getText("text.dedupe.file", file.getPath()));
+            }
+          }
+        }
+      }
+
+      System.out.println();
+      System.out.println(getText("text.dedupe.2", duplicates.getFiles(), groups.size(), duplicatesCount, String.format("%.1f", duplicatesSize / 1e6)));
+
+      if (executor.getFailed() > 0) {
+        System.out.println(getText("text.done.failed", executor.getFailed()));
+      } else {
+        System.out.println(getText("text.done"));
+      }
+    }
+
+    catch (Throwable e) {
+      printFailure("-image -dedupe", options, e);
+    }
+  }
+
+  /**
+   * Replaces a duplicate with a hard link to the kept file (atomically, the
+   * link is created next to the duplicate and then moved over it). Right
+   * before the move, the two files are checked again: they must not have
+   * changed since they were hashed, and they must be identical byte by byte
+   * (the hash alone is not a proof).
+   */
+  private void dedupeLink(final Duplicates duplicates, final File keptFile, final File file) throws IOException {
+
+    Path tmp = file.toPath().resolveSibling(file.getName() + ".jatoo-link.tmp");
+
+    Files.createLink(tmp, keptFile.toPath());
+
+    try {
+
+      if (!duplicates.isUnchanged(keptFile) || !duplicates.isUnchanged(file)) {
+        throw new IOException("the file (or the one kept) changed since it was hashed: " + file.getPath());
+      }
+
+      if (!Duplicates.isSameContent(tmp.toFile(), file)) {
+        throw new IOException("the file is not identical to the one kept: " + file.getPath());
+      }
+
+      Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    catch (IOException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+  }
+
+  private void jobs(final String[] args) {
+
+    //
+    // options
+
+    Options options = new Options();
+    options.addOption(Option.builder("algorithm").hasArg().required(false).desc(getText("desc.option.jobs.algorithm")).build());
+    options.addOption(Option.builder("thumbnail").required(false).desc(getText("desc.option.resize.thumbnail")).build());
+    options.addOption(Option.builder("quality").hasArg().required(false).desc(getText("desc.option.resize.quality")).build());
+    options.addOption(Option.builder("progressive").required(false).desc(getText("desc.option.resize.progressive")).build());
+    options.addOption(Option.builder("optimizeHuffman").required(false).desc(getText("desc.option.resize.optimizeHuffman")).build());
+    options.addOption(Option.builder("removeMetadata").required(false).desc(getText("desc.option.resize.removeMetadata")).build());
+    options.addOption(Option.builder("overwrite").required(false).desc(getText("desc.option.resize.overwrite")).build());
+    options.addOption(Option.builder("threads").hasArg().required(false).desc(getText("desc.option.resize.threads")).build());
+    options.addOption(Option.builder("memoryBudget").hasArg().required(false).desc(getText("desc.option.resize.memoryBudget")).build());
+    options.addOption(Option.builder("stats").required(false).desc(getText("desc.option.resize.stats")).build());
+    options.addOption(Option.builder("statsReport").hasArg().required(false).desc(getText("desc.option.resize.statsReport")).build());
+    options.addOption(Option.builder("src").hasArg().required(true).desc(getText("desc.option.jobs.src")).build());
+
+    //
+    // parse
+
+    try {
+
+      CommandLine line = parse(options, args, true);
+
+      //
+      // and work
+
+      final ScalingAlgorithm algorithm = ScalingAlgorithm.parse(line.getOptionValue("algorithm", ScalingAlgorithm.BICUBIC.name()));
+      final MemoryBudget memoryBudget = line.hasOption("memoryBudget") ? new MemoryBudget(MemoryBudget.parseSize(line.getOptionValue("memoryBudget"))) : MemoryBudget.getDefault();
+      final boolean thumbnails = line.hasOption("thumbnail");
+      final ImageCodecs codecs = resizeGetCodecs(line);
+      final boolean removeMetadata = line.hasOption("removeMetadata");
+      final boolean overwrite = line.hasOption("overwrite");
+      int threads = Integer.parseInt(line.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+      final ResizeStats stats = line.hasOption("stats") || line.hasOption("statsReport") ? new ResizeStats() : null;
+      String statsReport = line.getOptionValue("statsReport");
+
+      File src = new File(line.getOptionValue("src"));
+
+      if (!src.isFile()) {
+        throw new FileNotFoundException("the job list does not exists: " + src.getAbsolutePath());
+      }
+
+      System.out.println(getText("text.jobs.1", src.getPath()));
+
+      //
+      // the jobs are read as they are submitted (the executor blocks when the
+      // workers fall behind), so the list is never loaded in memory
+
+      BatchExecutor executor = new BatchExecutor(threads) {
+
+        @Override
+        protected void onSuccess(final String result) {
+          System.out.println(getText("text.jobs.2", result));
+        }
+
+        @Override
+        protected void onFailure(final String name, final Throwable t) {
+          setFailed();
+          System.out.println(getText("text.jobs.failed", name, t));
+        }
+      };
+
+      int invalid = 0;
+
+      try (JobReader reader = new JobReader(src)) {
+
+        while (true) {
+
+          final JobReader.Job job;
+
+          try {
+            job = reader.next();
+          }
+
+          catch (IllegalArgumentException e) {
+            System.out.println(getText("text.jobs.invalid", e.getMessage()));
+            invalid++;
+            continue;
+          }
+
+          if (job == null) {
+            break;
+          }
+
+          executor.submit(job.getSrc().getPath(), new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+
+              if (!overwrite && job.getDst().exists()) {
+                throw new FileAlreadyExistsException(job.getDst().getPath(), null, "file already exists (line " + job.getLineNumber() + ")");
+              }
+
+              ImageResizer resizer = new ImageResizer(Collections.singletonList(job.getSize()), job.getAlgorithm() != null ? job.getAlgorithm() : algorithm, memoryBudget, thumbnails, codecs);
+
+              ResizeStats.Sample sample = new ResizeStats.Sample();
+              resizeExecute(resizer, job.getSrc(), Collections.singletonList(job.getDst()), removeMetadata, sample);
+
+              if (stats != null) {
+                stats.add(sample);
+              }
+
+              return job.getDst().getPath();
+            }
+          });
+        }
+      }
+
+      finally {
+        executor.finish();
+      }
+
+      System.out.println(getText("text.jobs.3", executor.getSucceeded(), executor.getFailed(), invalid));
+
+      if (executor.getFailed() > 0 || invalid > 0) {
+        System.out.println(getText("text.done.failed", executor.getFailed() + invalid));
+      } else {
+        System.out.println(getText("text.done"));
+      }
+
+      if (stats != null) {
+        resizePrintStats(stats, statsReport);
+      }
+    }
+
+    catch (Throwable e) {
+      printFailure("-image -jobs", options, e);
+    }
+  }
+
+  private void server(final String[] args) {
+
+    //
+    // options
+
+    Options options = new Options();
+    options.addOption(Option.builder("port").hasArg().required(false).desc(getText("desc.option.server.port")).build());
+
+    //
+    // parse
+
+    try {
+
+      CommandLine line = parse(options, args, true);
+
+      //
+      // and work
+
+      ImageServer server = new ImageServer(this);
+
+      if (line.hasOption("port")) {
+        int port = Integer.parseInt(line.getOptionValue("port"));
+        System.out.println(getText("text.server.port", port, ImageServer.getTokenFile(port).getPath()));
+        server.serve(port);
+      }
+
+      else {
+        server.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), System.out);
+      }
+    }
+
+    catch (Throwable e) {
+      printFailure("-image -server", options, e);
+    }
+  }
+
+  private void client(final String[] args) {
+
+    //
+    // options
+
+    Options options = new Options();
+    options.addOption(Option.builder("port").hasArg().required(true).desc(getText("desc.option.client.port")).build());
+    options.addOption(Option.builder("tokenFile").hasArg().required(false).desc(getText("desc.option.client.tokenFile")).build());
+
+    //
+    // parse
+
+    try {
+
+      CommandLine line = parse(options, args, true);
+
+      //
+      // and work
+
+      int port = Integer.parseInt(line.getOptionValue("port"));
+      File tokenFile = line.hasOption("tokenFile") ? new File(line.getOptionValue("tokenFile")) : ImageServer.getTokenFile(port);
+
+      // the status of the job is the exit code of the client
+
+      if (!ImageServer.send(port, tokenFile, line.getArgs(), System.out)) {
+        System.exit(1);
+      }
+    }
+
+    catch (Throwable e) {
+      printFailure("-image -client", options, e);
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Prints the help, after an error, and marks the command as failed.
+   */
+  private void printFailure(final String syntax, final Options options, final Throwable t) {
+    setFailed();
+    printHelp(syntax, options, t);
+  }
+
+  private static void setFailed() {
+    FAILED.set(Boolean.TRUE);
+  }
+
+  private void closeCache(final ImageMetadataCache cache) {
+
+    if (cache != null) {
+      try {
+        cache.close();
+      } catch (IOException e) {
+        setFailed();
+        System.out.println(getText("text.cache.failed", e));
+      }
+    }
   }
 
 }
@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a list of resize jobs, one per line, as the lines are needed (the
+ * list is never loaded in memory, so it can have millions of jobs).
+ * <p>
+ * A line is either a JSON object (JSON lines):
+ * 
+ * <pre>
+ * {"src": "in/1.jpg", "dst": "out/1.jpg", "width": 400, "height": 300, "mode": "fill", "algorithm": "bilinear"}
+ * </pre>
+ * 
+ * or comma separated values, in the order given by a header line (the first
+ * line that is not empty or a comment, if it has a "src" column) or, without
+ * a header, in this order:
+ * 
+ * <pre>
+ * src,dst,width,height,mode,algorithm
+ * in/1.jpg,out/1.jpg,400,300,fill,bilinear
+ * </pre>
+ * 
+ * The mode ("fit", the default, or "fill") and the algorithm are optional.
+ * The empty lines and the lines starting with "#" are skipped.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class JobReader implements Closeable {
+
+  private static final String[] DEFAULT_COLUMNS = { "src", "dst", "width", "height", "mode", "algorithm" };
+
+  private final BufferedReader reader;
+
+  private String[] columns = DEFAULT_COLUMNS;
+  private int lineNumber;
+
+  /** <code>true</code> once the first line with content was read */
+  private boolean started;
+
+  JobReader(final File file) throws IOException {
+    this.reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return the next job, or <code>null</code> if there are no more jobs
+   * 
+   * @throws IllegalArgumentException
+   *           if the line is not a valid job (the next call goes on with the
+   *           next line)
+   */
+  Job next() throws IOException {
+
+    String line;
+
+    while ((line = reader.readLine()) != null) {
+
+      lineNumber++;
+      line = line.trim();
+
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+
+      boolean first = !started;
+      started = true;
+
+      if (line.startsWith("{")) {
+        return parseJob(parseJSON(line));
+      }
+
+      List<String> values = parseCSV(line);
+
+      if (first && values.contains("src")) {
+        columns = values.toArray(new String[values.size()]);
+        continue;
+      }
+
+      Map<String, String> fields = new HashMap<>();
+
+      for (int i = 0; i < values.size() && i < columns.length; i++) {
+        fields.put(columns[i], values.get(i));
+      }
+
+      return parseJob(fields);
+    }
+
+    return null;
+  }
+
+  /**
+   * @return the number of the last line read
+   */
+  int getLineNumber() {
+    return lineNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private Job parseJob(final Map<String, String> fields) {
+
+    String src = fields.get("src");
+    String dst = fields.get("dst");
+    String width = fields.get("width");
+    String height = fields.get("height");
+    String mode = fields.get("mode");
+    String algorithm = fields.get("algorithm");
+
+    if (src == null || src.isEmpty() || dst == null || dst.isEmpty() || width == null || height == null) {
+      throw new IllegalArgumentException("line " + lineNumber + ": src, dst, width and height are required");
+    }
+
+    if (mode != null && !mode.isEmpty() && !mode.equals("fit") && !mode.equals("fill")) {
+      throw new IllegalArgumentException("line " + lineNumber + ": unknown mode: " + mode + " (expected one of: fit, fill)");
+    }
+
+    try {
+
+      ImageResizer.Size size = new ImageResizer.Size(mode == null || !mode.equals("fill"), Integer.parseInt(width), Integer.parseInt(height));
+
+      return new Job(lineNumber, new File(src), new File(dst), size, algorithm == null || algorithm.isEmpty() ? null : ScalingAlgorithm.parse(algorithm));
+    }
+
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("line " + lineNumber + ": illegal size: " + width + "x" + height, e);
+    }
+
+    catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Splits a line of comma separated values (the values can be quoted, with
+   * the quotes doubled inside).
+   */
+  private List<String> parseCSV(final String line) {
+
+    List<String> values = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    boolean quoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+
+      char c = line.charAt(i);
+
+      if (quoted) {
+
+        if (c != '"') {
+          value.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          value.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      }
+
+      else if (c == '"') {
+        quoted = true;
+      }
+
+      else if (c == ',') {
+        values.add(value.toString().trim());
+        value.setLength(0);
+      }
+
+      else {
+        value.append(c);
+      }
+    }
+
+    if (quoted) {
+      throw new IllegalArgumentException("line " + lineNumber + ": unterminated quote");
+    }
+
+    values.add(value.toString().trim());
+
+    return values;
+  }
+
+  /**
+   * Parses a flat JSON object (the values can be strings, numbers, booleans
+   * or null, not objects or arrays).
+   */
+  private Map<String, String> parseJSON(final String line) {
+
+    Map<String, String> fields = new HashMap<>();
+    int[] position = { skipWhitespace(line, 1) };
+
+    if (position[0] < line.length() && line.charAt(position[0]) == '}') {
+      return fields;
+    }
+
+    while (true) {
+
+      String name = parseJSONString(line, position);
+
+      position[0] = skipWhitespace(line, position[0]);
+      expect(line, position, ':');
+      position[0] = skipWhitespace(line, position[0]);
+
+      String value;
+
+      if (position[0] < line.length() && line.charAt(position[0]) == '"') {
+        value = parseJSONString(line, position);
+      }
+
+      else {
+
+        int start = position[0];
+
+        while (position[0] < line.length() && ",} \t".indexOf(line.charAt(position[0])) == -1) {
+          position[0]++;
+        }
+
+        value = line.substring(start, position[0]);
+
+        if (value.isEmpty() || value.startsWith("{") || value.startsWith("[")) {
+          throw new IllegalArgumentException("line " + lineNumber + ": unsupported value for: " + name);
+        }
+
+        if (value.equals("null")) {
+          value = null;
+        }
+      }
+
+      fields.put(name, value);
+
+      position[0] = skipWhitespace(line, position[0]);
+
+      if (position[0] < line.length() && line.charAt(position[0]) == '}') {
+        return fields;
+      }
+
+      expect(line, position, ',');
+      position[0] = skipWhitespace(line, position[0]);
+    }
+  }
+
+  private String parseJSONString(final String line, final int[] position) {
+
+    expect(line, position, '"');
+
+    StringBuilder text = new StringBuilder();
+
+    while (true) {
+
+      if (position[0] >= line.length()) {
+        throw new IllegalArgumentException("line " + lineNumber + ": unterminated string");
+      }
+
+      char c = line.charAt(position[0]++);
+
+      if (c == '"') {
+        return text.toString();
+      }
+
+      if (c != '\\') {
+        text.append(c);
+        continue;
+      }
+
+      if (position[0] >= line.length()) {
+        throw new IllegalArgumentException("line " + lineNumber + ": unterminated string");
+      }
+
+      c = line.charAt(position[0]++);
+
+      switch (c) {
+        case 'b':
+          text.append('\b');
+          break;
+        case 'f':
+          text.append('\f');
+          break;
+        case 'n':
+          text.append('\n');
+          break;
+        case 'r':
+          text.append('\r');
+          break;
+        case 't':
+          text.append('\t');
+          break;
+        case 'u':
+          if (position[0] + 4 > line.length()) {
+            throw new IllegalArgumentException("line " + lineNumber + ": illegal escape");
+          }
+          text.append((char) Integer.parseInt(line.substring(position[0], position[0] + 4), 16));
+          position[0] += 4;
+          break;
+        default:
+          text.append(c);
+          break;
+      }
+    }
+  }
+
+  private void expect(final String line, final int[] position, final char c) {
+
+    if (position[0] >= line.length() || line.charAt(position[0]) != c) {
+      throw new IllegalArgumentException("line " + lineNumber + ": expected '" + c + "' at column " + (position[0] + 1));
+    }
+
+    position[0]++;
+  }
+
+  private static int skipWhitespace(final String line, final int position) {
+
+    int i = position;
+
+    while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+      i++;
+    }
+
+    return i;
+  }
+
+  /**
+   * A resize job: an image to be resized to a file.
+   */
+  static final class Job {
+
+    private final int lineNumber;
+    private final File src;
+    private final File dst;
+    private final ImageResizer.Size size;
+    private final ScalingAlgorithm algorithm;
+
+    private Job(final int lineNumber, final File src, final File dst, final ImageResizer.Size size, final ScalingAlgorithm algorithm) {
+      this.lineNumber = lineNumber;
+      this.src = src;
+      this.dst = dst;
+      this.size = size;
+      this.algorithm = algorithm;
+    }
+
+    int getLineNumber() {
+      return lineNumber;
+    }
+
+    File getSrc() {
+      return src;
+    }
+
+    File getDst() {
+      return dst;
+    }
+
+    ImageResizer.Size getSize() {
+      return size;
+    }
+
+    /**
+     * @return the algorithm of the job, or <code>null</code> for the default
+     *         one
+     */
+    ScalingAlgorithm getAlgorithm() {
+      return algorithm;
+    }
+  }
+
+}
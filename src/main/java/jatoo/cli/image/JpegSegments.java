@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Carries the metadata of a JPEG (the EXIF, XMP and IPTC segments) over to
+ * another JPEG, in process: the segments are read from the header of the
+ * source (while it is being decoded anyway) and written right after the start
+ * of the encoded image, in place of the segments written by the encoder. The
+ * destination is written only once.
+ * <p>
+ * The ICC profile is not carried over: the decoder converts the pixels from
+ * the embedded profile to sRGB, so the profile no longer describes the
+ * resized image. The EXIF is updated for the new size (the pixel dimensions
+ * and the thumbnail, see {@link #resize(List, int, int)}).
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class JpegSegments {
+
+  private static final int SOI = 0xD8;
+  private static final int EOI = 0xD9;
+  private static final int SOS = 0xDA;
+  private static final int TEM = 0x01;
+  private static final int RST0 = 0xD0;
+  private static final int RST7 = 0xD7;
+
+  /** JFIF */
+  private static final int APP0 = 0xE0;
+  /** EXIF, XMP */
+  private static final int APP1 = 0xE1;
+  /** ICC profile, multi picture (not carried) */
+  private static final int APP2 = 0xE2;
+  /** Photoshop, IPTC */
+  private static final int APP13 = 0xED;
+
+  private static final byte[] EXIF = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+
+  private JpegSegments() {}
+
+  /**
+   * Reads the metadata segments from the header of a JPEG, starting from the
+   * current position of the stream (which should be the start of the image).
+   * 
+   * @return the metadata segments (each one complete, with the marker and the
+   *         length), in the order they were found
+   */
+  static List<byte[]> read(final ImageInputStream stream) throws IOException {
+
+    List<byte[]> segments = new ArrayList<>();
+
+    if (stream.readUnsignedByte() != 0xFF || stream.readUnsignedByte() != SOI) {
+      throw new IOException("not a JPEG image");
+    }
+
+    while (true) {
+
+      int marker = readMarker(stream);
+
+      if (marker == -1 || marker == SOS || marker == EOI) {
+        break;
+      }
+
+      if (isStandalone(marker)) {
+        continue;
+      }
+
+      int length = stream.readUnsignedShort();
+
+      if (length < 2) {
+        throw new IOException("corrupted JPEG segment: " + Integer.toHexString(marker));
+      }
+
+      if (marker == APP1 || marker == APP13) {
+
+        byte[] segment = new byte[length + 2];
+        segment[0] = (byte) 0xFF;
+        segment[1] = (byte) marker;
+        segment[2] = (byte) (length >> 8);
+        segment[3] = (byte) length;
+        stream.readFully(segment, 4, length - 2);
+
+        segments.add(segment);
+      }
+
+      else {
+        stream.skipBytes(length - 2);
+      }
+    }
+
+    return segments;
+  }
+
+  /**
+   * Prepares the segments for a resized image: the EXIF is copied and updated
+   * for the new size (the PixelXDimension and the PixelYDimension are set, the
+   * thumbnail is dropped), the other segments are shared. A corrupted EXIF is
+   * carried over as it is.
+   */
+  static List<byte[]> resize(final List<byte[]> segments, final int width, final int height) {
+
+    List<byte[]> resized = new ArrayList<>(segments.size());
+
+    for (byte[] segment : segments) {
+
+      if ((segment[1] & 0xFF) != APP1 || !startsWith(segment, 4, EXIF)) {
+        resized.add(segment);
+        continue;
+      }
+
+      byte[] copy = segment.clone();
+
+      try {
+
+        int length = ExifReader.updateExif(ByteBuffer.wrap(copy), 4 + EXIF.length, width, height);
+
+        if (length < copy.length) {
+          copy = Arrays.copyOf(copy, length);
+          copy[2] = (byte) ((length - 2) >> 8);
+          copy[3] = (byte) (length - 2);
+        }
+
+        resized.add(copy);
+      }
+
+      catch (IndexOutOfBoundsException e) {
+        resized.add(segment);
+      }
+    }
+
+    return resized;
+  }
+
+  /**
+   * Writes a JPEG image (as encoded by an image writer) to a file, with the
+   * specified metadata segments instead of its own.
+   */
+  static void write(final byte[] image, final int imageLength, final List<byte[]> segments, final File file) throws IOException {
+
+    int offset = getEncoderSegmentsEnd(image, imageLength);
+
+    try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file.toPath()), 64 * 1024)) {
+      write(image, offset, imageLength, segments, stream);
+    }
+  }
+
+  /**
+   * Writes a JPEG image (as encoded by an image writer) to a stream (left
+   * open), with the specified metadata segments instead of its own.
+   */
+  static void write(final byte[] image, final int imageLength, final List<byte[]> segments, final OutputStream stream) throws IOException {
+    write(image, getEncoderSegmentsEnd(image, imageLength), imageLength, segments, stream);
+  }
+
+  private static void write(final byte[] image, final int offset, final int imageLength, final List<byte[]> segments, final OutputStream stream) throws IOException {
+
+    stream.write(image, 0, 2);
+
+    for (byte[] segment : segments) {
+      stream.write(segment);
+    }
+
+    stream.write(image, offset, imageLength - offset);
+  }
+
+  /**
+   * @return the offset right after the segments written by the encoder that
+   *         are replaced (APP0, APP1, APP2 and APP13)
+   */
+  private static int getEncoderSegmentsEnd(final byte[] image, final int imageLength) throws IOException {
+
+    if (imageLength < 4 || (image[0] & 0xFF) != 0xFF || (image[1] & 0xFF) != SOI) {
+      throw new IOException("not a JPEG image");
+    }
+
+    //
+    // skip the segments written by the encoder that are replaced
+
+    int offset = 2;
+
+    while (offset + 4 <= imageLength && (image[offset] & 0xFF) == 0xFF) {
+
+      int marker = image[offset + 1] & 0xFF;
+
+      if (marker != APP0 && marker != APP1 && marker != APP2 && marker != APP13) {
+        break;
+      }
+
+      offset += 2 + (((image[offset + 2] & 0xFF) << 8) | (image[offset + 3] & 0xFF));
+    }
+
+    return offset;
+  }
+
+  private static int readMarker(final ImageInputStream stream) throws IOException {
+
+    int b = stream.read();
+
+    if (b != 0xFF) {
+      return -1;
+    }
+
+    // fill bytes
+    while (b == 0xFF) {
+      b = stream.read();
+    }
+
+    return b;
+  }
+
+  private static boolean isStandalone(final int marker) {
+    return marker == TEM || (marker >= RST0 && marker <= RST7);
+  }
+
+  private static boolean startsWith(final byte[] bytes, final int offset, final byte[] prefix) {
+
+    if (bytes.length - offset < prefix.length) {
+      return false;
+    }
+
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[offset + i] != prefix[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lossless transformations of JPEG images (rotate, flip, crop), done by
+ * jpegtran directly on the DCT coefficients, without decoding and encoding
+ * again: the quality is kept and the cost is (almost) only the I/O.
+ * <p>
+ * All the metadata is copied ("-copy all"). The rotations are "perfect" (they
+ * fail if the size of the image is not a multiple of the MCU size), unless
+ * the partial edge blocks can be dropped ("-trim"). The crops are aligned
+ * (down) to the MCU grid by jpegtran.
+ * <p>
+ * The rotations are of the image as it is shown: the EXIF orientation is
+ * applied in the same transformation (see {@link #rotate(int, int)}).
+ * <p>
+ * jpegtran is not part of the JDK: it comes with libjpeg (or libjpeg-turbo),
+ * and it is looked up in the path, unless specified with the
+ * {@value #PROPERTY_EXECUTABLE} system property.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class JpegTran {
+
+  /** The system property that can be used to specify the jpegtran executable. */
+  static final String PROPERTY_EXECUTABLE = "jatoo.cli.image.jpegtran";
+
+  /**
+   * The transformations that bring an image with an EXIF orientation (the
+   * index) to the normal orientation (see {@link #normalize(int)}), as the
+   * matrices {a, b, c, d} that move the pixels from (x, y) to (a * x + b * y,
+   * c * x + d * y), with y pointing down.
+   */
+  private static final int[][] NORMALIZATIONS = {
+      null,
+      { 1, 0, 0, 1 },
+      { -1, 0, 0, 1 },
+      { -1, 0, 0, -1 },
+      { 1, 0, 0, -1 },
+      { 0, 1, 1, 0 },
+      { 0, -1, 1, 0 },
+      { 0, -1, -1, 0 },
+      { 0, 1, -1, 0 } };
+
+  private JpegTran() {}
+
+  /**
+   * @return the angle, if it is a rotation (0, 90, 180 or 270 degrees)
+   */
+  static int checkAngle(final int angle) {
+
+    if (angle != 0 && angle != 90 && angle != 180 && angle != 270) {
+      throw new IllegalArgumentException("illegal angle: " + angle + " (expected one of: 90, 180, 270)");
+    }
+
+    return angle;
+  }
+
+  /**
+   * @return the jpegtran arguments that rotate (clockwise) an image with the
+   *         specified EXIF orientation as it is shown: the normalization and
+   *         the rotation in a single transformation (an empty list if they
+   *         cancel each other), after which the orientation is normal
+   */
+  static List<String> rotate(final int angle, final int orientation) {
+
+    int[] rotation = NORMALIZATIONS[checkAngle(angle) == 90 ? 6 : angle == 180 ? 3 : angle == 270 ? 8 : 1];
+    int[] normalization = NORMALIZATIONS[orientation >= 1 && orientation <= 8 ? orientation : 1];
+
+    int[] transformation = {
+        rotation[0] * normalization[0] + rotation[1] * normalization[2],
+        rotation[0] * normalization[1] + rotation[1] * normalization[3],
+        rotation[2] * normalization[0] + rotation[3] * normalization[2],
+        rotation[2] * normalization[1] + rotation[3] * normalization[3] };
+
+    for (int i = 1; i < NORMALIZATIONS.length; i++) {
+      if (Arrays.equals(NORMALIZATIONS[i], transformation)) {
+        return normalize(i);
+      }
+    }
+
+    throw new IllegalStateException("not a transformation of a rectangle: " + Arrays.toString(transformation));
+  }
+
+  /**
+   * @return the jpegtran arguments that bring an image with the specified
+   *         EXIF orientation to the normal orientation (an empty list if the
+   *         orientation is already normal)
+   */
+  static List<String> normalize(final int orientation) {
+
+    switch (orientation) {
+      case 2:
+        return Arrays.asList("-flip", "horizontal");
+      case 3:
+        return Arrays.asList("-rotate", "180");
+      case 4:
+        return Arrays.asList("-flip", "vertical");
+      case 5:
+        return Arrays.asList("-transpose");
+      case 6:
+        return Arrays.asList("-rotate", "90");
+      case 7:
+        return Arrays.asList("-transverse");
+      case 8:
+        return Arrays.asList("-rotate", "270");
+      default:
+        return Collections.emptyList();
+    }
+  }
+
+  /**
+   * @return the jpegtran arguments that crop a rectangle from an image
+   */
+  static List<String> crop(final int x, final int y, final int width, final int height) {
+
+    if (x < 0 || y < 0 || width < 1 || height < 1) {
+      throw new IllegalArgumentException("illegal rectangle: " + width + "x" + height + "+" + x + "+" + y);
+    }
+
+    return Arrays.asList("-crop", width + "x" + height + "+" + x + "+" + y);
+  }
+
+  /**
+   * Checks that jpegtran can be run, so a batch fails once, with the reason,
+   * and not for every image.
+   */
+  static void checkAvailable() throws IOException {
+
+    String executable = getExecutable();
+    Process process;
+
+    try {
+      process = new ProcessBuilder(executable, "-version").redirectErrorStream(true).start();
+    } catch (IOException e) {
+      throw new IOException("jpegtran cannot be run (" + executable + "): install libjpeg or libjpeg-turbo, or specify the executable with -D" + PROPERTY_EXECUTABLE + "=...", e);
+    }
+
+    process.getOutputStream().close();
+
+    try (InputStream stream = process.getInputStream()) {
+      while (stream.read() != -1) {
+        // only the exit matters
+      }
+    }
+
+    try {
+      process.waitFor();
+    } catch (InterruptedException e) {
+      process.destroy();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for jpegtran");
+    }
+  }
+
+  /**
+   * Transforms an image.
+   * 
+   * @param transformation
+   *          the jpegtran arguments of the transformation
+   * @param trim
+   *          <code>true</code> to drop the partial edge blocks that cannot be
+   *          transformed, <code>false</code> to fail instead
+   */
+  static void transform(final File srcFile, final File dstFile, final List<String> transformation, final boolean trim) throws IOException {
+
+    List<String> command = new ArrayList<>();
+    command.add(getExecutable());
+    command.add("-copy");
+    command.add("all");
+    command.add(trim ? "-trim" : "-perfect");
+    command.addAll(transformation);
+    command.add("-outfile");
+    command.add(dstFile.getPath());
+    command.add(srcFile.getPath());
+
+    ProcessBuilder builder = new ProcessBuilder(command);
+    builder.redirectErrorStream(true);
+
+    Process process = builder.start();
+    process.getOutputStream().close();
+
+    StringBuilder output = new StringBuilder();
+
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        output.append(line).append(' ');
+      }
+    }
+
+    int exitCode;
+
+    try {
+      exitCode = process.waitFor();
+    } catch (InterruptedException e) {
+      process.destroy();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for jpegtran");
+    }
+
+    if (exitCode != 0) {
+
+      if (!dstFile.delete()) {
+        dstFile.deleteOnExit();
+      }
+
+      throw new IOException("jpegtran failed (" + exitCode + "): " + output.toString().trim());
+    }
+  }
+
+  private static String getExecutable() {
+    return System.getProperty(PROPERTY_EXECUTABLE, "jpegtran");
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the memory taken by the images being resized at the same time: before
+ * decoding, an image has to be admitted with its estimated size (the decoded
+ * raster, the intermediate and the final images), and the size is given back
+ * once the results are written.
+ * <p>
+ * The admission is fair (first come, first served), so a very large image
+ * waits only for the images already admitted, and then runs (almost) alone.
+ * An image larger than the whole budget is admitted with the whole budget.
+ * <p>
+ * The budget only bounds the memory, it does not add throughput: every image
+ * is still decoded, scaled and encoded on the same thread, and a thread that
+ * waits for memory is idle meanwhile.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class MemoryBudget {
+
+  /** the budget is kept in kilobytes (so it fits in the permits of a semaphore) */
+  private static final int UNIT = 1024;
+
+  private final int permits;
+  private final Semaphore semaphore;
+
+  /**
+   * @param bytes
+   *          the budget, in bytes
+   */
+  MemoryBudget(final long bytes) {
+
+    if (bytes < 1) {
+      throw new IllegalArgumentException("illegal memory budget: " + bytes);
+    }
+
+    this.permits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes / UNIT));
+    this.semaphore = new Semaphore(permits, true);
+  }
+
+  /**
+   * @return a budget of a half of the maximum heap
+   */
+  static MemoryBudget getDefault() {
+    return new MemoryBudget(Runtime.getRuntime().maxMemory() / 2);
+  }
+
+  /**
+   * Waits until the specified memory is available and takes it.
+   * 
+   * @return what has to be given back with {@link #release(int)}
+   */
+  int acquire(final long bytes) throws InterruptedIOException {
+
+    int n = (int) Math.min(permits, Math.max(1, (bytes + UNIT - 1) / UNIT));
+
+    try {
+      semaphore.acquire(n);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for memory");
+    }
+
+    return n;
+  }
+
+  void release(final int acquired) {
+    semaphore.release(acquired);
+  }
+
+  /**
+   * @return the memory available right now, in bytes
+   */
+  long getAvailable() {
+    return (long) semaphore.availablePermits() * UNIT;
+  }
+
+  /**
+   * Parses a size, in bytes or with a unit, like "512m" or "2g".
+   */
+  static long parseSize(final String text) {
+
+    String value = text.trim().toLowerCase();
+    long multiplier = 1;
+
+    if (value.endsWith("k")) {
+      multiplier = 1024L;
+    } else if (value.endsWith("m")) {
+      multiplier = 1024L * 1024;
+    } else if (value.endsWith("g")) {
+      multiplier = 1024L * 1024 * 1024;
+    }
+
+    if (multiplier > 1) {
+      value = value.substring(0, value.length() - 1).trim();
+    }
+
+    try {
+      return Long.parseLong(value) * multiplier;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("illegal size: " + text + " (expected something like: 512m or 2g)");
+    }
+  }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Prints the metadata read by "-metadata -get", as text (for people) or as
+ * JSON, JSON lines or CSV (for other programs). Everything goes through the
+ * same writer and the same date format, so the printer is meant to be used
+ * from a single thread.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class MetadataPrinter {
+
+  static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+  /**
+   * The output formats.
+   */
+  enum Format {
+
+    /** the file and then the fields, one per line, indented */
+    TEXT,
+
+    /** an array with an object for every file */
+    JSON,
+
+    /** an object for every file, one per line */
+    JSONL,
+
+    /** a header line and then a line for every file */
+    CSV;
+
+    /**
+     * @return the format with the specified name (case insensitive)
+     */
+    static Format parse(final String name) {
+
+      for (Format format : values()) {
+        if (format.name().equalsIgnoreCase(name)) {
+          return format;
+        }
+      }
+
+      throw new IllegalArgumentException("unknown format: " + name + " (expected one of: text, json, jsonl, csv)");
+    }
+  }
+
+  private final Writer writer;
+  private final Format format;
+  private final boolean all;
+  private final SimpleDateFormat dateFormat;
+
+  private int count;
+
+  /**
+   * @param all
+   *          <code>true</code> to print all the fields, <code>false</code> to
+   *          print only the DateTimeOriginal
+   * @param datePattern
+   *          the pattern of the DateTimeOriginal, or <code>null</code> for the
+   *          default one
+   */
+  MetadataPrinter(final Writer writer, final Format format, final boolean all, final String datePattern) {
+    this.writer = writer;
+    this.format = format;
+    this.all = all;
+    this.dateFormat = new SimpleDateFormat(datePattern == null ? DEFAULT_DATE_PATTERN : datePattern);
+  }
+
+  void print(final File file, final ImageInfo info) throws IOException {
+
+    String date = info.getDateTimeOriginal() == null ? null : dateFormat.format(info.getDateTimeOriginal());
+
+    switch (format) {
+
+      case TEXT:
+
+        writer.write(file.getPath());
+        writer.write(System.lineSeparator());
+        writer.write("   DateTimeOriginal -> ");
+        writer.write(date == null ? "" : date);
+        writer.write(System.lineSeparator());
+
+        if (all) {
+          writer.write("   ImageWidth -> ");
+          writer.write(Integer.toString(info.getImageWidth()));
+          writer.write(System.lineSeparator());
+          writer.write("   ImageHeight -> ");
+          writer.write(Integer.toString(info.getImageHeight()));
+          writer.write(System.lineSeparator());
+        }
+
+        writer.write(System.lineSeparator());
+
+        break;
+
+      case JSON:
+      case JSONL:
+
+        if (format == Format.JSON) {
+          writer.write(count == 0 ? "[\n  " : ",\n  ");
+        }
+
+        writer.write("{\"File\":");
+        writeJSONString(file.getPath());
+        writer.write(",\"DateTimeOriginal\":");
+        writeJSONString(date);
+
+        if (all) {
+          writer.write(",\"ImageWidth\":");
+          writer.write(info.getImageWidth() == -1 ? "null" : Integer.toString(info.getImageWidth()));
+          writer.write(",\"ImageHeight\":");
+          writer.write(info.getImageHeight() == -1 ? "null" : Integer.toString(info.getImageHeight()));
+        }
+
+        writer.write('}');
+
+        if (format == Format.JSONL) {
+          writer.write('\n');
+        }
+
+        break;
+
+      case CSV:
+
+        if (count == 0) {
+          writer.write(all ? "File,DateTimeOriginal,ImageWidth,ImageHeight\n" : "File,DateTimeOriginal\n");
+        }
+
+        writeCSVValue(file.getPath());
+        writer.write(',');
+        writeCSVValue(date);
+
+        if (all) {
+          writer.write(',');
+          writer.write(info.getImageWidth() == -1 ? "" : Integer.toString(info.getImageWidth()));
+          writer.write(',');
+          writer.write(info.getImageHeight() == -1 ? "" : Integer.toString(info.getImageHeight()));
+        }
+
+        writer.write('\n');
+
+        break;
+    }
+
+    count++;
+  }
+
+  /**
+   * Ends the output (closes the JSON array) and flushes the writer.
+   */
+  void finish() throws IOException {
+
+    if (format == Format.JSON) {
+      writer.write(count == 0 ? "[]\n" : "\n]\n");
+    }
+
+    writer.flush();
+  }
+
+  private void writeJSONString(final String text) throws IOException {
+
+    if (text == null) {
+      writer.write("null");
+      return;
+    }
+
+    writer.write('"');
+
+    for (int i = 0; i < text.length(); i++) {
+
+      char c = text.charAt(i);
+
+      if (c == '"' || c == '\\') {
+        writer.write('\\');
+        writer.write(c);
+      }
+
+      else if (c < 0x20) {
+        writer.write(String.format("\\u%04x", (int) c));
+      }
+
+      else {
+        writer.write(c);
+      }
+    }
+
+    writer.write('"');
+  }
+
+  private void writeCSVValue(final String text) throws IOException {
+
+    if (text == null) {
+      return;
+    }
+
+    if (text.indexOf(',') == -1 && text.indexOf('"') == -1 && text.indexOf('\n') == -1 && text.indexOf('\r') == -1) {
+      writer.write(text);
+      return;
+    }
+
+    writer.write('"');
+    writer.write(text.replace("\"", "\"\""));
+    writer.write('"');
+  }
+
+}
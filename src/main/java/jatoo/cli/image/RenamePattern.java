@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The pattern of the new names of the renamed images, compiled once: the
+ * pattern is split around the <code>${counter}</code> placeholders and the
+ * date formats of the parts are created only once, not for every image.
+ * <p>
+ * Not thread safe (as the date formats are not).
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class RenamePattern {
+
+  private static final String COUNTER = "${counter}";
+
+  /** the date formats, one more than the counter placeholders */
+  private final List<SimpleDateFormat> parts = new ArrayList<>();
+
+  private final NumberFormat counterNF;
+  private final boolean toLowerCase;
+  private final boolean toUpperCase;
+
+  RenamePattern(final String pattern, final NumberFormat counterNF, final boolean toLowerCase, final boolean toUpperCase) {
+
+    int from = 0;
+
+    for (int index = pattern.indexOf(COUNTER); index != -1; index = pattern.indexOf(COUNTER, from)) {
+      parts.add(new SimpleDateFormat(pattern.substring(from, index)));
+      from = index + COUNTER.length();
+    }
+
+    parts.add(new SimpleDateFormat(pattern.substring(from)));
+
+    this.counterNF = counterNF;
+    this.toLowerCase = toLowerCase;
+    this.toUpperCase = toUpperCase;
+  }
+
+  /**
+   * @return the new name of an image (the counter is used instead of the
+   *         pattern if the image has no DateTimeOriginal)
+   */
+  String format(final File srcImageFile, final Date date, final int counter) {
+
+    StringBuilder dstImageFileName = new StringBuilder();
+
+    if (date == null) {
+      dstImageFileName.append(counterNF.format(counter));
+    }
+
+    else {
+
+      String counterText = parts.size() > 1 ? counterNF.format(counter) : null;
+
+      for (int i = 0; i < parts.size(); i++) {
+
+        if (i > 0) {
+          dstImageFileName.append(counterText);
+        }
+
+        dstImageFileName.append(parts.get(i).format(date));
+      }
+    }
+
+    dstImageFileName.append(getFileExtension(srcImageFile));
+
+    if (toLowerCase) {
+      return dstImageFileName.toString().toLowerCase();
+    } else if (toUpperCase) {
+      return dstImageFileName.toString().toUpperCase();
+    } else {
+      return dstImageFileName.toString();
+    }
+  }
+
+  /**
+   * @return the extension of the file (including the separator), or an empty
+   *         string if the file has no extension
+   */
+  static String getFileExtension(final File file) {
+
+    String fileName = file.getName();
+    int indexSeparator = fileName.lastIndexOf('.');
+
+    if (indexSeparator == -1) {
+      return "";
+    }
+
+    return fileName.substring(indexSeparator);
+  }
+
+}
@@ -0,0 +1,472 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The plan of a rename: all the source to destination pairs, computed (and
+ * checked for collisions) before any file is touched, then executed, by many
+ * threads, as a whole: if a transfer fails, the ones already done are undone.
+ * <p>
+ * The collisions are detected both between the entries of the plan and with
+ * the files already in the destination, with the rule of the destination file
+ * system: ignoring the case of the names if it is case insensitive (or if that
+ * cannot be told, see {@link #isCaseSensitive(File)}). A file
+ * already in the destination is not a collision if it is the image itself
+ * (already with the new name, nothing to be done then), or, for
+ * {@link TransferMode#MOVE}, if it is an image the plan moves away: such an
+ * entry is moved in two steps, first to a temporary name, and then, after all
+ * the other images were moved, to the new name.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class RenamePlan {
+
+  /**
+   * What to do when two images get the same name (or when the name is
+   * already taken in the destination folder).
+   */
+  enum Collision {
+
+    /** the rename fails, before any file is touched (the default) */
+    FAIL,
+
+    /** a suffix is added to the name ("-1", "-2" and so on) */
+    SUFFIX;
+
+    /**
+     * @return the collision policy with the specified name (case insensitive)
+     */
+    static Collision parse(final String name) {
+
+      for (Collision collision : values()) {
+        if (collision.name().equalsIgnoreCase(name)) {
+          return collision;
+        }
+      }
+
+      throw new IllegalArgumentException("unknown collision policy: " + name + " (expected one of: fail, suffix)");
+    }
+  }
+
+  private final File dst;
+  private final Collision collision;
+  private final TransferMode mode;
+  private final boolean caseSensitive;
+
+  private final List<Entry> entries = new ArrayList<>();
+  private final Set<String> dstKeys = new HashSet<>();
+
+  /** the images the plan moves away (only for {@link TransferMode#MOVE}) */
+  private final Set<String> srcKeys = new HashSet<>();
+
+  /** the files already in the destination folders, by key (listed once) */
+  private final Map<File, Map<String, File>> dstFolderFiles = new HashMap<>();
+
+  /** the folders that did not exist before the execution (created by it) */
+  private final List<File> dstFoldersCreated = new ArrayList<>();
+
+  /** the transfers done, as source and destination pairs, in order */
+  private final List<File[]> transfersDone = new ArrayList<>();
+  private volatile boolean failed;
+
+  RenamePlan(final File dst, final Collision collision, final TransferMode mode) throws IOException {
+    this(dst, collision, mode, isCaseSensitive(dst));
+  }
+
+  RenamePlan(final File dst, final Collision collision, final TransferMode mode, final boolean caseSensitive) {
+    this.dst = dst;
+    this.collision = collision;
+    this.mode = mode;
+    this.caseSensitive = caseSensitive;
+  }
+
+  /**
+   * Registers an image the plan is going to rename. All the images have to be
+   * registered before the first one is added, so the names of the images
+   * moved away are known to be free.
+   */
+  void addSource(final File srcFile) {
+    if (mode == TransferMode.MOVE) {
+      srcKeys.add(getKey(srcFile));
+    }
+  }
+
+  /**
+   * Adds an image to the plan.
+   * 
+   * @param srcFile
+   *          the image
+   * @param srcName
+   *          the name of the image (to be displayed), relative to the source
+   *          folder
+   * @param dstFolderName
+   *          the folder of the renamed image, relative to the destination
+   *          folder (<code>null</code> for the destination folder itself)
+   * @param dstFileName
+   *          the new name of the image
+   * 
+   * @return the entry (with the name finally used)
+   * 
+   * @throws FileAlreadyExistsException
+   *           if the name is taken and the collisions are not resolved
+   */
+  Entry add(final File srcFile, final String srcName, final String dstFolderName, final String dstFileName) throws IOException {
+
+    File dstFolder = dstFolderName == null ? dst : new File(dst, dstFolderName);
+    File dstFile = new File(dstFolder, dstFileName);
+
+    for (int suffix = 1; isTaken(srcFile, dstFile); suffix++) {
+
+      if (collision == Collision.FAIL) {
+        throw new FileAlreadyExistsException(dstFile.getPath(), srcFile.getPath(), "the name is already taken");
+      }
+
+      String extension = RenamePattern.getFileExtension(new File(dstFileName));
+      dstFile = new File(dstFolder, dstFileName.substring(0, dstFileName.length() - extension.length()) + "-" + suffix + extension);
+    }
+
+    String dstKey = getKey(dstFile);
+    dstKeys.add(dstKey);
+
+    File existingFile = getExistingFile(dstFile);
+
+    boolean done = existingFile != null && Files.isSameFile(srcFile.toPath(), existingFile.toPath()) && (mode != TransferMode.MOVE || dstFile.getAbsolutePath().equals(srcFile.getAbsolutePath()));
+    File tmpFile = !done && srcKeys.contains(dstKey) ? new File(dstFolder, "." + dstFile.getName() + "." + entries.size() + ".jatoo-rename.tmp") : null;
+
+    Entry entry = new Entry(srcFile, srcName, dstFile, dstFolderName == null ? dstFile.getName() : new File(dstFolderName, dstFile.getName()).getPath(), done, tmpFile);
+    entries.add(entry);
+
+    return entry;
+  }
+
+  List<Entry> getEntries() {
+    return Collections.unmodifiableList(entries);
+  }
+
+  /**
+   * Creates the destination folders (to be called once, before the
+   * entries are executed).
+   */
+  void createFolders() throws IOException {
+
+    Set<File> dstFolders = new LinkedHashSet<>();
+
+    for (Entry entry : entries) {
+      dstFolders.add(entry.dstFile.getParentFile());
+    }
+
+    for (File dstFolder : dstFolders) {
+
+      List<File> missing = new ArrayList<>();
+
+      for (File folder = dstFolder; folder != null && !folder.exists(); folder = folder.getParentFile()) {
+        missing.add(folder);
+      }
+
+      Files.createDirectories(dstFolder.toPath());
+
+      // the deepest first, to be removed in this order
+      dstFoldersCreated.addAll(missing);
+    }
+  }
+
+  /**
+   * Executes an entry (can be called from many threads). Nothing is done
+   * after a failure, as the plan is going to be rolled back anyway. The
+   * entries moved in two steps are only moved to their temporary names, see
+   * {@link #executeTemporaries()}.
+   * 
+   * @return <code>false</code> if the entry was skipped because of an earlier
+   *         failure
+   */
+  boolean execute(final Entry entry) throws IOException {
+
+    if (failed) {
+      return false;
+    }
+
+    if (!entry.done) {
+      transfer(entry.srcFile, entry.tmpFile != null ? entry.tmpFile : entry.dstFile);
+    }
+
+    return true;
+  }
+
+  /**
+   * Moves the entries moved in two steps from their temporary names to the new
+   * ones (to be called once, after all the entries were executed).
+   */
+  void executeTemporaries() throws IOException {
+
+    for (Entry entry : entries) {
+
+      if (failed) {
+        return;
+      }
+
+      if (entry.tmpFile != null) {
+        transfer(entry.tmpFile, entry.dstFile);
+      }
+    }
+  }
+
+  boolean isFailed() {
+    return failed;
+  }
+
+  /**
+   * Undoes the transfers already done (in reverse order) and removes the
+   * folders created for them.
+   * 
+   * @return the files that could not be restored
+   */
+  List<File> rollback() {
+
+    List<File> filesNotRestored = new ArrayList<>();
+
+    synchronized (transfersDone) {
+
+      for (int i = transfersDone.size() - 1; i >= 0; i--) {
+
+        File[] transfer = transfersDone.get(i);
+
+        try {
+          mode.undo(transfer[0].toPath(), transfer[1].toPath());
+        } catch (IOException e) {
+          filesNotRestored.add(transfer[1]);
+        }
+      }
+
+      transfersDone.clear();
+    }
+
+    for (File folder : dstFoldersCreated) {
+      try {
+        Files.deleteIfExists(folder.toPath());
+      } catch (DirectoryNotEmptyException e) {
+        // something else in there, keep it
+      } catch (IOException e) {
+        // not important, only an empty folder left
+      }
+    }
+
+    return filesNotRestored;
+  }
+
+  private void transfer(final File srcFile, final File dstFile) throws IOException {
+
+    try {
+      mode.transfer(srcFile.toPath(), dstFile.toPath());
+    }
+
+    catch (IOException | RuntimeException e) {
+      failed = true;
+      throw e;
+    }
+
+    synchronized (transfersDone) {
+      transfersDone.add(new File[] { srcFile, dstFile });
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the name is taken by another entry, or by a
+   *         file that is not the image itself and that the plan does not move
+   *         away
+   */
+  private boolean isTaken(final File srcFile, final File dstFile) throws IOException {
+
+    String dstKey = getKey(dstFile);
+
+    if (dstKeys.contains(dstKey)) {
+      return true;
+    }
+
+    File existingFile = getExistingFile(dstFile);
+
+    if (existingFile == null) {
+      return false;
+    }
+
+    return !Files.isSameFile(srcFile.toPath(), existingFile.toPath()) && !srcKeys.contains(dstKey);
+  }
+
+  /**
+   * @return the file already in the destination with the same key (the same
+   *         name, or, if the case is ignored, a name that differs only in
+   *         case), or <code>null</code> if there is none
+   */
+  private File getExistingFile(final File dstFile) throws IOException {
+
+    File dstFolder = dstFile.getAbsoluteFile().getParentFile();
+    Map<String, File> files = dstFolderFiles.get(dstFolder);
+
+    if (files == null) {
+
+      files = new HashMap<>();
+
+      if (dstFolder.isDirectory()) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dstFolder.toPath())) {
+          for (Path path : stream) {
+            files.put(getKey(path.toFile()), path.toFile());
+          }
+        }
+      }
+
+      dstFolderFiles.put(dstFolder, files);
+    }
+
+    return files.get(getKey(dstFile));
+  }
+
+  /**
+   * @return the key of a file, equal for the names of the same file (the path,
+   *         in lower case if the file system is case insensitive)
+   */
+  private String getKey(final File file) {
+    return caseSensitive ? file.getAbsolutePath() : file.getAbsolutePath().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Tells if the file system of the folder is case sensitive, without writing
+   * anything: a name from the folder (or, if there is none, the name of the
+   * folder itself) is looked up with its case changed. The folder may not
+   * exist yet, then its closest existing parent is checked.
+   * 
+   * @return <code>true</code> if the file system is case sensitive, or
+   *         <code>false</code> if it is not, or if there is no name to check
+   *         (the safe side, more names are collisions)
+   */
+  static boolean isCaseSensitive(final File folder) throws IOException {
+
+    Path existing = folder.getAbsoluteFile().toPath().normalize();
+
+    while (existing != null && !Files.isDirectory(existing)) {
+      existing = existing.getParent();
+    }
+
+    if (existing == null) {
+      return false;
+    }
+
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(existing)) {
+      for (Path path : stream) {
+
+        Boolean caseSensitive = isCaseSensitive(path);
+
+        if (caseSensitive != null) {
+          return caseSensitive;
+        }
+      }
+    }
+
+    for (Path path = existing; path != null && path.getFileName() != null; path = path.getParent()) {
+
+      Boolean caseSensitive = isCaseSensitive(path);
+
+      if (caseSensitive != null) {
+        return caseSensitive;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @return <code>true</code> if the name of the (existing) file, with its
+   *         case changed, is not the same file, or <code>null</code> if the
+   *         case of the name cannot be changed
+   */
+  private static Boolean isCaseSensitive(final Path path) throws IOException {
+
+    String name = path.getFileName().toString();
+    String otherName = name.equals(name.toUpperCase(Locale.ROOT)) ? name.toLowerCase(Locale.ROOT) : name.toUpperCase(Locale.ROOT);
+
+    if (otherName.equals(name)) {
+      return null;
+    }
+
+    Path otherPath = path.resolveSibling(otherName);
+
+    return !Files.exists(otherPath, LinkOption.NOFOLLOW_LINKS) || !Files.isSameFile(path, otherPath);
+  }
+
+  /**
+   * An image of the plan.
+   */
+  static final class Entry {
+
+    private final File srcFile;
+    private final String srcName;
+    private final File dstFile;
+    private final String dstName;
+
+    /** <code>true</code> if the image already has the new name */
+    private final boolean done;
+
+    /** the temporary name, for the images moved in two steps */
+    private final File tmpFile;
+
+    private Entry(final File srcFile, final String srcName, final File dstFile, final String dstName, final boolean done, final File tmpFile) {
+      this.srcFile = srcFile;
+      this.srcName = srcName;
+      this.dstFile = dstFile;
+      this.dstName = dstName;
+      this.done = done;
+      this.tmpFile = tmpFile;
+    }
+
+    File getSrcFile() {
+      return srcFile;
+    }
+
+    String getSrcName() {
+      return srcName;
+    }
+
+    File getDstFile() {
+      return dstFile;
+    }
+
+    /**
+     * @return the new name of the image, relative to the destination folder
+     */
+    String getDstName() {
+      return dstName;
+    }
+  }
+
+}
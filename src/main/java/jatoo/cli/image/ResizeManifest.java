@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The manifest kept in the destination folder by the incremental resize: for
+ * every resized source, its size, last modified time and (optionally) content
+ * hash, plus the parameters the images were resized with. A source is
+ * resized again only if it is new, if it changed or if the parameters
+ * changed.
+ * <p>
+ * The manifest is a text file, with the parameters on the first line and then
+ * a line for every source:
+ * 
+ * <pre>
+ * relative/path.jpg &lt;TAB&gt; size &lt;TAB&gt; lastModified &lt;TAB&gt; hash (or -)
+ * </pre>
+ * 
+ * The tabs, the line breaks and the backslashes in the paths are escaped with
+ * a backslash ("\t", "\n", "\r" and "\\"). The manifest is saved (atomically,
+ * through a temporary file) every {@value #SAVE_INTERVAL} sources resized, so
+ * an interrupted run keeps most of its progress.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ResizeManifest {
+
+  static final String FILE_NAME = ".jatoo-cli-image-resize.manifest";
+
+  private static final String NO_HASH = "-";
+
+  /** how many sources are resized between two saves */
+  static final int SAVE_INTERVAL = 100;
+
+  private final File file;
+  private final String parameters;
+  private final boolean checksum;
+
+  /** the entries loaded from the file (only if the parameters are the same) */
+  private final Map<String, Entry> entriesOld = new HashMap<>();
+
+  /** the entries of the sources seen by this run */
+  private final Map<String, Entry> entriesNew = new HashMap<>();
+
+  /** the sources resized since the last save */
+  private int updates;
+
+  /**
+   * @param folder
+   *          the destination folder
+   * @param parameters
+   *          the resize parameters (the entries recorded with other
+   *          parameters are ignored)
+   * @param checksum
+   *          <code>true</code> to also record (and compare, when the last
+   *          modified time changes) the content hash of the sources
+   */
+  ResizeManifest(final File folder, final String parameters, final boolean checksum) throws IOException {
+
+    this.file = new File(folder, FILE_NAME);
+    this.parameters = parameters;
+    this.checksum = checksum;
+
+    if (file.isFile()) {
+
+      try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+
+        if (parameters.equals(reader.readLine())) {
+
+          String line;
+
+          while ((line = reader.readLine()) != null) {
+
+            String[] values = line.split("\t");
+
+            if (values.length == 4) {
+              entriesOld.put(unescape(values[0]), new Entry(Long.parseLong(values[1]), Long.parseLong(values[2]), values[3]));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks if a source was already resized (with the same parameters) and did
+   * not change since then. If so, the source is also kept in the manifest.
+   */
+  boolean isUpToDate(final String name, final File srcFile, final List<File> dstFiles) throws IOException {
+
+    Entry entry;
+
+    synchronized (this) {
+      entry = entriesOld.get(name);
+    }
+
+    if (entry == null || entry.size != srcFile.length()) {
+      return false;
+    }
+
+    for (File dstFile : dstFiles) {
+      if (!dstFile.isFile()) {
+        return false;
+      }
+    }
+
+    if (entry.lastModified != srcFile.lastModified()) {
+
+      if (!checksum || entry.hash.equals(NO_HASH) || !entry.hash.equals(hash(srcFile))) {
+        return false;
+      }
+
+      // same content, only touched
+      entry = new Entry(entry.size, srcFile.lastModified(), entry.hash);
+    }
+
+    synchronized (this) {
+      entriesNew.put(name, entry);
+    }
+
+    return true;
+  }
+
+  /**
+   * Captures the state of a source right before it is resized, to be recorded
+   * by {@link #update(String, Entry)} once the resize is done (a source that
+   * changes while it is resized is then resized again on the next run).
+   */
+  Entry capture(final File srcFile) throws IOException {
+    return new Entry(srcFile.length(), srcFile.lastModified(), checksum ? hash(srcFile) : NO_HASH);
+  }
+
+  /**
+   * Records a source that was just resized (and saves the manifest, without
+   * pruning it, every {@value #SAVE_INTERVAL} sources).
+   * 
+   * @param entry
+   *          the state of the source before the resize (see
+   *          {@link #capture(File)})
+   */
+  synchronized void update(final String name, final Entry entry) throws IOException {
+
+    entriesNew.put(name, entry);
+
+    if (++updates >= SAVE_INTERVAL) {
+      save(false);
+    }
+  }
+
+  /**
+   * Writes the manifest, replacing the old one.
+   * 
+   * @param prune
+   *          <code>true</code> to keep only the sources seen by this run (the
+   *          ones that were deleted are forgotten), <code>false</code> to also
+   *          keep the old entries
+   */
+  synchronized void save(final boolean prune) throws IOException {
+
+    Map<String, Entry> entries = new HashMap<>();
+
+    if (!prune) {
+      entries.putAll(entriesOld);
+    }
+
+    entries.putAll(entriesNew);
+
+    updates = 0;
+
+    File tmpFile = new File(file.getParentFile(), FILE_NAME + ".tmp");
+
+    try (BufferedWriter writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+
+      writer.write(parameters);
+      writer.newLine();
+
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        writer.write(escape(entry.getKey()));
+        writer.write('\t');
+        writer.write(Long.toString(entry.getValue().size));
+        writer.write('\t');
+        writer.write(Long.toString(entry.getValue().lastModified));
+        writer.write('\t');
+        writer.write(entry.getValue().hash);
+        writer.newLine();
+      }
+    }
+
+    try {
+      Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  static String escape(final String name) {
+
+    StringBuilder escaped = new StringBuilder(name.length());
+
+    for (int i = 0; i < name.length(); i++) {
+
+      char c = name.charAt(i);
+
+      switch (c) {
+        case '\\':
+          escaped.append("\\\\");
+          break;
+        case '\t':
+          escaped.append("\\t");
+          break;
+        case '\n':
+          escaped.append("\\n");
+          break;
+        case '\r':
+          escaped.append("\\r");
+          break;
+        default:
+          escaped.append(c);
+      }
+    }
+
+    return escaped.toString();
+  }
+
+  /**
+   * The opposite of {@link #escape(String)} (a backslash followed by anything
+   * else is kept as it is, like in the manifests written before the escaping).
+   */
+  static String unescape(final String name) {
+
+    StringBuilder unescaped = new StringBuilder(name.length());
+
+    for (int i = 0; i < name.length(); i++) {
+
+      char c = name.charAt(i);
+
+      if (c == '\\' && i + 1 < name.length()) {
+
+        char next = name.charAt(i + 1);
+
+        if (next == '\\' || next == 't' || next == 'n' || next == 'r') {
+          unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : '\\');
+          i++;
+          continue;
+        }
+      }
+
+      unescaped.append(c);
+    }
+
+    return unescaped.toString();
+  }
+
+  private static String hash(final File file) throws IOException {
+
+    MessageDigest digest;
+
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+
+    try (InputStream stream = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+      byte[] buffer = new byte[64 * 1024];
+      while (stream.read(buffer) != -1) {
+        // just read, the digest is updated by the stream
+      }
+    }
+
+    StringBuilder hash = new StringBuilder();
+
+    for (byte b : digest.digest()) {
+      hash.append(String.format("%02x", b));
+    }
+
+    return hash.toString();
+  }
+
+  static final class Entry {
+
+    private final long size;
+    private final long lastModified;
+    private final String hash;
+
+    private Entry(final long size, final long lastModified, final String hash) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = hash;
+    }
+  }
+
+}
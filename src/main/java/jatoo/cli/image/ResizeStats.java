@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The timings of a resize run: how long every image spent in every stage
+ * (decode, scale, encode, metadata, write), plus the totals needed for the
+ * throughput.
+ * <p>
+ * Each image is timed in its own {@link Sample} (by the thread resizing it),
+ * which is then added to the stats.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+final class ResizeStats {
+
+  /**
+   * The stages of the resize of an image.
+   */
+  enum Stage {
+
+    /** reading and decoding the source */
+    DECODE,
+
+    /** scaling the decoded image */
+    SCALE,
+
+    /** encoding the results (in memory) */
+    ENCODE,
+
+    /** reading and copying the metadata */
+    METADATA,
+
+    /** writing the results */
+    WRITE;
+
+    String getName() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  private static final double[] PERCENTILES = { 50, 95, 99 };
+
+  private final long start = System.nanoTime();
+  private long end;
+
+  private long[][] nanos = new long[Stage.values().length][1024];
+  private int count;
+
+  private long bytesRead;
+  private long bytesWritten;
+
+  synchronized void add(final Sample sample) {
+
+    if (count == nanos[0].length) {
+      for (int i = 0; i < nanos.length; i++) {
+        nanos[i] = Arrays.copyOf(nanos[i], count * 2);
+      }
+    }
+
+    for (int i = 0; i < nanos.length; i++) {
+      nanos[i][count] = sample.nanos[i];
+    }
+
+    count++;
+
+    bytesRead += sample.bytesRead;
+    bytesWritten += sample.bytesWritten;
+  }
+
+  /**
+   * Stops the clock (the throughput is computed up to now).
+   */
+  synchronized void stop() {
+
+    end = System.nanoTime();
+
+    for (int i = 0; i < nanos.length; i++) {
+      Arrays.sort(nanos[i], 0, count);
+    }
+  }
+
+  synchronized int getImages() {
+    return count;
+  }
+
+  synchronized double getSeconds() {
+    return (end - start) / 1e9;
+  }
+
+  synchronized double getImagesPerSecond() {
+    return count / Math.max(getSeconds(), 1e-9);
+  }
+
+  synchronized long getBytesRead() {
+    return bytesRead;
+  }
+
+  synchronized long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  synchronized double getBytesReadPerSecond() {
+    return bytesRead / Math.max(getSeconds(), 1e-9);
+  }
+
+  synchronized double getBytesWrittenPerSecond() {
+    return bytesWritten / Math.max(getSeconds(), 1e-9);
+  }
+
+  /**
+   * @return the time (in milliseconds) under which the specified percentage
+   *         of the images went through the stage (valid after {@link #stop()})
+   */
+  synchronized double getPercentile(final Stage stage, final double percentile) {
+
+    if (count == 0) {
+      return 0;
+    }
+
+    int index = Math.max(0, (int) Math.ceil(percentile / 100 * count) - 1);
+
+    return nanos[stage.ordinal()][index] / 1e6;
+  }
+
+  /**
+   * @return the longest time (in milliseconds) an image spent in the stage
+   *         (valid after {@link #stop()})
+   */
+  synchronized double getMax(final Stage stage) {
+    return count == 0 ? 0 : nanos[stage.ordinal()][count - 1] / 1e6;
+  }
+
+  /**
+   * @return the total time (in seconds) spent in the stage, by all the images
+   *         (on all the threads)
+   */
+  synchronized double getTotal(final Stage stage) {
+
+    long total = 0;
+
+    for (int i = 0; i < count; i++) {
+      total += nanos[stage.ordinal()][i];
+    }
+
+    return total / 1e9;
+  }
+
+  /**
+   * Writes the stats as a JSON report (valid after {@link #stop()}).
+   */
+  synchronized void writeReport(final File file) throws IOException {
+
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+
+      writer.write("{\n");
+      writer.write("  \"images\": " + count + ",\n");
+      writer.write("  \"seconds\": " + format(getSeconds()) + ",\n");
+      writer.write("  \"imagesPerSecond\": " + format(getImagesPerSecond()) + ",\n");
+      writer.write("  \"bytesRead\": " + bytesRead + ",\n");
+      writer.write("  \"bytesReadPerSecond\": " + format(getBytesReadPerSecond()) + ",\n");
+      writer.write("  \"bytesWritten\": " + bytesWritten + ",\n");
+      writer.write("  \"bytesWrittenPerSecond\": " + format(getBytesWrittenPerSecond()) + ",\n");
+      writer.write("  \"stages\": {\n");
+
+      for (Stage stage : Stage.values()) {
+
+        writer.write("    \"" + stage.getName() + "\": {");
+
+        for (double percentile : PERCENTILES) {
+          writer.write("\"p" + (int) percentile + "Millis\": " + format(getPercentile(stage, percentile)) + ", ");
+        }
+
+        writer.write("\"maxMillis\": " + format(getMax(stage)) + ", ");
+        writer.write("\"totalSeconds\": " + format(getTotal(stage)) + "}");
+        writer.write(stage.ordinal() < Stage.values().length - 1 ? ",\n" : "\n");
+      }
+
+      writer.write("  }\n");
+      writer.write("}\n");
+    }
+  }
+
+  private static String format(final double value) {
+    return String.format(Locale.ROOT, "%.3f", value);
+  }
+
+  /**
+   * The timings of a single image.
+   */
+  static final class Sample {
+
+    private final long[] nanos = new long[Stage.values().length];
+
+    private long bytesRead;
+    private long bytesWritten;
+
+    /**
+     * Adds to the time spent in a stage.
+     * 
+     * @param startNanos
+     *          when the stage (or this part of it) started, as given by
+     *          {@link System#nanoTime()}
+     */
+    void add(final Stage stage, final long startNanos) {
+      nanos[stage.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    void addBytesRead(final long bytes) {
+      bytesRead += bytes;
+    }
+
+    void addBytesWritten(final long bytes) {
+      bytesWritten += bytes;
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The ways an image can end up under its new name.
+ * 
+ * @author <a href="http://cristian.sulea.net" rel="author">Cristian Sulea</a>
+ * @version 1.0, October 17, 2026
+ */
+enum TransferMode {
+
+  /**
+   * The image is copied (channel to channel, without passing the bytes
+   * through the heap).
+   */
+  COPY {
+    @Override
+    void transfer(final Path src, final Path dst) throws IOException {
+      copy(src, dst);
+    }
+  },
+
+  /**
+   * The image is moved: an atomic rename on the same file system, a copy
+   * followed by a delete across file systems.
+   */
+  MOVE {
+    @Override
+    void transfer(final Path src, final Path dst) throws IOException {
+
+      if (Files.exists(dst)) {
+        throw new FileAlreadyExistsException(dst.toString());
+      }
+
+      try {
+        Files.move(src, dst, StandardCopyOption.ATOMIC_MOVE);
+      }
+
+      catch (AtomicMoveNotSupportedException e) {
+        copy(src, dst);
+        Files.setLastModifiedTime(dst, Files.getLastModifiedTime(src));
+        Files.delete(src);
+      }
+    }
+
+    @Override
+    void undo(final Path src, final Path dst) throws IOException {
+      transfer(dst, src);
+    }
+  },
+
+  /**
+   * A hard link is created (the image is not copied), falling back to a copy
+   * if the file system does not support hard links or the destination is on
+   * another file system.
+   */
+  LINK {
+    @Override
+    void transfer(final Path src, final Path dst) throws IOException {
+
+      try {
+        Files.createLink(dst, src);
+      }
+
+      catch (FileAlreadyExistsException e) {
+        throw e;
+      }
+
+      catch (IOException | UnsupportedOperationException e) {
+        copy(src, dst);
+      }
+    }
+  };
+
+  abstract void transfer(Path src, Path dst) throws IOException;
+
+  /**
+   * Undoes a transfer: the destination is deleted (or, for {@link #MOVE},
+   * moved back to the source).
+   */
+  void undo(final Path src, final Path dst) throws IOException {
+    Files.delete(dst);
+  }
+
+  /**
+   * @return the mode with the specified name (case insensitive)
+   */
+  static TransferMode parse(final String name) {
+
+    for (TransferMode mode : values()) {
+      if (mode.name().equalsIgnoreCase(name)) {
+        return mode;
+      }
+    }
+
+    throw new IllegalArgumentException("unknown mode: " + name + " (expected one of: copy, move, link)");
+  }
+
+  private static void copy(final Path src, final Path dst) throws IOException {
+
+    try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ); FileChannel out = FileChannel.open(dst, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+
+      long size = in.size();
+      long position = 0;
+
+      while (position < size) {
+        position += in.transferTo(position, size - position, out);
+      }
+    }
+  }
+
+}
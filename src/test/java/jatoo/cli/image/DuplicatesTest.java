@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DuplicatesTest {
+
+  private static final File SRC_FILE = new File("src/test/resources/jatoo/cli/image/20141109144518.jpg");
+  private static final File SRC_FILE_SMALL = new File("src/test/resources/jatoo/cli/image/20141109144518-400x300.jpg");
+
+  private static File createFolder(final String name) throws Exception {
+
+    File folder = new File("target/tests-duplicates/" + name);
+    Files.createDirectories(folder.toPath());
+
+    for (File file : folder.listFiles()) {
+      Files.delete(file.toPath());
+    }
+
+    return folder;
+  }
+
+  private static String dedupe(final String... args) {
+
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(stdout));
+
+    try {
+      new JatooCLICommand().execute(args);
+    }
+
+    finally {
+      System.setOut(out);
+    }
+
+    return stdout.toString();
+  }
+
+  @Test
+  public void testLinks() throws Exception {
+
+    File folder = createFolder("links");
+
+    File file1 = new File(folder, "1.jpg");
+    File file2 = new File(folder, "2.jpg");
+    File file3 = new File(folder, "3.jpg");
+
+    Files.copy(SRC_FILE.toPath(), file1.toPath());
+    Files.copy(SRC_FILE.toPath(), file2.toPath());
+    Files.createLink(file3.toPath(), file1.toPath());
+
+    Duplicates duplicates = new Duplicates();
+    duplicates.add(file1);
+    duplicates.add(file2);
+    duplicates.add(file3);
+
+    // the hard link is the same file, not a candidate
+    Assert.assertEquals(3, duplicates.getFiles());
+    Assert.assertEquals(Arrays.asList(file1, file2), duplicates.getCandidates());
+    Assert.assertEquals(Arrays.asList(file1, file2), duplicates.getAll());
+    Assert.assertEquals(Collections.singletonList(file3), duplicates.getLinks(file1));
+    Assert.assertTrue(duplicates.getLinks(file2).isEmpty());
+  }
+
+  @Test
+  public void testDedupeLink() throws Exception {
+
+    File folder = createFolder("link");
+
+    File file1 = new File(folder, "1.jpg");
+    File file2 = new File(folder, "2.jpg");
+    File file3 = new File(folder, "3.jpg");
+    File file4 = new File(folder, "4.jpg");
+
+    Files.copy(SRC_FILE.toPath(), file1.toPath());
+    Files.copy(SRC_FILE.toPath(), file2.toPath());
+    Files.createLink(file3.toPath(), file2.toPath());
+    Files.copy(SRC_FILE_SMALL.toPath(), file4.toPath());
+
+    // the copy and its hard link are linked, but the space is saved only once
+
+    String output = dedupe("-dedupe", "-link", "-src", folder.getPath());
+
+    Assert.assertTrue(output.contains("duplicates: 1 ("));
+    Assert.assertTrue(output.contains(file2.getPath() + " (linked)"));
+    Assert.assertTrue(output.contains(file3.getPath() + " (linked)"));
+
+    Assert.assertTrue(Files.isSameFile(file1.toPath(), file2.toPath()));
+    Assert.assertTrue(Files.isSameFile(file1.toPath(), file3.toPath()));
+    Assert.assertFalse(Files.isSameFile(file1.toPath(), file4.toPath()));
+
+    // the files already linked are not reported again
+
+    output = dedupe("-dedupe", "-link", "-src", folder.getPath());
+
+    Assert.assertTrue(output.contains("groups: 0, duplicates: 0 ("));
+    Assert.assertFalse(output.contains("(linked)"));
+  }
+
+  @Test
+  public void testSimilar() throws Exception {
+
+    File folder = createFolder("similar");
+
+    File file1 = new File(folder, "1.jpg");
+    File file2 = new File(folder, "2.jpg");
+    File file3 = new File(folder, "3.jpg");
+
+    Files.copy(SRC_FILE.toPath(), file1.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Files.copy(SRC_FILE_SMALL.toPath(), file2.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    g.setPaint(new GradientPaint(0, 0, Color.WHITE, 400, 0, Color.BLACK));
+    g.fillRect(0, 0, 400, 300);
+    g.dispose();
+    ImageIO.write(image, "jpeg", file3);
+
+    // the resized image looks the same, the gradient does not
+
+    String hash1 = Duplicates.perceptualHash(file1);
+    String hash2 = Duplicates.perceptualHash(file2);
+
+    Assert.assertTrue(Long.bitCount(new BigInteger(hash1, 16).longValue() ^ new BigInteger(hash2, 16).longValue()) <= 4);
+
+    Duplicates duplicates = new Duplicates();
+
+    for (File file : Arrays.asList(file1, file2, file3)) {
+      duplicates.add(file);
+      duplicates.addHash(file, Duplicates.perceptualHash(file));
+    }
+
+    List<List<File>> groups = duplicates.getSimilarGroups(4);
+
+    Assert.assertEquals(Collections.singletonList(Arrays.asList(file1, file2)), groups);
+
+    // and the command reports them, without linking
+
+    String output = dedupe("-dedupe", "-similar", "-src", folder.getPath());
+
+    Assert.assertTrue(output.contains("Similar (2 files):"));
+    Assert.assertTrue(output.contains("- " + file1.getPath()));
+    Assert.assertTrue(output.contains("- " + file2.getPath()));
+    Assert.assertFalse(output.contains("- " + file3.getPath()));
+    Assert.assertTrue(output.contains("groups: 1, duplicates: 1 ("));
+  }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExifReaderTest {
+
+  /** fails for the images with EXIF, finds no date for the others */
+  private static class FailingReader implements ImageMetadataReader {
+
+    private final List<File> files = new ArrayList<>();
+
+    @Override
+    public Date getDateTimeOriginal(final File file) throws IOException {
+      if (!file.getName().endsWith("-400x300.jpg")) {
+        throw new IOException("unexpected fallback: " + file);
+      }
+      files.add(file);
+      return null;
+    }
+
+    @Override
+    public Map<File, Date> getDateTimeOriginals(final List<File> files) throws IOException {
+      Map<File, Date> dates = new HashMap<>();
+      for (File file : files) {
+        dates.put(file, getDateTimeOriginal(file));
+      }
+      return dates;
+    }
+
+    @Override
+    public ImageInfo getInfo(final File file) throws IOException {
+      throw new IOException("unexpected fallback: " + file);
+    }
+  }
+
+  @Test
+  public void testRead() throws Exception {
+
+    FailingReader fallback = new FailingReader();
+    ExifReader reader = new ExifReader(fallback);
+
+    File file1 = new File("src/test/resources/jatoo/cli/image/20141109144518.jpg");
+    File file2 = new File("src/test/resources/jatoo/cli/image/20141109144518-400x300.jpg");
+
+    Date date = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss").parse("2014:11:09 14:45:19");
+
+    Assert.assertEquals(date, reader.getDateTimeOriginal(file1));
+
+    ImageInfo info = reader.getInfo(file1);
+
+    Assert.assertEquals(date, info.getDateTimeOriginal());
+    Assert.assertEquals(3264, info.getImageWidth());
+    Assert.assertEquals(2448, info.getImageHeight());
+
+    info = reader.getInfo(file2);
+
+    Assert.assertNull(info.getDateTimeOriginal());
+    Assert.assertEquals(400, info.getImageWidth());
+    Assert.assertEquals(300, info.getImageHeight());
+
+    Map<File, Date> dates = reader.getDateTimeOriginals(Arrays.asList(file1, file2));
+
+    Assert.assertEquals(date, dates.get(file1));
+    Assert.assertTrue(dates.containsKey(file2));
+    Assert.assertNull(dates.get(file2));
+
+    // the image without an EXIF date was also asked to the fallback
+    Assert.assertEquals(Arrays.asList(file2, file2), fallback.files);
+  }
+
+  @Test
+  public void testOrientation() throws Exception {
+
+    File file = new File("target/tests-orientation/20141109144518.jpg");
+
+    Files.createDirectories(file.getParentFile().toPath());
+    Files.copy(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg").toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    Assert.assertEquals(1, ExifReader.getOrientation(file));
+    Assert.assertTrue(ExifReader.resetOrientation(file));
+    Assert.assertEquals(1, ExifReader.getOrientation(file));
+    Assert.assertEquals(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg").length(), file.length());
+  }
+
+  @Test
+  public void testUpdateExif() throws Exception {
+
+    File srcFile = new File("src/test/resources/jatoo/cli/image/20141109144518.jpg");
+    File file = new File("target/tests-update-exif/20141109144518.jpg");
+
+    Files.createDirectories(file.getParentFile().toPath());
+
+    // a smaller image, with the EXIF of the larger one
+
+    List<byte[]> segments;
+
+    try (ImageInputStream stream = ImageIO.createImageInputStream(srcFile)) {
+      segments = JpegSegments.read(stream);
+    }
+
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "jpeg", encoded);
+    JpegSegments.write(encoded.toByteArray(), encoded.size(), segments, file);
+
+    Assert.assertEquals(new Dimension(3264, 2448), ExifReader.getPixelDimension(file));
+    Assert.assertNotNull(ExifReader.getThumbnail(file));
+
+    long length = file.length();
+
+    Assert.assertTrue(ExifReader.updateExif(file));
+
+    Assert.assertEquals(new Dimension(400, 300), ExifReader.getPixelDimension(file));
+    Assert.assertNull(ExifReader.getThumbnail(file));
+    Assert.assertEquals(length, file.length());
+    Assert.assertEquals(new ExifReader(new FailingReader()).getDateTimeOriginal(srcFile), new ExifReader(new FailingReader()).getDateTimeOriginal(file));
+  }
+
+  @Test
+  public void testSetDateTimeOriginal() throws Exception {
+
+    File file1 = new File("target/tests-set-date/20141109144518.jpg");
+    File file2 = new File("target/tests-set-date/20141109144518-400x300.jpg");
+
+    Files.createDirectories(file1.getParentFile().toPath());
+    Files.copy(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg").toPath(), file1.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Files.copy(new File("src/test/resources/jatoo/cli/image/20141109144518-400x300.jpg").toPath(), file2.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    Date date = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss").parse("2001:02:03 04:05:06");
+
+    Assert.assertTrue(ExifReader.setDateTimeOriginal(file1, date));
+    Assert.assertEquals(date, new ExifReader(new FailingReader()).getDateTimeOriginal(file1));
+    Assert.assertEquals(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg").length(), file1.length());
+
+    // no DateTimeOriginal to overwrite
+    Assert.assertFalse(ExifReader.setDateTimeOriginal(file2, date));
+  }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImageCodecsTest {
+
+  private static final File SRC_FILE = new File("src/test/resources/jatoo/cli/image/20141109144518-400x300.jpg");
+
+  private static ImageReader getReader() throws Exception {
+    try (ImageInputStream stream = ImageIO.createImageInputStream(SRC_FILE)) {
+      return ImageCodecs.getReader(stream, SRC_FILE);
+    }
+  }
+
+  @Test
+  public void testPool() throws Exception {
+
+    ImageReader reader = getReader();
+    ImageCodecs.release(reader);
+
+    // the same reader, from the pool of the thread
+    Assert.assertSame(reader, getReader());
+    ImageCodecs.release(reader);
+
+    // a new one, after the pool was disposed
+    ImageCodecs.dispose();
+    Assert.assertNotSame(reader, getReader());
+  }
+
+}
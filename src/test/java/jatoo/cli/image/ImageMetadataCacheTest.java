@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImageMetadataCacheTest {
+
+  private static class CountingReader implements ImageMetadataReader {
+
+    private int count;
+
+    @Override
+    public Date getDateTimeOriginal(final File file) {
+      count++;
+      return new Date(1000);
+    }
+
+    @Override
+    public Map<File, Date> getDateTimeOriginals(final List<File> files) {
+      count += files.size();
+      return Collections.singletonMap(files.get(0), new Date(1000));
+    }
+
+    @Override
+    public ImageInfo getInfo(final File file) {
+      count++;
+      return new ImageInfo(new Date(1000), 640, 480);
+    }
+  }
+
+  @Test
+  public void testCache() throws Exception {
+
+    File folder = new File("target/tests-cache/");
+    File file = new File("target/tests-cache-images/20141109144518.jpg");
+
+    Files.createDirectories(file.getParentFile().toPath());
+    Files.copy(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg").toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    CountingReader reader = new CountingReader();
+
+    try (ImageMetadataCache cache = new ImageMetadataCache(folder, reader)) {
+      Assert.assertEquals(640, cache.getInfo(file).getImageWidth());
+      Assert.assertEquals(640, cache.getInfo(file).getImageWidth());
+      Assert.assertEquals(1000, cache.getDateTimeOriginal(file).getTime());
+    }
+
+    Assert.assertEquals(1, reader.count);
+
+    try (ImageMetadataCache cache = new ImageMetadataCache(folder, reader)) {
+      Assert.assertEquals(480, cache.getInfo(file).getImageHeight());
+    }
+
+    Assert.assertEquals(1, reader.count);
+
+    Assert.assertTrue(file.setLastModified(file.lastModified() - 10000));
+
+    try (ImageMetadataCache cache = new ImageMetadataCache(folder, reader)) {
+      Assert.assertEquals(1000, cache.getDateTimeOriginals(Collections.singletonList(file)).get(file).getTime());
+    }
+
+    Assert.assertEquals(2, reader.count);
+  }
+
+  @Test
+  public void testCacheTimeZone() throws Exception {
+
+    File folder = new File("target/tests-cache-zone/");
+    File file = new File("target/tests-cache-zone-images/20141109144518.jpg");
+
+    Files.createDirectories(file.getParentFile().toPath());
+    Files.copy(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg").toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    TimeZone timeZone = TimeZone.getDefault();
+
+    try {
+
+      TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+
+      try (ImageMetadataCache cache = new ImageMetadataCache(folder, new CountingReader())) {
+        Assert.assertEquals(1000, cache.getDateTimeOriginal(file).getTime());
+      }
+
+      // the same local date and time, as if read again from the image
+
+      TimeZone.setDefault(TimeZone.getTimeZone("GMT+02:00"));
+
+      CountingReader reader = new CountingReader();
+
+      try (ImageMetadataCache cache = new ImageMetadataCache(folder, reader)) {
+        Assert.assertEquals(new SimpleDateFormat("yyyy:MM:dd HH:mm:ss").parse("1970:01:01 00:00:01"), cache.getDateTimeOriginal(file));
+      }
+
+      Assert.assertEquals(0, reader.count);
+    }
+
+    finally {
+      TimeZone.setDefault(timeZone);
+    }
+  }
+
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.awt.Dimension;
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImageResizerTest {
+
+  private static final File FOLDER = new File("target/tests-resizer/");
+
+  private static final File SRC_FILE = new File("src/test/resources/jatoo/cli/image/20141109144518.jpg");
+
+  private static ImageResizer createResizer(final int width, final int height) {
+    return new ImageResizer(Collections.singletonList(new ImageResizer.Size(true, width, height)), ScalingAlgorithm.BILINEAR);
+  }
+
+  /**
+   * Counts the images decoded by a reader.
+   */
+  private static final class CountingReader extends ImageReader {
+
+    private final ImageReader reader;
+
+    private int reads;
+    private int subsampling;
+
+    private CountingReader(final ImageReader reader) {
+      super(reader.getOriginatingProvider());
+      this.reader = reader;
+    }
+
+    @Override
+    public void setInput(final Object input, final boolean seekForwardOnly, final boolean ignoreMetadata) {
+      super.setInput(input, seekForwardOnly, ignoreMetadata);
+      reader.setInput(input, seekForwardOnly, ignoreMetadata);
+    }
+
+    @Override
+    public int getNumImages(final boolean allowSearch) throws IOException {
+      return reader.getNumImages(allowSearch);
+    }
+
+    @Override
+    public int getWidth(final int imageIndex) throws IOException {
+      return reader.getWidth(imageIndex);
+    }
+
+    @Override
+    public int getHeight(final int imageIndex) throws IOException {
+      return reader.getHeight(imageIndex);
+    }
+
+    @Override
+    public Iterator<ImageTypeSpecifier> getImageTypes(final int imageIndex) throws IOException {
+      return reader.getImageTypes(imageIndex);
+    }
+
+    @Override
+    public ImageReadParam getDefaultReadParam() {
+      return reader.getDefaultReadParam();
+    }
+
+    @Override
+    public IIOMetadata getStreamMetadata() throws IOException {
+      return reader.getStreamMetadata();
+    }
+
+    @Override
+    public IIOMetadata getImageMetadata(final int imageIndex) throws IOException {
+      return reader.getImageMetadata(imageIndex);
+    }
+
+    @Override
+    public BufferedImage read(final int imageIndex, final ImageReadParam param) throws IOException {
+      reads++;
+      subsampling = param != null ? param.getSourceXSubsampling() : 1;
+      return reader.read(imageIndex, param);
+    }
+
+    @Override
+    public void dispose() {
+      reader.dispose();
+    }
+  }
+
+  private static List<byte[]> readSegments(final File file) throws Exception {
+    try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+      return JpegSegments.read(stream);
+    }
+  }
+
+  @Test
+  public void testSubsampling() throws Exception {
+
+    Files.createDirectories(FOLDER.toPath());
+    File srcFile = new File(FOLDER, "columns.png");
+    File dstFile = new File(FOLDER, "columns-resized.png");
+
+    ImageResizer resizer = new ImageResizer(Collections.singletonList(new ImageResizer.Size(true, 100, 100)), ScalingAlgorithm.BICUBIC);
+
+    // the decoded image is kept twice as large as the result for bicubic, and
+    // as large as the result for nearest
+    Assert.assertEquals(8, resizer.getSubsampling(1600, 1600, 100, 100));
+    Assert.assertEquals(4, resizer.getSubsampling(3264, 2448, 400, 300));
+    Assert.assertEquals(8, new ImageResizer(Collections.singletonList(new ImageResizer.Size(true, 400, 300)), ScalingAlgorithm.NEAREST).getSubsampling(3264, 2448, 400, 300));
+    Assert.assertEquals(1, resizer.getSubsampling(800, 600, 400, 300));
+
+    //
+    // a white column every 8 pixels, the rest black: decoded with a
+    // subsampling of 8, only the white columns are read (a full decode would
+    // average them to a dark gray)
+
+    BufferedImage image = new BufferedImage(1600, 1600, BufferedImage.TYPE_INT_RGB);
+
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x += 8) {
+        image.setRGB(x, y, 0xFFFFFF);
+      }
+    }
+
+    ImageIO.write(image, "png", srcFile);
+
+    resizer.resize(srcFile, dstFile);
+
+    BufferedImage resized = ImageIO.read(dstFile);
+
+    Assert.assertEquals(100, resized.getWidth());
+    Assert.assertEquals(100, resized.getHeight());
+    Assert.assertEquals(0xFF, resized.getRGB(50, 50) & 0xFF);
+
+    // and the memory is estimated for the subsampled decode
+    Assert.assertTrue(resizer.getMemoryEstimate(1600, 1600) < 1600 * 1600);
+  }
+
+  @Test
+  public void testSizes() throws Exception {
+
+    List<ImageResizer.Size> sizes = ImageResizer.Size.parseList("800x800, 400x200:fill,100x100:fit", true);
+
+    Assert.assertEquals(3, sizes.size());
+    Assert.assertTrue(sizes.get(0).isFit());
+    Assert.assertFalse(sizes.get(1).isFit());
+    Assert.assertTrue(sizes.get(2).isFit());
+
+    ImageResizer resizer = new ImageResizer(sizes, ScalingAlgorithm.BICUBIC);
+
+    //
+    // all the sizes from a single decode, at the resolution needed by the
+    // largest one (3264x2448 decoded with a subsampling of 2 for 800x600)
+
+    CountingReader reader = new CountingReader(ImageIO.getImageReadersByFormatName("jpeg").next());
+
+    List<BufferedImage> images;
+
+    try (ImageInputStream stream = ImageIO.createImageInputStream(SRC_FILE)) {
+      reader.setInput(stream);
+      images = resizer.read(reader);
+    }
+
+    finally {
+      reader.dispose();
+    }
+
+    Assert.assertEquals(1, reader.reads);
+    Assert.assertEquals(2, reader.subsampling);
+
+    Assert.assertEquals(new Dimension(800, 600), new Dimension(images.get(0).getWidth(), images.get(0).getHeight()));
+    Assert.assertEquals(new Dimension(400, 200), new Dimension(images.get(1).getWidth(), images.get(1).getHeight()));
+    Assert.assertEquals(new Dimension(100, 75), new Dimension(images.get(2).getWidth(), images.get(2).getHeight()));
+
+    // the names must be unique (they are the names of the folders)
+    try {
+      ImageResizer.Size.parseList("400x400:fit,400x400:fill", true);
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testResizeStream() throws Exception {
+
+    Files.createDirectories(FOLDER.toPath());
+    File dstFile = new File(FOLDER, "stream.jpg");
+
+    ImageResizer resizer = createResizer(400, 400);
+    byte[] src = Files.readAllBytes(SRC_FILE.toPath());
+
+    //
+    // from JPEG to JPEG (the format of the source), with the metadata
+
+    ResizeStats.Sample sample = new ResizeStats.Sample();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    Assert.assertTrue(resizer.resize(new ByteArrayInputStream(src), out, null, true, sample));
+    Files.write(dstFile.toPath(), out.toByteArray());
+
+    Assert.assertEquals(0xFFD8, ((out.toByteArray()[0] & 0xFF) << 8) | (out.toByteArray()[1] & 0xFF));
+    Assert.assertEquals(new Dimension(400, 300), ExifReader.getPixelDimension(dstFile));
+    Assert.assertEquals(new ExifReader(null).getDateTimeOriginal(SRC_FILE), new ExifReader(null).getDateTimeOriginal(dstFile));
+
+    // the source was read up to the end of the image (not the padding after)
+    ResizeStats stats = new ResizeStats();
+    stats.add(sample);
+    Assert.assertTrue(stats.getBytesRead() > src.length - 1024 && stats.getBytesRead() <= src.length);
+
+    //
+    // to PNG: the metadata cannot be kept (and is not asked for the second
+    // time)
+
+    out = new ByteArrayOutputStream();
+    Assert.assertFalse(resizer.resize(new ByteArrayInputStream(src), out, "png", true, new ResizeStats.Sample()));
+
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    Assert.assertEquals(400, image.getWidth());
+    Assert.assertEquals(0x89, out.toByteArray()[0] & 0xFF);
+
+    Assert.assertTrue(resizer.resize(new ByteArrayInputStream(src), new ByteArrayOutputStream(), "png", false, new ResizeStats.Sample()));
+
+    // only one size can be written to a stream
+    try {
+      new ImageResizer(ImageResizer.Size.parseList("400x400,200x200", true), ScalingAlgorithm.BILINEAR).resize(new ByteArrayInputStream(src), new ByteArrayOutputStream(), null, false, new ResizeStats.Sample());
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testKeepMetadataExif() throws Exception {
+
+    Files.createDirectories(FOLDER.toPath());
+    File dstFile = new File(FOLDER, "exif.jpg");
+
+    Assert.assertNotNull(ExifReader.getThumbnail(SRC_FILE));
+    Assert.assertEquals(new Dimension(3264, 2448), ExifReader.getPixelDimension(SRC_FILE));
+
+    Assert.assertTrue(createResizer(400, 400).resize(SRC_FILE, Collections.singletonList(dstFile), true).isEmpty());
+
+    // the pixel dimensions of the result, without the thumbnail of the source
+    Assert.assertEquals(new Dimension(400, 300), ExifReader.getPixelDimension(dstFile));
+    Assert.assertNull(ExifReader.getThumbnail(dstFile));
+    Assert.assertTrue(readSegments(dstFile).get(0).length < readSegments(SRC_FILE).get(0).length - 8000);
+
+    Assert.assertEquals(ExifReader.getOrientation(SRC_FILE), ExifReader.getOrientation(dstFile));
+    Assert.assertEquals(new ExifReader(null).getDateTimeOriginal(SRC_FILE), new ExifReader(null).getDateTimeOriginal(dstFile));
+  }
+
+  @Test
+  public void testKeepMetadataColorSpace() throws Exception {
+
+    Files.createDirectories(FOLDER.toPath());
+    File srcFile = new File(FOLDER, "linear-rgb.jpg");
+    File dstFile = new File(FOLDER, "linear-rgb-resized.jpg");
+
+    //
+    // a gray JPEG, with a linear RGB profile (not sRGB)
+
+    BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        image.setRGB(x, y, 0x646464);
+      }
+    }
+
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    ImageIO.write(image, "jpeg", encoded);
+    byte[] bytes = encoded.toByteArray();
+
+    byte[] profile = ICC_Profile.getInstance(ColorSpace.CS_LINEAR_RGB).getData();
+    byte[] identifier = "ICC_PROFILE\0".getBytes(StandardCharsets.US_ASCII);
+    int length = 2 + identifier.length + 2 + profile.length;
+
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    jpeg.write(bytes, 0, 2);
+    jpeg.write(new byte[] { (byte) 0xFF, (byte) 0xE2, (byte) (length >> 8), (byte) length });
+    jpeg.write(identifier);
+    jpeg.write(new byte[] { 1, 1 });
+    jpeg.write(profile);
+    jpeg.write(bytes, 2, bytes.length - 2);
+
+    Files.write(srcFile.toPath(), jpeg.toByteArray());
+
+    //
+    // the colors are the same (the pixels are converted to sRGB when decoded,
+    // so the profile is not carried over)
+
+    Assert.assertTrue(createResizer(32, 32).resize(srcFile, Collections.singletonList(dstFile), true).isEmpty());
+
+    for (byte[] segment : readSegments(dstFile)) {
+      Assert.assertEquals(0xE1, segment[1] & 0xFF);
+    }
+
+    int srcGray = ImageIO.read(srcFile).getRGB(32, 32) & 0xFF;
+    int dstGray = ImageIO.read(dstFile).getRGB(16, 16) & 0xFF;
+
+    Assert.assertTrue(Math.abs(srcGray - dstGray) <= 4);
+  }
+
+  @Test
+  public void testResizeThumbnail() throws Exception {
+
+    Files.createDirectories(FOLDER.toPath());
+    File dstFile = new File(FOLDER, "thumbnail.jpg");
+
+    ExifReader.Thumbnail thumbnail = ExifReader.getThumbnail(SRC_FILE);
+    ImageResizer resizer = new ImageResizer(Collections.singletonList(new ImageResizer.Size(true, 80, 80)), ScalingAlgorithm.BILINEAR, null, true);
+
+    ResizeStats stats = new ResizeStats();
+    ResizeStats.Sample sample = new ResizeStats.Sample();
+
+    Assert.assertTrue(resizer.resize(SRC_FILE, Collections.singletonList(dstFile), false, sample).isEmpty());
+    stats.add(sample);
+
+    // only the thumbnail was read, not the whole image
+    Assert.assertEquals(thumbnail.getBytes().length, stats.getBytesRead());
+    Assert.assertEquals(80, ImageIO.read(dstFile).getWidth());
+    Assert.assertEquals(60, ImageIO.read(dstFile).getHeight());
+
+    // a size larger than the thumbnail (160x120) falls back to the image
+    resizer = new ImageResizer(Collections.singletonList(new ImageResizer.Size(true, 200, 200)), ScalingAlgorithm.BILINEAR, null, true);
+
+    stats = new ResizeStats();
+    sample = new ResizeStats.Sample();
+
+    Assert.assertTrue(resizer.resize(SRC_FILE, Collections.singletonList(dstFile), false, sample).isEmpty());
+    stats.add(sample);
+
+    Assert.assertEquals(SRC_FILE.length(), stats.getBytesRead());
+    Assert.assertEquals(200, ImageIO.read(dstFile).getWidth());
+  }
+
+  @Test
+  public void testResizeThumbnailTIFF() throws Exception {
+
+    Files.createDirectories(FOLDER.toPath());
+    File srcFile = new File(FOLDER, "thumbnail.tif");
+
+    //
+    // a (little endian) TIFF of 3264x2448, with only the JPEG thumbnail of the
+    // test image in its IFD1
+
+    byte[] thumbnail = ExifReader.getThumbnail(SRC_FILE).getBytes();
+
+    ByteBuffer tiff = ByteBuffer.allocate(8 + 2 + 2 * 12 + 4 + 2 + 2 * 12 + 4 + thumbnail.length).order(ByteOrder.LITTLE_ENDIAN);
+    tiff.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+
+    tiff.putShort((short) 2);
+    tiff.putShort((short) 0x0100).putShort((short) 3).putInt(1).putInt(3264);
+    tiff.putShort((short) 0x0101).putShort((short) 3).putInt(1).putInt(2448);
+    tiff.putInt(tiff.position() + 4);
+
+    tiff.putShort((short) 2);
+    tiff.putShort((short) 0x0201).putShort((short) 4).putInt(1).putInt(tiff.position() + 12 + 4 + 4);
+    tiff.putShort((short) 0x0202).putShort((short) 4).putInt(1).putInt(thumbnail.length);
+    tiff.putInt(0);
+
+    tiff.put(thumbnail);
+
+    Files.write(srcFile.toPath(), tiff.array());
+
+    Assert.assertEquals("tiff", ExifReader.getThumbnail(srcFile).getImageFormatName());
+
+    //
+    // the metadata of a TIFF is copied afterwards (the JPEG segments cannot be
+    // read from it), and the format of the source is kept
+
+    ImageResizer resizer = new ImageResizer(Collections.singletonList(new ImageResizer.Size(true, 80, 80)), ScalingAlgorithm.BILINEAR, null, true);
+
+    File dstFile = new File(FOLDER, "thumbnail-resized.jpg");
+    Assert.assertEquals(Collections.singletonList(dstFile), resizer.resize(srcFile, Collections.singletonList(dstFile), true));
+    Assert.assertEquals(80, ImageIO.read(dstFile).getWidth());
+
+    if (ImageCodecs.hasWriter("tiff")) {
+
+      File dstFileTIFF = new File(FOLDER, "thumbnail-resized");
+      Assert.assertEquals(Collections.singletonList(dstFileTIFF), resizer.resize(srcFile, Collections.singletonList(dstFileTIFF), true));
+
+      try (ImageInputStream stream = ImageIO.createImageInputStream(dstFileTIFF)) {
+        Assert.assertEquals("tif", ImageIO.getImageReaders(stream).next().getOriginatingProvider().getFormatNames()[0]);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImageServerTest {
+
+  @Test
+  public void testSplitJoin() {
+
+    String[] args = { "-src", "C:\\My Pictures\\a.jpg", "-pattern", "\"quoted\"", "" };
+
+    Assert.assertEquals("-src \"C:\\\\My Pictures\\\\a.jpg\" -pattern \"\\\"quoted\\\"\" \"\"", ImageServer.join(args));
+    Assert.assertArrayEquals(args, ImageServer.split(ImageServer.join(args)));
+    Assert.assertArrayEquals(new String[] { "-resize", "-fit", "a b" }, ImageServer.split("  -resize\t-fit \"a b\"  "));
+  }
+
+  @Test
+  public void testServe() throws Exception {
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true, "UTF-8");
+
+    String jobs = ""
+        + "-metadata -src target/test-classes/jatoo/cli/image/20141109144518.jpg -get -DateTimeOriginal -format csv\n"
+        + "\n"
+        + "-metadata -src target/test-classes/jatoo/cli/image/20141109144518.jpg -get -all -format jsonl\n";
+
+    new ImageServer(new JatooCLICommand()).serve(new BufferedReader(new StringReader(jobs)), out);
+
+    String[] lines = bytes.toString("UTF-8").split("\r?\n");
+
+    Assert.assertEquals("File,DateTimeOriginal", lines[0]);
+    Assert.assertEquals(ImageServer.DONE, lines[2]);
+    Assert.assertTrue(lines[3].startsWith("{\"File\":"));
+    Assert.assertEquals(ImageServer.DONE, lines[4]);
+    Assert.assertEquals(5, lines.length);
+  }
+
+  @Test
+  public void testServeToken() throws Exception {
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true, "UTF-8");
+
+    String jobs = ""
+        + "secret\n"
+        + "-metadata -src target/test-classes/jatoo/cli/image/20141109144518.jpg -get -DateTimeOriginal -format csv\n"
+        + "wrong\n"
+        + "-metadata -src target/test-classes/jatoo/cli/image/20141109144518.jpg -get -all -format jsonl\n";
+
+    new ImageServer(new JatooCLICommand()).serve(new BufferedReader(new StringReader(jobs)), out, "secret");
+
+    String[] lines = bytes.toString("UTF-8").split("\r?\n");
+
+    Assert.assertEquals("File,DateTimeOriginal", lines[0]);
+    Assert.assertEquals(ImageServer.DONE, lines[2]);
+    Assert.assertEquals(ImageServer.DENIED, lines[3]);
+    Assert.assertEquals(4, lines.length);
+  }
+
+  @Test
+  public void testServeStandardStreams() throws Exception {
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true, "UTF-8");
+
+    String jobs = "-resize -fit -width 100 -height 100 -src - -dst target/tests-server/\n";
+
+    new ImageServer(new JatooCLICommand()).serve(new BufferedReader(new StringReader(jobs)), out);
+
+    String[] lines = bytes.toString("UTF-8").split("\r?\n");
+
+    Assert.assertTrue(lines[0].startsWith("the jobs of a server cannot use the standard input or output"));
+    Assert.assertEquals(ImageServer.ERROR, lines[1]);
+    Assert.assertEquals(2, lines.length);
+  }
+
+  @Test
+  public void testServeServer() throws Exception {
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true, "UTF-8");
+
+    new ImageServer(new JatooCLICommand()).serve(new BufferedReader(new StringReader("-server -port 12345\n-client -port 12345 -metadata\n")), out);
+
+    String[] lines = bytes.toString("UTF-8").split("\r?\n");
+
+    Assert.assertTrue(lines[0].startsWith("the jobs of a server cannot start a server or a client"));
+    Assert.assertEquals(ImageServer.ERROR, lines[1]);
+    Assert.assertTrue(lines[2].startsWith("the jobs of a server cannot start a server or a client"));
+    Assert.assertEquals(ImageServer.ERROR, lines[3]);
+    Assert.assertEquals(4, lines.length);
+  }
+
+  @Test
+  public void testServeFailure() throws Exception {
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true, "UTF-8");
+
+    new ImageServer(new JatooCLICommand()).serve(new BufferedReader(new StringReader("-resize -fit -width 100 -height 100 -src target/tests-server/missing.jpg -dst target/tests-server/\n")), out);
+
+    String[] lines = bytes.toString("UTF-8").split("\r?\n");
+
+    Assert.assertEquals(ImageServer.ERROR, lines[lines.length - 1]);
+  }
+
+  @Test
+  public void testServeOutput() throws Exception {
+
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch printed = new CountDownLatch(1);
+
+    // prints the first argument, from the job thread and from a thread
+    // started by the job
+    final JatooCLICommand command = new JatooCLICommand() {
+      @Override
+      public void execute(final String[] args) {
+
+        Thread thread = new Thread() {
+          @Override
+          public void run() {
+            System.out.println(args[0] + " (worker)");
+          }
+        };
+
+        thread.start();
+
+        try {
+          thread.join();
+          started.countDown();
+          printed.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+
+        System.out.println(args[0]);
+      }
+    };
+
+    final ByteArrayOutputStream bytes1 = new ByteArrayOutputStream();
+
+    Thread client1 = new Thread() {
+      @Override
+      public void run() {
+        try {
+          new ImageServer(command).serve(new BufferedReader(new StringReader("job1\n")), new PrintStream(bytes1, true, "UTF-8"));
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+
+    client1.start();
+
+    // the second job runs while the first one is still running, and a thread
+    // that runs for no job prints meanwhile
+
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    ByteArrayOutputStream bytes2 = new ByteArrayOutputStream();
+    new ImageServer(new JatooCLICommand() {
+      @Override
+      public void execute(final String[] args) {
+        System.out.println(args[0]);
+      }
+    }).serve(new BufferedReader(new StringReader("job2\n")), new PrintStream(bytes2, true, "UTF-8"));
+
+    System.out.println("no job");
+    printed.countDown();
+
+    client1.join(5000);
+
+    Assert.assertEquals("job1 (worker)\njob1\n" + ImageServer.DONE + "\n", bytes1.toString("UTF-8").replace("\r", ""));
+    Assert.assertEquals("job2\n" + ImageServer.DONE + "\n", bytes2.toString("UTF-8").replace("\r", ""));
+  }
+
+  @Test
+  public void testAbsolutize() {
+
+    String[] args = ImageServer.absolutize(new String[] { "-resize", "-fit", "-src", "a.jpg", "-dst", "-", "-statsReport=stats.csv", "-width", "100" });
+
+    Assert.assertEquals(new File("a.jpg").getAbsolutePath(), args[3]);
+    Assert.assertEquals("-", args[5]);
+    Assert.assertEquals("-statsReport=" + new File("stats.csv").getAbsolutePath(), args[6]);
+    Assert.assertEquals("100", args[8]);
+  }
+
+}
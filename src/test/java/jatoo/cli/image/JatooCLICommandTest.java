@@ -16,8 +16,25 @@
 
 package jatoo.cli.image;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -26,6 +43,27 @@ import jatoo.image.ImageUtils;
 
 public class JatooCLICommandTest {
 
+  /**
+   * @return the output of the command
+   */
+  private static String execute(final String[] args) {
+
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(stdout));
+
+    try {
+      new JatooCLICommand().execute(args);
+    }
+
+    finally {
+      System.setOut(out);
+    }
+
+    return stdout.toString();
+  }
+
   @Test
   public void testResizeFit() throws Exception {
 
@@ -86,6 +124,437 @@ public class JatooCLICommandTest {
     Assert.assertTrue(new File("src/test/resources/jatoo/cli/image/").list().length <= new File("target/tests/").list().length);
   }
 
+  @Test
+  public void testResizeFolderThreads() throws Exception {
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-resize",
+          "-fit",
+          "-width", "400",
+          "-height", "200",
+          "-removeMetadata",
+          "-overwrite",
+          "-threads", "3",
+          "-src", "src/test/resources/jatoo/cli/image/",
+          "-dst", "target/tests-threads/"
+      });
+
+    Assert.assertTrue(new File("src/test/resources/jatoo/cli/image/").list().length <= new File("target/tests-threads/").list().length);
+  }
+
+  @Test
+  public void testResizeRecursive() throws Exception {
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-resize",
+          "-fit",
+          "-width", "400",
+          "-height", "200",
+          "-removeMetadata",
+          "-overwrite",
+          "-recursive",
+          "-src", "src/test/resources/jatoo/",
+          "-dst", "target/tests-recursive/"
+      });
+
+    Assert.assertTrue(new File("target/tests-recursive/cli/image/20141109144518.jpg").isFile());
+  }
+
+  @Test
+  public void testResizeIncremental() throws Exception {
+
+    File src = new File("target/tests-incremental-src/");
+    File dst = new File("target/tests-incremental/");
+
+    for (File folder : new File[] { src, dst }) {
+      Files.createDirectories(folder.toPath());
+      for (File file : folder.listFiles()) {
+        Files.delete(file.toPath());
+      }
+    }
+
+    Files.copy(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg").toPath(), new File(src, "a.jpg").toPath());
+    Files.copy(new File("src/test/resources/jatoo/cli/image/20141109144518-400x300.jpg").toPath(), new File(src, "b.jpg").toPath());
+
+    String[] args = new String[] {
+        "-resize",
+        "-fit",
+        "-width", "200",
+        "-height", "200",
+        "-removeMetadata",
+        "-incremental",
+        "-src", src.getPath(),
+        "-dst", dst.getPath()
+    };
+
+    String output = execute(args);
+
+    Assert.assertTrue(output.contains("- a.jpg"));
+    Assert.assertTrue(output.contains("- b.jpg"));
+    Assert.assertFalse(output.contains("up to date"));
+    Assert.assertTrue(new File(dst, ResizeManifest.FILE_NAME).isFile());
+
+    // nothing changed, both are skipped
+
+    byte[] bytes = Files.readAllBytes(new File(dst, "a.jpg").toPath());
+    long lastModified = new File(dst, "a.jpg").lastModified();
+
+    output = execute(args);
+
+    Assert.assertTrue(output.contains("2 images were up to date."));
+    Assert.assertFalse(output.contains("- a.jpg"));
+    Assert.assertFalse(output.contains("- b.jpg"));
+    Assert.assertEquals(lastModified, new File(dst, "a.jpg").lastModified());
+
+    // a changed source and a deleted result are resized again
+
+    Files.copy(new File("src/test/resources/jatoo/cli/image/20141109144518-400x300.jpg").toPath(), new File(src, "a.jpg").toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Files.delete(new File(dst, "b.jpg").toPath());
+
+    output = execute(args);
+
+    Assert.assertFalse(output.contains("up to date"));
+    Assert.assertTrue(output.contains("- a.jpg"));
+    Assert.assertTrue(output.contains("- b.jpg"));
+    Assert.assertFalse(Arrays.equals(bytes, Files.readAllBytes(new File(dst, "a.jpg").toPath())));
+  }
+
+  @Test
+  public void testResizeThumbnail() throws Exception {
+
+    File src = new File("src/test/resources/jatoo/cli/image/20141109144518.jpg");
+    File report = new File("target/tests-thumbnail.json");
+    Files.deleteIfExists(report.toPath());
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-resize",
+          "-fit",
+          "-width", "160",
+          "-height", "160",
+          "-thumbnail",
+          "-removeMetadata",
+          "-overwrite",
+          "-statsReport", report.getPath(),
+          "-src", src.getPath(),
+          "-dst", "target/tests-thumbnail/"
+      });
+
+    BufferedImage image = ImageUtils.read("target/tests-thumbnail/20141109144518.jpg");
+
+    Assert.assertEquals(160, image.getWidth());
+    Assert.assertEquals(120, image.getHeight());
+
+    // resized from the thumbnail, the image itself was not read
+    String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+    Assert.assertTrue(json.contains("\"bytesRead\": " + ExifReader.getThumbnail(src).getBytes().length + ",\n"));
+  }
+
+  @Test
+  public void testResizeKeepMetadata() throws Exception {
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-resize",
+          "-fit",
+          "-width", "400",
+          "-height", "400",
+          "-overwrite",
+          "-src", "src/test/resources/jatoo/cli/image/20141109144518.jpg",
+          "-dst", "target/tests-keep-metadata/"
+      });
+
+    List<byte[]> srcSegments;
+    List<byte[]> dstSegments;
+
+    try (ImageInputStream stream = ImageIO.createImageInputStream(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg"))) {
+      srcSegments = JpegSegments.read(stream);
+    }
+    try (ImageInputStream stream = ImageIO.createImageInputStream(new File("target/tests-keep-metadata/20141109144518.jpg"))) {
+      dstSegments = JpegSegments.read(stream);
+    }
+
+    Assert.assertFalse(srcSegments.isEmpty());
+    Assert.assertEquals(srcSegments.size(), dstSegments.size());
+
+    // the EXIF is kept, updated to the size of the result (see ImageResizerTest)
+    Assert.assertEquals(new Dimension(400, 300), ExifReader.getPixelDimension(new File("target/tests-keep-metadata/20141109144518.jpg")));
+
+    for (int i = 1; i < srcSegments.size(); i++) {
+      Assert.assertArrayEquals(srcSegments.get(i), dstSegments.get(i));
+    }
+  }
+
+  @Test
+  public void testResizeStats() throws Exception {
+
+    File src = new File("src/test/resources/jatoo/cli/image/");
+    File dst = new File("target/tests-stats/");
+    File report = new File("target/tests-stats.json");
+    Files.deleteIfExists(report.toPath());
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-resize",
+          "-fit",
+          "-width", "400",
+          "-height", "400",
+          "-removeMetadata",
+          "-overwrite",
+          "-statsReport", report.getPath(),
+          "-src", src.getPath(),
+          "-dst", dst.getPath()
+      });
+
+    // the bytes are the ones of the sources and of the results
+
+    long bytesRead = 0;
+    long bytesWritten = 0;
+
+    for (File file : src.listFiles()) {
+      bytesRead += file.length();
+      bytesWritten += new File(dst, file.getName()).length();
+    }
+
+    String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+
+    Assert.assertTrue(json.contains("\"images\": " + src.list().length + ",\n"));
+    Assert.assertTrue(json.contains("\"bytesRead\": " + bytesRead + ",\n"));
+    Assert.assertTrue(json.contains("\"bytesWritten\": " + bytesWritten + ",\n"));
+
+    // every image was decoded, scaled and encoded (and not timed for the
+    // metadata, removed)
+
+    for (ResizeStats.Stage stage : new ResizeStats.Stage[] { ResizeStats.Stage.DECODE, ResizeStats.Stage.SCALE, ResizeStats.Stage.ENCODE }) {
+      Assert.assertFalse(json.contains("\"" + stage.getName() + "\": {\"p50Millis\": 0.000,"));
+    }
+
+    Assert.assertTrue(json.contains("\"metadata\": {\"p50Millis\": 0.000, \"p95Millis\": 0.000, \"p99Millis\": 0.000, \"maxMillis\": 0.000,"));
+  }
+
+  @Test
+  public void testResizeMemoryBudget() throws Exception {
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-resize",
+          "-fit",
+          "-width", "400",
+          "-height", "400",
+          "-overwrite",
+          "-threads", "4",
+          "-memoryBudget", "1m",
+          "-src", "src/test/resources/jatoo/cli/image/",
+          "-dst", "target/tests-memory-budget/"
+      });
+
+    Assert.assertTrue(new File("src/test/resources/jatoo/cli/image/").list().length == new File("target/tests-memory-budget/").list().length);
+  }
+
+  @Test
+  public void testResizeStream() throws Exception {
+
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(stdout));
+
+    try {
+      new JatooCLICommand().execute(
+        new String[] {
+            "-resize",
+            "-fit",
+            "-width", "400",
+            "-height", "400",
+            "-src", "src/test/resources/jatoo/cli/image/20141109144518.jpg",
+            "-dst", "-"
+        });
+    }
+
+    finally {
+      System.setOut(out);
+    }
+
+    // only the image is written to the standard output (no progress text)
+    Assert.assertEquals(0xFF, stdout.toByteArray()[0] & 0xFF);
+    Assert.assertEquals(0xD8, stdout.toByteArray()[1] & 0xFF);
+
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(stdout.toByteArray()));
+
+    Assert.assertEquals(400, image.getWidth());
+    Assert.assertEquals(300, image.getHeight());
+
+    InputStream in = System.in;
+    System.setIn(new ByteArrayInputStream(stdout.toByteArray()));
+
+    try {
+      new JatooCLICommand().execute(
+        new String[] {
+            "-resize",
+            "-fill",
+            "-width", "100",
+            "-height", "100",
+            "-overwrite",
+            "-src", "-",
+            "-dst", "target/tests-stream/100x100.png"
+        });
+    }
+
+    finally {
+      System.setIn(in);
+    }
+
+    image = ImageUtils.read("target/tests-stream/100x100.png");
+
+    Assert.assertEquals(100, image.getWidth());
+    Assert.assertEquals(100, image.getHeight());
+
+    // in the format of the destination file
+    Assert.assertEquals(0x89, Files.readAllBytes(new File("target/tests-stream/100x100.png").toPath())[0] & 0xFF);
+  }
+
+  @Test
+  public void testJobs() throws Exception {
+
+    File jobs = new File("target/tests-jobs/jobs.csv");
+    Files.createDirectories(jobs.getParentFile().toPath());
+
+    Files.write(jobs.toPath(), Arrays.asList(
+        "src/test/resources/jatoo/cli/image/20141109144518.jpg,target/tests-jobs/400x300.jpg,400,400",
+        "src/test/resources/jatoo/cli/image/20141109144519.jpg,target/tests-jobs/100x100.png,100,100,fill,bilinear",
+        "{\"src\": \"src/test/resources/jatoo/cli/image/20141109144518-400x300.jpg\", \"dst\": \"target/tests-jobs/200x150.jpg\", \"width\": 200, \"height\": 200}",
+        "src/test/resources/jatoo/cli/image/missing.jpg,target/tests-jobs/missing.jpg,100,100",
+        "src/test/resources/jatoo/cli/image/20141109144518.jpg,target/tests-jobs/invalid.jpg,100"),
+        StandardCharsets.UTF_8);
+
+    String output = execute(
+      new String[] {
+          "-jobs",
+          "-removeMetadata",
+          "-overwrite",
+          "-src", jobs.getPath()
+      });
+
+    // a job that fails and an invalid line do not stop the others
+    Assert.assertTrue(output.contains("Jobs: 3 done, 1 failed, 1 invalid line(s)"));
+    Assert.assertTrue(output.contains("- INVALID: line 5: "));
+
+    // every job with its own size, mode and format
+    Assert.assertEquals(new Dimension(400, 300), getDimension("target/tests-jobs/400x300.jpg"));
+    Assert.assertEquals(new Dimension(100, 100), getDimension("target/tests-jobs/100x100.png"));
+    Assert.assertEquals(new Dimension(200, 150), getDimension("target/tests-jobs/200x150.jpg"));
+
+    Assert.assertEquals(0x89, Files.readAllBytes(new File("target/tests-jobs/100x100.png").toPath())[0] & 0xFF);
+  }
+
+  private static Dimension getDimension(final String file) throws Exception {
+    BufferedImage image = ImageUtils.read(file);
+    return new Dimension(image.getWidth(), image.getHeight());
+  }
+
+  @Test
+  public void testResizeQuality() throws Exception {
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-resize",
+          "-fit",
+          "-width", "800",
+          "-height", "800",
+          "-overwrite",
+          "-src", "src/test/resources/jatoo/cli/image/20141109144518.jpg",
+          "-dst", "target/tests-quality-75/"
+      });
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-resize",
+          "-fit",
+          "-width", "800",
+          "-height", "800",
+          "-quality", "50",
+          "-progressive",
+          "-optimizeHuffman",
+          "-overwrite",
+          "-src", "src/test/resources/jatoo/cli/image/20141109144518.jpg",
+          "-dst", "target/tests-quality-50/"
+      });
+
+    File file75 = new File("target/tests-quality-75/20141109144518.jpg");
+    File file50 = new File("target/tests-quality-50/20141109144518.jpg");
+
+    Assert.assertEquals(800, ImageUtils.read(file50.getPath()).getWidth());
+    Assert.assertTrue(file50.length() < file75.length());
+  }
+
+  @Test
+  public void testRotate() throws Exception {
+
+    File src = new File("target/tests-rotate-src/");
+    Files.createDirectories(src.toPath());
+
+    for (int orientation : new int[] { 1, 6, 8 }) {
+      File file = new File(src, orientation + ".jpg");
+      Files.copy(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg").toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      Assert.assertTrue(ExifReader.setOrientation(file, orientation));
+    }
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-rotate",
+          "-angle", "auto",
+          "-overwrite",
+          "-src", src.getPath(),
+          "-dst", "target/tests-rotate/"
+      });
+
+    for (int orientation : new int[] { 1, 6, 8 }) {
+
+      File file = new File("target/tests-rotate/" + orientation + ".jpg");
+
+      Assert.assertTrue(file.isFile());
+      Assert.assertEquals(1, ExifReader.getOrientation(file));
+
+      BufferedImage image = ImageUtils.read(file.getPath());
+
+      Assert.assertEquals(orientation == 1 ? 3264 : 2448, image.getWidth());
+      Assert.assertEquals(orientation == 1 ? 2448 : 3264, image.getHeight());
+      Assert.assertEquals(new Dimension(image.getWidth(), image.getHeight()), ExifReader.getPixelDimension(file));
+
+      if (orientation != 1) {
+        Assert.assertNull(ExifReader.getThumbnail(file));
+      }
+    }
+
+    // the rotations are of the images as they are shown (6 and 8 are already
+    // rotated by 90 and 270 degrees)
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-rotate",
+          "-angle", "90",
+          "-overwrite",
+          "-src", src.getPath(),
+          "-dst", "target/tests-rotate-90/"
+      });
+
+    for (int orientation : new int[] { 1, 6, 8 }) {
+
+      File file = new File("target/tests-rotate-90/" + orientation + ".jpg");
+
+      Assert.assertTrue(file.isFile());
+      Assert.assertEquals(1, ExifReader.getOrientation(file));
+
+      BufferedImage image = ImageUtils.read(file.getPath());
+
+      Assert.assertEquals(orientation == 1 ? 2448 : 3264, image.getWidth());
+      Assert.assertEquals(orientation == 1 ? 3264 : 2448, image.getHeight());
+      Assert.assertEquals(new Dimension(image.getWidth(), image.getHeight()), ExifReader.getPixelDimension(file));
+    }
+  }
+
   @Test
   public void testRename1() throws Exception {
 
@@ -115,6 +584,85 @@ public class JatooCLICommandTest {
     Assert.assertTrue(new File("src/test/resources/jatoo/cli/image/").list().length <= new File("target/tests-rename2/").list().length);
   }
 
+  @Test
+  public void testRenameLink() throws Exception {
+
+    File src = new File("src/test/resources/jatoo/cli/image/");
+    File dst = new File("target/tests-rename-link/");
+
+    if (dst.exists()) {
+      for (File file : dst.listFiles()) {
+        Files.delete(file.toPath());
+      }
+    }
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-rename",
+          "-pattern", "yyyyMMdd-HHmmss-${counter}",
+          "-counterDigits", "5",
+          "-mode", "link",
+          "-src", src.getPath(),
+          "-dst", dst.getPath()
+      });
+
+    // every image is linked (not copied) under its new name, the sources stay
+
+    File[] srcFiles = src.listFiles();
+    File[] dstFiles = dst.listFiles();
+
+    Assert.assertEquals(srcFiles.length, dstFiles.length);
+
+    for (File dstFile : dstFiles) {
+
+      int links = 0;
+
+      for (File srcFile : srcFiles) {
+        if (Files.isSameFile(srcFile.toPath(), dstFile.toPath())) {
+          links++;
+        }
+      }
+
+      Assert.assertEquals(1, links);
+    }
+  }
+
+  @Test
+  public void testRenameCollision() throws Exception {
+
+    File dst = new File("target/tests-rename-collision/");
+
+    if (dst.exists()) {
+      for (File file : dst.listFiles()) {
+        Files.delete(file.toPath());
+      }
+      Files.delete(dst.toPath());
+    }
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-rename",
+          "-pattern", "yyyyMMdd",
+          "-collision", "suffix",
+          "-dryRun",
+          "-src", "src/test/resources/jatoo/cli/image/",
+          "-dst", "target/tests-rename-collision/"
+      });
+
+    Assert.assertFalse(dst.exists());
+
+    new JatooCLICommand().execute(
+      new String[] {
+          "-rename",
+          "-pattern", "yyyyMMdd",
+          "-collision", "suffix",
+          "-src", "src/test/resources/jatoo/cli/image/",
+          "-dst", "target/tests-rename-collision/"
+      });
+
+    Assert.assertEquals(new File("src/test/resources/jatoo/cli/image/").list().length, dst.list().length);
+  }
+
   @Test
   public void testMetadataGet1() throws Exception {
     new JatooCLICommand().execute(
@@ -135,6 +683,44 @@ public class JatooCLICommandTest {
             "-DateTimeOriginalPattern", "yyyy-MM-dd HH:mm:ss"
         });
   }
+
+  @Test
+  public void testMetadataGet3() throws Exception {
+
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(stdout));
+
+    try {
+      new JatooCLICommand().execute(
+          new String[] {
+              "-metadata",
+              "-src", "src/test/resources/jatoo/cli/image/",
+              "-get", "-all",
+              "-format", "json"
+          });
+    }
+
+    finally {
+      System.setOut(out);
+    }
+
+    String json = new String(stdout.toByteArray(), StandardCharsets.UTF_8).trim();
+
+    Assert.assertTrue(json.startsWith("[") && json.endsWith("]"));
+
+    Map<String, String> dates = new HashMap<>();
+    Matcher matcher = Pattern.compile("\\{\"File\":\"([^\"]*)\",\"DateTimeOriginal\":(null|\"[^\"]*\"),\"ImageWidth\":(null|\\d+),\"ImageHeight\":(null|\\d+)\\}").matcher(json);
+
+    while (matcher.find()) {
+      dates.put(new File(matcher.group(1).replace("\\\\", "\\")).getName(), matcher.group(2));
+    }
+
+    Assert.assertEquals(new File("src/test/resources/jatoo/cli/image/").list().length, dates.size());
+    Assert.assertEquals("\"2014-11-09 14:45:19\"", dates.get("20141109144518.jpg"));
+    Assert.assertEquals("\"2014-11-09 14:45:19\"", dates.get("20141109144519.jpg"));
+  }
   
   @Test
   public void testMetadataSet1() throws Exception {
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JobReaderTest {
+
+  private static JobReader createReader(final String name, final String... lines) throws Exception {
+
+    File file = new File("target/tests-job-reader/" + name);
+    Files.createDirectories(file.getParentFile().toPath());
+    Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+
+    return new JobReader(file);
+  }
+
+  private static void assertJob(final JobReader.Job job, final int lineNumber, final String src, final String dst, final int width, final int height, final boolean fit, final ScalingAlgorithm algorithm) {
+    Assert.assertEquals(lineNumber, job.getLineNumber());
+    Assert.assertEquals(new File(src), job.getSrc());
+    Assert.assertEquals(new File(dst), job.getDst());
+    Assert.assertEquals(width, job.getSize().getWidth());
+    Assert.assertEquals(height, job.getSize().getHeight());
+    Assert.assertEquals(fit, job.getSize().isFit());
+    Assert.assertEquals(algorithm, job.getAlgorithm());
+  }
+
+  @Test
+  public void testCSV() throws Exception {
+
+    try (JobReader reader = createReader("csv.csv",
+        "in/1.jpg,out/1.jpg,400,300",
+        "# a comment",
+        "",
+        "\"in/a, \"\"b\"\".jpg\" , out/2.png,100,100,fill,bilinear")) {
+
+      assertJob(reader.next(), 1, "in/1.jpg", "out/1.jpg", 400, 300, true, null);
+      assertJob(reader.next(), 4, "in/a, \"b\".jpg", "out/2.png", 100, 100, false, ScalingAlgorithm.BILINEAR);
+
+      Assert.assertNull(reader.next());
+    }
+  }
+
+  @Test
+  public void testHeader() throws Exception {
+
+    // the header is the first line with content, in any order of the columns
+    try (JobReader reader = createReader("header.csv",
+        "# the jobs, with a header",
+        "",
+        "algorithm,dst,src,height,width",
+        "nearest,out/1.jpg,in/1.jpg,300,400",
+        ",out/2.jpg,in/2.jpg,100,200")) {
+
+      assertJob(reader.next(), 4, "in/1.jpg", "out/1.jpg", 400, 300, true, ScalingAlgorithm.NEAREST);
+      assertJob(reader.next(), 5, "in/2.jpg", "out/2.jpg", 200, 100, true, null);
+
+      Assert.assertNull(reader.next());
+    }
+
+    // later, a line like a header is a job (an invalid one)
+    try (JobReader reader = createReader("header-late.csv",
+        "in/1.jpg,out/1.jpg,400,300",
+        "src,dst,width,height")) {
+
+      assertJob(reader.next(), 1, "in/1.jpg", "out/1.jpg", 400, 300, true, null);
+
+      try {
+        reader.next();
+        Assert.fail();
+      } catch (IllegalArgumentException e) {
+        Assert.assertTrue(e.getMessage().startsWith("line 2: "));
+      }
+    }
+  }
+
+  @Test
+  public void testJSON() throws Exception {
+
+    try (JobReader reader = createReader("jobs.jsonl",
+        "{\"src\": \"in/\\\"1\\\"\\u0041.jpg\", \"dst\": \"out/1.jpg\", \"width\": 400, \"height\": 300, \"mode\": \"fill\", \"algorithm\": null}",
+        "{ \"height\" : 50 , \"width\":60,\"dst\":\"out/2.jpg\",\"src\":\"in/2.jpg\",\"algorithm\":\"bicubic\" }")) {
+
+      assertJob(reader.next(), 1, "in/\"1\"A.jpg", "out/1.jpg", 400, 300, false, null);
+      assertJob(reader.next(), 2, "in/2.jpg", "out/2.jpg", 60, 50, true, ScalingAlgorithm.BICUBIC);
+
+      Assert.assertNull(reader.next());
+    }
+  }
+
+  @Test
+  public void testInvalid() throws Exception {
+
+    try (JobReader reader = createReader("invalid.csv",
+        "in/1.jpg,out/1.jpg,400",
+        "in/2.jpg,out/2.jpg,400,x",
+        "in/3.jpg,out/3.jpg,400,300,stretch",
+        "\"in/4.jpg,out/4.jpg,400,300",
+        "{\"src\": \"in/5.jpg\", \"dst\": [\"out/5.jpg\"], \"width\": 400, \"height\": 300}",
+        "{\"src\": \"in/6.jpg\"",
+        "in/7.jpg,out/7.jpg,400,300")) {
+
+      // every invalid line fails with its number, and the next one is read
+      for (int lineNumber = 1; lineNumber <= 6; lineNumber++) {
+        try {
+          reader.next();
+          Assert.fail();
+        } catch (IllegalArgumentException e) {
+          Assert.assertTrue(e.getMessage().startsWith("line " + lineNumber + ": "));
+        }
+      }
+
+      assertJob(reader.next(), 7, "in/7.jpg", "out/7.jpg", 400, 300, true, null);
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JpegTranTest {
+
+  @Test
+  public void testRotate() {
+
+    // only normalize
+    for (int orientation = 1; orientation <= 8; orientation++) {
+      Assert.assertEquals(JpegTran.normalize(orientation), JpegTran.rotate(0, orientation));
+    }
+
+    // normal orientation, only rotate
+    Assert.assertEquals(Arrays.asList("-rotate", "90"), JpegTran.rotate(90, 1));
+    Assert.assertEquals(Arrays.asList("-rotate", "180"), JpegTran.rotate(180, 1));
+    Assert.assertEquals(Arrays.asList("-rotate", "270"), JpegTran.rotate(270, 1));
+
+    // shown rotated by 90, then by 90 more
+    Assert.assertEquals(Arrays.asList("-rotate", "180"), JpegTran.rotate(90, 6));
+
+    // shown rotated by 270, the rotation by 90 cancels it
+    Assert.assertEquals(Collections.emptyList(), JpegTran.rotate(90, 8));
+
+    // shown flipped horizontally, then rotated
+    Assert.assertEquals(Arrays.asList("-flip", "vertical"), JpegTran.rotate(180, 2));
+    Assert.assertEquals(Arrays.asList("-transverse"), JpegTran.rotate(90, 2));
+    Assert.assertEquals(Arrays.asList("-transpose"), JpegTran.rotate(270, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRotateAngle() {
+    JpegTran.rotate(45, 1);
+  }
+
+  @Test
+  public void testCheckAvailable() throws Exception {
+
+    String executable = System.getProperty(JpegTran.PROPERTY_EXECUTABLE);
+    System.setProperty(JpegTran.PROPERTY_EXECUTABLE, new File("target/tests-jpegtran/missing").getAbsolutePath());
+
+    try {
+      JpegTran.checkAvailable();
+      Assert.fail();
+    }
+
+    catch (IOException e) {
+      Assert.assertTrue(e.getMessage().startsWith("jpegtran cannot be run"));
+    }
+
+    finally {
+      if (executable == null) {
+        System.clearProperty(JpegTran.PROPERTY_EXECUTABLE);
+      } else {
+        System.setProperty(JpegTran.PROPERTY_EXECUTABLE, executable);
+      }
+    }
+  }
+
+}
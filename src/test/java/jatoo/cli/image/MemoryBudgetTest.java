@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MemoryBudgetTest {
+
+  /**
+   * Acquires memory from the budget (on another thread).
+   */
+  private static final class Acquirer extends Thread {
+
+    private final MemoryBudget budget;
+    private final long bytes;
+
+    private final CountDownLatch acquired = new CountDownLatch(1);
+
+    private Acquirer(final MemoryBudget budget, final long bytes) {
+      this.budget = budget;
+      this.bytes = bytes;
+      setDaemon(true);
+      start();
+    }
+
+    @Override
+    public void run() {
+      try {
+        budget.acquire(bytes);
+        acquired.countDown();
+      } catch (Exception e) {
+        // the latch is never counted down
+      }
+    }
+
+    private boolean isAcquired(final long millis) throws InterruptedException {
+      return acquired.await(millis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Test
+  public void testAdmission() throws Exception {
+
+    MemoryBudget budget = new MemoryBudget(10 * 1024);
+
+    int acquired = budget.acquire(6 * 1024);
+    Assert.assertEquals(4 * 1024, budget.getAvailable());
+
+    // waits for the memory taken by the first one
+    Acquirer large = new Acquirer(budget, 6 * 1024);
+    Assert.assertFalse(large.isAcquired(200));
+
+    // fair, waits behind the large one even if there is memory for it
+    Thread.sleep(50);
+    Acquirer small = new Acquirer(budget, 1024);
+    Assert.assertFalse(small.isAcquired(200));
+
+    budget.release(acquired);
+
+    Assert.assertTrue(large.isAcquired(5000));
+    Assert.assertTrue(small.isAcquired(5000));
+    Assert.assertEquals(3 * 1024, budget.getAvailable());
+  }
+
+  @Test
+  public void testAdmissionLarger() throws Exception {
+
+    MemoryBudget budget = new MemoryBudget(10 * 1024);
+
+    // larger than the budget, admitted with the whole budget
+    int acquired = budget.acquire(100 * 1024);
+    Assert.assertEquals(0, budget.getAvailable());
+
+    Acquirer small = new Acquirer(budget, 1);
+    Assert.assertFalse(small.isAcquired(200));
+
+    budget.release(acquired);
+
+    Assert.assertTrue(small.isAcquired(5000));
+  }
+
+  @Test
+  public void testResizeRelease() throws Exception {
+
+    File folder = new File("target/tests-memory-budget/");
+    Files.createDirectories(folder.toPath());
+
+    MemoryBudget budget = new MemoryBudget(1024 * 1024 * 1024);
+    ImageResizer resizer = new ImageResizer(Collections.singletonList(new ImageResizer.Size(true, 400, 400)), ScalingAlgorithm.BILINEAR, budget, false);
+
+    resizer.resize(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg"), new File(folder, "20141109144518.jpg"));
+    Assert.assertEquals(1024 * 1024 * 1024, budget.getAvailable());
+
+    // given back even if the resize fails
+    try {
+      resizer.resize(new File("src/test/resources/jatoo/cli/image/20141109144518.jpg"), new File(folder, "missing/20141109144518.jpg"));
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertEquals(1024 * 1024 * 1024, budget.getAvailable());
+    }
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetadataPrinterTest {
+
+  private static String print(final MetadataPrinter.Format format) throws Exception {
+
+    Date date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse("2014-11-09 14:45:19");
+
+    StringWriter writer = new StringWriter();
+    MetadataPrinter printer = new MetadataPrinter(writer, format, true, null);
+
+    printer.print(new File("a.jpg"), new ImageInfo(date, 640, 480));
+    printer.print(new File("b \"1\", 2.jpg"), new ImageInfo(null, -1, -1));
+    printer.finish();
+
+    return writer.toString();
+  }
+
+  @Test
+  public void testJSON() throws Exception {
+    Assert.assertEquals(""
+        + "[\n"
+        + "  {\"File\":\"a.jpg\",\"DateTimeOriginal\":\"2014-11-09 14:45:19\",\"ImageWidth\":640,\"ImageHeight\":480},\n"
+        + "  {\"File\":\"b \\\"1\\\", 2.jpg\",\"DateTimeOriginal\":null,\"ImageWidth\":null,\"ImageHeight\":null}\n"
+        + "]\n", print(MetadataPrinter.Format.JSON));
+  }
+
+  @Test
+  public void testJSONL() throws Exception {
+    Assert.assertEquals(""
+        + "{\"File\":\"a.jpg\",\"DateTimeOriginal\":\"2014-11-09 14:45:19\",\"ImageWidth\":640,\"ImageHeight\":480}\n"
+        + "{\"File\":\"b \\\"1\\\", 2.jpg\",\"DateTimeOriginal\":null,\"ImageWidth\":null,\"ImageHeight\":null}\n", print(MetadataPrinter.Format.JSONL));
+  }
+
+  @Test
+  public void testCSV() throws Exception {
+    Assert.assertEquals(""
+        + "File,DateTimeOriginal,ImageWidth,ImageHeight\n"
+        + "a.jpg,2014-11-09 14:45:19,640,480\n"
+        + "\"b \"\"1\"\", 2.jpg\",,,\n", print(MetadataPrinter.Format.CSV));
+  }
+
+}
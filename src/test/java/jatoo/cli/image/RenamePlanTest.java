@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RenamePlanTest {
+
+  private static final File SRC_FILE = new File("src/test/resources/jatoo/cli/image/20141109144518.jpg");
+  private static final File SRC_FILE_2 = new File("src/test/resources/jatoo/cli/image/20141109144519.jpg");
+
+  private static File createFolder(final String name) throws Exception {
+
+    File folder = new File("target/tests-rename-plan/" + name);
+    Files.createDirectories(folder.toPath());
+
+    for (File file : folder.listFiles()) {
+      Files.delete(file.toPath());
+    }
+
+    return folder;
+  }
+
+  @Test
+  public void testCaseSensitive() throws Exception {
+
+    File dst = createFolder("case-sensitive");
+
+    RenamePlan plan = new RenamePlan(dst, RenamePlan.Collision.FAIL, TransferMode.COPY, true);
+
+    Assert.assertEquals("IMG.jpg", plan.add(SRC_FILE, SRC_FILE.getName(), null, "IMG.jpg").getDstName());
+    Assert.assertEquals("img.jpg", plan.add(SRC_FILE_2, SRC_FILE_2.getName(), null, "img.jpg").getDstName());
+  }
+
+  @Test
+  public void testCaseInsensitive() throws Exception {
+
+    File dst = createFolder("case-insensitive");
+
+    RenamePlan plan = new RenamePlan(dst, RenamePlan.Collision.SUFFIX, TransferMode.COPY, false);
+
+    Assert.assertEquals("IMG.jpg", plan.add(SRC_FILE, SRC_FILE.getName(), null, "IMG.jpg").getDstName());
+    Assert.assertEquals("img-1.jpg", plan.add(SRC_FILE_2, SRC_FILE_2.getName(), null, "img.jpg").getDstName());
+
+    // and with the files already in the destination
+
+    Files.copy(SRC_FILE.toPath(), new File(dst, "other.jpg").toPath());
+
+    plan = new RenamePlan(dst, RenamePlan.Collision.SUFFIX, TransferMode.COPY, false);
+
+    Assert.assertEquals("OTHER-1.jpg", plan.add(SRC_FILE_2, SRC_FILE_2.getName(), null, "OTHER.jpg").getDstName());
+  }
+
+  @Test
+  public void testIsCaseSensitive() throws Exception {
+
+    File dst = createFolder("is-case-sensitive");
+
+    Files.createFile(new File(dst, "probe").toPath());
+    boolean caseSensitive = !new File(dst, "PROBE").exists();
+
+    // the folder itself, with a name to check, and a folder not created yet
+    Assert.assertEquals(caseSensitive, RenamePlan.isCaseSensitive(dst));
+    Assert.assertEquals(caseSensitive, RenamePlan.isCaseSensitive(new File(dst, "not/created")));
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResizeManifestTest {
+
+  @Test
+  public void testEscape() {
+
+    for (String name : new String[] { "a.jpg", "tab\there.jpg", "line\nbreak\r.jpg", "sub\\a.jpg", "\\\\t" }) {
+      Assert.assertEquals(name, ResizeManifest.unescape(ResizeManifest.escape(name)));
+      Assert.assertEquals(-1, ResizeManifest.escape(name).indexOf('\t'));
+      Assert.assertEquals(-1, ResizeManifest.escape(name).indexOf('\n'));
+    }
+
+    // written before the escaping
+    Assert.assertEquals("sub\\a.jpg", ResizeManifest.unescape("sub\\a.jpg"));
+  }
+
+  @Test
+  public void testUpToDate() throws Exception {
+
+    File folder = new File("target/tests-manifest-up-to-date/");
+    Files.createDirectories(folder.toPath());
+    Files.deleteIfExists(new File(folder, ResizeManifest.FILE_NAME).toPath());
+
+    File srcFile = new File(folder, "src.jpg");
+    File dstFile = new File(folder, "dst.jpg");
+
+    Files.copy(new File("src/test/resources/jatoo/cli/image/20141109144518-400x300.jpg").toPath(), srcFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Files.copy(srcFile.toPath(), dstFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    List<File> dstFiles = Collections.singletonList(dstFile);
+
+    ResizeManifest manifest = new ResizeManifest(folder, "parameters", true);
+    Assert.assertFalse(manifest.isUpToDate("src.jpg", srcFile, dstFiles));
+    manifest.update("src.jpg", manifest.capture(srcFile));
+    manifest.save(true);
+
+    // skipped: not changed, and the result is there
+    Assert.assertTrue(new ResizeManifest(folder, "parameters", true).isUpToDate("src.jpg", srcFile, dstFiles));
+
+    // skipped only with the checksum: touched, but with the same content
+    Assert.assertTrue(srcFile.setLastModified(srcFile.lastModified() - 10000));
+    Assert.assertTrue(new ResizeManifest(folder, "parameters", true).isUpToDate("src.jpg", srcFile, dstFiles));
+    Assert.assertFalse(new ResizeManifest(folder, "parameters", false).isUpToDate("src.jpg", srcFile, dstFiles));
+
+    // resized again: the result is missing, or the content changed
+    Assert.assertFalse(new ResizeManifest(folder, "parameters", true).isUpToDate("src.jpg", srcFile, Collections.singletonList(new File(folder, "missing.jpg"))));
+
+    byte[] bytes = Files.readAllBytes(srcFile.toPath());
+    bytes[bytes.length / 2] ^= 1;
+    Files.write(srcFile.toPath(), bytes);
+
+    Assert.assertFalse(new ResizeManifest(folder, "parameters", true).isUpToDate("src.jpg", srcFile, dstFiles));
+
+    // the sources not seen by a run are forgotten when the manifest is pruned
+    manifest = new ResizeManifest(folder, "parameters", true);
+    manifest.update("src.jpg", manifest.capture(srcFile));
+    manifest.save(true);
+    Assert.assertTrue(new ResizeManifest(folder, "parameters", true).isUpToDate("src.jpg", srcFile, dstFiles));
+
+    new ResizeManifest(folder, "parameters", true).save(true);
+    Assert.assertFalse(new ResizeManifest(folder, "parameters", true).isUpToDate("src.jpg", srcFile, dstFiles));
+  }
+
+  @Test
+  public void testPeriodicSave() throws Exception {
+
+    File folder = new File("target/tests-manifest/");
+    Files.createDirectories(folder.toPath());
+    Files.deleteIfExists(new File(folder, ResizeManifest.FILE_NAME).toPath());
+
+    File srcFile = new File("src/test/resources/jatoo/cli/image/20141109144518.jpg");
+
+    ResizeManifest manifest = new ResizeManifest(folder, "parameters", false);
+
+    for (int i = 0; i < ResizeManifest.SAVE_INTERVAL; i++) {
+      manifest.update("tab\t" + i + ".jpg", manifest.capture(srcFile));
+    }
+
+    // saved without an explicit save (as if the run was interrupted)
+    Assert.assertTrue(new File(folder, ResizeManifest.FILE_NAME).isFile());
+
+    manifest = new ResizeManifest(folder, "parameters", false);
+
+    Assert.assertTrue(manifest.isUpToDate("tab\t0.jpg", srcFile, Collections.<File> emptyList()));
+    Assert.assertFalse(manifest.isUpToDate("tab\t0.jpg", new File("src/test/resources/jatoo/cli/image/20141109144518-400x300.jpg"), Collections.<File> emptyList()));
+
+    Assert.assertFalse(new ResizeManifest(folder, "other parameters", false).isUpToDate("tab\t0.jpg", srcFile, Collections.<File> emptyList()));
+  }
+
+}
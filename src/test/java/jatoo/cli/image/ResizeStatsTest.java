@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResizeStatsTest {
+
+  /**
+   * @return a sample that spent the specified time in the stage (and nothing
+   *         in the others)
+   */
+  private static ResizeStats.Sample createSample(final ResizeStats.Stage stage, final long millis) {
+
+    ResizeStats.Sample sample = new ResizeStats.Sample();
+    sample.add(stage, System.nanoTime() - millis * 1000000);
+    sample.addBytesRead(1000);
+    sample.addBytesWritten(10);
+
+    return sample;
+  }
+
+  @Test
+  public void testPercentiles() {
+
+    ResizeStats stats = new ResizeStats();
+
+    // 1 to 2000 milliseconds, added out of order (and more than the initial
+    // capacity)
+    for (int i = 0; i < 2000; i++) {
+      stats.add(createSample(ResizeStats.Stage.DECODE, (i * 7) % 2000 + 1));
+    }
+
+    stats.stop();
+
+    Assert.assertEquals(2000, stats.getImages());
+    Assert.assertEquals(1000, stats.getPercentile(ResizeStats.Stage.DECODE, 50), 1);
+    Assert.assertEquals(1900, stats.getPercentile(ResizeStats.Stage.DECODE, 95), 1);
+    Assert.assertEquals(1980, stats.getPercentile(ResizeStats.Stage.DECODE, 99), 1);
+    Assert.assertEquals(2000, stats.getMax(ResizeStats.Stage.DECODE), 1);
+    Assert.assertEquals(2001, stats.getTotal(ResizeStats.Stage.DECODE), 1);
+
+    // the other stages were not timed
+    Assert.assertEquals(0, stats.getMax(ResizeStats.Stage.SCALE), 1);
+    Assert.assertEquals(0, stats.getTotal(ResizeStats.Stage.WRITE), 0.001);
+
+    Assert.assertEquals(2000 * 1000, stats.getBytesRead());
+    Assert.assertEquals(2000 * 10, stats.getBytesWritten());
+  }
+
+  @Test
+  public void testReport() throws Exception {
+
+    ResizeStats stats = new ResizeStats();
+    stats.add(createSample(ResizeStats.Stage.SCALE, 20));
+    stats.add(createSample(ResizeStats.Stage.SCALE, 40));
+    stats.stop();
+
+    File report = new File("target/tests-stats-report.json");
+    Files.createDirectories(report.getParentFile().toPath());
+    stats.writeReport(report);
+
+    String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+
+    Assert.assertTrue(json.contains("\"images\": 2,\n"));
+    Assert.assertTrue(json.contains("\"bytesRead\": 2000,\n"));
+    Assert.assertTrue(json.contains("\"bytesWritten\": 20,\n"));
+    Assert.assertTrue(json.matches("(?s).*\"scale\": \\{\"p50Millis\": 20\\.\\d{3}, \"p95Millis\": 40\\.\\d{3}, \"p99Millis\": 40\\.\\d{3}, \"maxMillis\": 40\\.\\d{3}, \"totalSeconds\": 0\\.06\\d\\}.*"));
+    Assert.assertTrue(json.contains("\"decode\": {\"p50Millis\": 0.000, \"p95Millis\": 0.000, \"p99Millis\": 0.000, \"maxMillis\": 0.000, \"totalSeconds\": 0.000}"));
+  }
+
+  @Test
+  public void testEmpty() {
+
+    ResizeStats stats = new ResizeStats();
+    stats.stop();
+
+    Assert.assertEquals(0, stats.getImages());
+    Assert.assertEquals(0, stats.getPercentile(ResizeStats.Stage.DECODE, 50), 0);
+    Assert.assertEquals(0, stats.getMax(ResizeStats.Stage.DECODE), 0);
+  }
+
+}
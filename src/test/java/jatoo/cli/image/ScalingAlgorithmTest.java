@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScalingAlgorithmTest {
+
+  /**
+   * @return a checkerboard of black and white pixels (a gray of 128 when
+   *         averaged)
+   */
+  private static BufferedImage createCheckerboard(final int size) {
+
+    BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        if (((x + y) & 1) == 0) {
+          image.setRGB(x, y, 0xFFFFFF);
+        }
+      }
+    }
+
+    return image;
+  }
+
+  /**
+   * @return the lowest and the highest gray of the image
+   */
+  private static int[] getRange(final BufferedImage image) {
+
+    int[] range = { 255, 0 };
+
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        int gray = image.getRGB(x, y) & 0xFF;
+        range[0] = Math.min(range[0], gray);
+        range[1] = Math.max(range[1], gray);
+      }
+    }
+
+    return range;
+  }
+
+  @Test
+  public void testScale() {
+
+    BufferedImage image = createCheckerboard(400);
+
+    // nearest only picks source pixels (black or white)
+    BufferedImage nearest = ScalingAlgorithm.NEAREST.scale(image, 150, 150);
+
+    for (int y = 0; y < nearest.getHeight(); y++) {
+      for (int x = 0; x < nearest.getWidth(); x++) {
+        int gray = nearest.getRGB(x, y) & 0xFF;
+        Assert.assertTrue(gray == 0 || gray == 255);
+      }
+    }
+
+    // bilinear, in one step, skips source pixels (uneven grays)
+    int[] bilinear = getRange(ScalingAlgorithm.BILINEAR.scale(image, 150, 150));
+    Assert.assertTrue(bilinear[1] - bilinear[0] > 64);
+
+    // the ones in steps average all the pixels (an even gray)
+    for (ScalingAlgorithm algorithm : new ScalingAlgorithm[] { ScalingAlgorithm.PROGRESSIVE, ScalingAlgorithm.BICUBIC }) {
+
+      BufferedImage scaled = algorithm.scale(image, 150, 150);
+      int[] range = getRange(scaled);
+
+      Assert.assertEquals(150, scaled.getWidth());
+      Assert.assertEquals(150, scaled.getHeight());
+      Assert.assertTrue(range[0] >= 120 && range[1] <= 136);
+    }
+  }
+
+  @Test
+  public void testSubsamplingMargin() {
+    Assert.assertEquals(1, ScalingAlgorithm.NEAREST.getSubsamplingMargin());
+    Assert.assertEquals(1, ScalingAlgorithm.BILINEAR.getSubsamplingMargin());
+    Assert.assertEquals(2, ScalingAlgorithm.PROGRESSIVE.getSubsamplingMargin());
+    Assert.assertEquals(2, ScalingAlgorithm.BICUBIC.getSubsamplingMargin());
+  }
+
+  @Test
+  public void testParse() {
+
+    Assert.assertEquals(ScalingAlgorithm.PROGRESSIVE, ScalingAlgorithm.parse("Progressive"));
+
+    try {
+      ScalingAlgorithm.parse("lanczos");
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) Cristian Sulea ( http://cristian.sulea.net )
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jatoo.cli.image;
+
+import java.io.File;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TransferModeTest {
+
+  private static final File SRC_FILE = new File("src/test/resources/jatoo/cli/image/20141109144518-400x300.jpg");
+
+  /**
+   * @return a copy of the test image, as the source, and the (not existing)
+   *         destination, in a clean folder
+   */
+  private static Path[] createFiles(final String name) throws Exception {
+
+    File folder = new File("target/tests-transfer/" + name);
+    Files.createDirectories(folder.toPath());
+
+    for (File file : folder.listFiles()) {
+      Files.delete(file.toPath());
+    }
+
+    Path src = new File(folder, "src.jpg").toPath();
+    Files.copy(SRC_FILE.toPath(), src);
+
+    return new Path[] { src, new File(folder, "dst.jpg").toPath() };
+  }
+
+  @Test
+  public void testCopy() throws Exception {
+
+    Path[] files = createFiles("copy");
+
+    TransferMode.COPY.transfer(files[0], files[1]);
+
+    Assert.assertTrue(Files.exists(files[0]));
+    Assert.assertFalse(Files.isSameFile(files[0], files[1]));
+    Assert.assertArrayEquals(Files.readAllBytes(files[0]), Files.readAllBytes(files[1]));
+
+    // an existing file is not replaced
+    try {
+      TransferMode.COPY.transfer(files[0], files[1]);
+      Assert.fail();
+    } catch (FileAlreadyExistsException e) {
+      // expected
+    }
+
+    TransferMode.COPY.undo(files[0], files[1]);
+
+    Assert.assertTrue(Files.exists(files[0]));
+    Assert.assertFalse(Files.exists(files[1]));
+  }
+
+  @Test
+  public void testMove() throws Exception {
+
+    Path[] files = createFiles("move");
+    byte[] bytes = Files.readAllBytes(files[0]);
+
+    TransferMode.MOVE.transfer(files[0], files[1]);
+
+    Assert.assertFalse(Files.exists(files[0]));
+    Assert.assertArrayEquals(bytes, Files.readAllBytes(files[1]));
+
+    TransferMode.MOVE.undo(files[0], files[1]);
+
+    Assert.assertArrayEquals(bytes, Files.readAllBytes(files[0]));
+    Assert.assertFalse(Files.exists(files[1]));
+
+    // an existing file is not replaced
+    Files.createFile(files[1]);
+
+    try {
+      TransferMode.MOVE.transfer(files[0], files[1]);
+      Assert.fail();
+    } catch (FileAlreadyExistsException e) {
+      // expected
+    }
+
+    Assert.assertTrue(Files.exists(files[0]));
+  }
+
+  @Test
+  public void testLink() throws Exception {
+
+    Path[] files = createFiles("link");
+
+    TransferMode.LINK.transfer(files[0], files[1]);
+
+    Assert.assertTrue(Files.isSameFile(files[0], files[1]));
+
+    try {
+      TransferMode.LINK.transfer(files[0], files[1]);
+      Assert.fail();
+    } catch (FileAlreadyExistsException e) {
+      // expected
+    }
+
+    TransferMode.LINK.undo(files[0], files[1]);
+
+    Assert.assertTrue(Files.exists(files[0]));
+    Assert.assertFalse(Files.exists(files[1]));
+  }
+
+  @Test
+  public void testParse() {
+
+    Assert.assertEquals(Arrays.asList(TransferMode.values()), Arrays.asList(TransferMode.parse("copy"), TransferMode.parse("MOVE"), TransferMode.parse("Link")));
+
+    try {
+      TransferMode.parse("symlink");
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+}